@@ -1,14 +1,19 @@
 package com.example.bulkemail.api;
 
+import com.example.bulkemail.dto.DkimKeyRequest;
+import com.example.bulkemail.dto.DkimKeyResponse;
 import com.example.bulkemail.dto.SenderIdentityRequest;
 import com.example.bulkemail.dto.SenderIdentityResponse;
 import com.example.bulkemail.dto.PolicySettingsRequest;
 import com.example.bulkemail.dto.PolicySettingsResponse;
+import com.example.bulkemail.entity.DkimKey;
 import com.example.bulkemail.entity.SenderIdentity;
 import com.example.bulkemail.entity.SmtpAccount;
 import com.example.bulkemail.repo.CampaignRepository;
+import com.example.bulkemail.repo.DkimKeyRepository;
 import com.example.bulkemail.repo.SenderIdentityRepository;
 import com.example.bulkemail.repo.SmtpAccountRepository;
+import com.example.bulkemail.sending.DkimSigner;
 import com.example.bulkemail.service.PolicySettingsService;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
@@ -17,7 +22,9 @@ import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.time.Instant;
 import java.util.List;
+import java.util.Locale;
 import java.util.stream.Collectors;
 
 @RestController
@@ -28,14 +35,20 @@ public class AdminController {
     private final SenderIdentityRepository senderIdentityRepository;
     private final PolicySettingsService policySettingsService;
     private final CampaignRepository campaignRepository;
+    private final DkimKeyRepository dkimKeyRepository;
+    private final DkimSigner dkimSigner;
 
     public AdminController(SmtpAccountRepository smtpAccountRepository, SenderIdentityRepository senderIdentityRepository,
                            PolicySettingsService policySettingsService,
-                           CampaignRepository campaignRepository) {
+                           CampaignRepository campaignRepository,
+                           DkimKeyRepository dkimKeyRepository,
+                           DkimSigner dkimSigner) {
         this.smtpAccountRepository = smtpAccountRepository;
         this.senderIdentityRepository = senderIdentityRepository;
         this.policySettingsService = policySettingsService;
         this.campaignRepository = campaignRepository;
+        this.dkimKeyRepository = dkimKeyRepository;
+        this.dkimSigner = dkimSigner;
     }
 
     @PostMapping("/smtp-accounts")
@@ -115,6 +128,41 @@ public class AdminController {
                 .collect(Collectors.toList());
     }
 
+    @PutMapping("/dkim-keys")
+    @PreAuthorize("hasAnyRole('SUPER_ADMIN','HR_ADMIN')")
+    public DkimKeyResponse saveDkimKey(@Valid @RequestBody DkimKeyRequest request) {
+        try {
+            dkimSigner.validate(request.getAlgorithm(), request.getPrivateKeyPem());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        String domain = request.getDomain().trim().toLowerCase(Locale.ROOT);
+        DkimKey key = dkimKeyRepository.findByDomainIgnoreCase(domain).orElseGet(DkimKey::new);
+        key.setDomain(domain);
+        key.setSelector(request.getSelector().trim());
+        key.setAlgorithm(request.getAlgorithm());
+        key.setPrivateKeyPem(request.getPrivateKeyPem());
+        key.setCreatedAt(Instant.now());
+        DkimKey saved = dkimKeyRepository.save(key);
+        dkimSigner.evictKeys();
+        return toResponse(saved);
+    }
+
+    @DeleteMapping("/dkim-keys/{id}")
+    @PreAuthorize("hasAnyRole('SUPER_ADMIN','HR_ADMIN')")
+    public void deleteDkimKey(@PathVariable Long id) {
+        dkimKeyRepository.deleteById(id);
+        dkimSigner.evictKeys();
+    }
+
+    @GetMapping("/dkim-keys")
+    @PreAuthorize("hasAnyRole('SUPER_ADMIN','HR_ADMIN','AUDITOR')")
+    public List<DkimKeyResponse> listDkimKeys() {
+        return dkimKeyRepository.findAll().stream()
+                .map(this::toResponse)
+                .collect(Collectors.toList());
+    }
+
     @GetMapping("/policies")
     @PreAuthorize("hasAnyRole('SUPER_ADMIN','HR_ADMIN')")
     public PolicySettingsResponse getPolicies() {
@@ -138,6 +186,16 @@ public class AdminController {
         return response;
     }
 
+    private DkimKeyResponse toResponse(DkimKey key) {
+        DkimKeyResponse response = new DkimKeyResponse();
+        response.setId(key.getId());
+        response.setDomain(key.getDomain());
+        response.setSelector(key.getSelector());
+        response.setAlgorithm(key.getAlgorithm());
+        response.setCreatedAt(key.getCreatedAt());
+        return response;
+    }
+
     private SmtpAccount resolveSmtpAccount(Long smtpAccountId) {
         if (smtpAccountId == null || smtpAccountId == 0) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "SMTP account required");
@@ -3,10 +3,13 @@ package com.example.bulkemail.api;
 import com.example.bulkemail.dto.*;
 import com.example.bulkemail.entity.CampaignStatus;
 import com.example.bulkemail.service.CampaignService;
+import com.example.bulkemail.service.CampaignSimulationService;
+import com.example.bulkemail.service.ExpansionJobService;
 import com.example.bulkemail.service.SendingService;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
@@ -18,10 +21,15 @@ import java.util.List;
 public class CampaignController {
     private final CampaignService campaignService;
     private final SendingService sendingService;
+    private final CampaignSimulationService simulationService;
+    private final ExpansionJobService expansionJobService;
 
-    public CampaignController(CampaignService campaignService, SendingService sendingService) {
+    public CampaignController(CampaignService campaignService, SendingService sendingService,
+                              CampaignSimulationService simulationService, ExpansionJobService expansionJobService) {
         this.campaignService = campaignService;
         this.sendingService = sendingService;
+        this.simulationService = simulationService;
+        this.expansionJobService = expansionJobService;
     }
 
     @PostMapping
@@ -65,10 +73,29 @@ public class CampaignController {
 
     @PostMapping("/{id}/expand")
     @PreAuthorize("hasAnyRole('SUPER_ADMIN','HR_ADMIN','DEPT_ADMIN','SENDER','APPROVER')")
-    public String expand(@PathVariable Long id, @Valid @RequestBody ExpandRecipientsRequest request,
-                         HttpServletRequest http) {
-        int total = campaignService.expandRecipients(id, request, ip(http), userAgent(http));
-        return "Expanded " + total + " recipients";
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public ExpansionJobDto expand(@PathVariable Long id, @Valid @RequestBody ExpandRecipientsRequest request,
+                                  HttpServletRequest http) {
+        return campaignService.expandRecipients(id, request, ip(http), userAgent(http));
+    }
+
+    @GetMapping("/{id}/expansion")
+    @PreAuthorize("hasAnyRole('SUPER_ADMIN','HR_ADMIN','DEPT_ADMIN','SENDER','APPROVER','AUDITOR')")
+    public ExpansionJobDto expansion(@PathVariable Long id) {
+        return expansionJobService.latest(id);
+    }
+
+    @GetMapping("/{id}/expansion/{jobId}")
+    @PreAuthorize("hasAnyRole('SUPER_ADMIN','HR_ADMIN','DEPT_ADMIN','SENDER','APPROVER','AUDITOR')")
+    public ExpansionJobDto expansionJob(@PathVariable Long id, @PathVariable Long jobId) {
+        return expansionJobService.get(id, jobId);
+    }
+
+    @PostMapping("/{id}/simulate")
+    @PreAuthorize("hasAnyRole('SUPER_ADMIN','HR_ADMIN','DEPT_ADMIN','SENDER','APPROVER')")
+    public SimulationDtos.SimulationResponse simulate(@PathVariable Long id,
+                                                      @Valid @RequestBody SimulationDtos.SimulationRequest request) {
+        return simulationService.simulate(id, request);
     }
 
     @PostMapping("/{id}/queue")
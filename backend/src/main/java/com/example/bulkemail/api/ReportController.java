@@ -1,14 +1,21 @@
 package com.example.bulkemail.api;
 
+import com.example.bulkemail.dto.CampaignEstimateDto;
+import com.example.bulkemail.dto.CampaignProgressDto;
 import com.example.bulkemail.dto.CampaignRecipientReportDto;
+import com.example.bulkemail.dto.LinkClickDto;
 import com.example.bulkemail.dto.ReportSummaryDto;
 import com.example.bulkemail.entity.CampaignRecipient;
 import com.example.bulkemail.repo.CampaignRecipientRepository;
+import com.example.bulkemail.service.CampaignProgressService;
+import com.example.bulkemail.service.ClickTrackingService;
 import com.example.bulkemail.service.ReportService;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.MediaType;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.io.IOException;
 import java.util.List;
@@ -19,10 +26,15 @@ import java.util.List;
 public class ReportController {
     private final ReportService reportService;
     private final CampaignRecipientRepository recipientRepository;
+    private final CampaignProgressService progressService;
+    private final ClickTrackingService clickTrackingService;
 
-    public ReportController(ReportService reportService, CampaignRecipientRepository recipientRepository) {
+    public ReportController(ReportService reportService, CampaignRecipientRepository recipientRepository,
+                            CampaignProgressService progressService, ClickTrackingService clickTrackingService) {
         this.reportService = reportService;
         this.recipientRepository = recipientRepository;
+        this.progressService = progressService;
+        this.clickTrackingService = clickTrackingService;
     }
 
     @GetMapping("/campaigns/{campaignId}/summary")
@@ -31,6 +43,30 @@ public class ReportController {
         return reportService.summary(campaignId);
     }
 
+    @GetMapping("/campaigns/{campaignId}/clicks")
+    @PreAuthorize("hasAnyRole('SUPER_ADMIN','HR_ADMIN','DEPT_ADMIN','AUDITOR','APPROVER','SENDER')")
+    public List<LinkClickDto> clicks(@PathVariable Long campaignId) {
+        return clickTrackingService.summary(campaignId);
+    }
+
+    @GetMapping("/campaigns/{campaignId}/progress")
+    @PreAuthorize("hasAnyRole('SUPER_ADMIN','HR_ADMIN','DEPT_ADMIN','AUDITOR','APPROVER','SENDER')")
+    public CampaignProgressDto progress(@PathVariable Long campaignId) {
+        return progressService.snapshot(campaignId);
+    }
+
+    @GetMapping("/campaigns/{campaignId}/estimate")
+    @PreAuthorize("hasAnyRole('SUPER_ADMIN','HR_ADMIN','DEPT_ADMIN','AUDITOR','APPROVER','SENDER')")
+    public CampaignEstimateDto estimate(@PathVariable Long campaignId) {
+        return progressService.estimate(campaignId);
+    }
+
+    @GetMapping(value = "/campaigns/{campaignId}/progress/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasAnyRole('SUPER_ADMIN','HR_ADMIN','DEPT_ADMIN','AUDITOR','APPROVER','SENDER')")
+    public SseEmitter progressStream(@PathVariable Long campaignId) {
+        return progressService.subscribe(campaignId);
+    }
+
     @GetMapping("/campaigns/{campaignId}/export")
     @PreAuthorize("hasAnyRole('SUPER_ADMIN','HR_ADMIN','DEPT_ADMIN','AUDITOR','APPROVER','SENDER')")
     public void export(@PathVariable Long campaignId, HttpServletResponse response) throws IOException {
@@ -58,6 +94,7 @@ public class ReportController {
             dto.setLastError(recipient.getLastError());
             dto.setRetryCount(recipient.getRetryCount());
             dto.setUpdatedAt(recipient.getUpdatedAt());
+            dto.setFirstOpenedAt(recipient.getFirstOpenedAt());
             return dto;
         }).toList();
     }
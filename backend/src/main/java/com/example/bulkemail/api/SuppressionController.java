@@ -1,26 +1,39 @@
 package com.example.bulkemail.api;
 
+import com.example.bulkemail.dto.SuppressionDtos;
 import com.example.bulkemail.dto.SuppressionRequest;
 import com.example.bulkemail.audit.AuditService;
 import com.example.bulkemail.entity.SuppressionList;
+import com.example.bulkemail.entity.SuppressionRule;
+import com.example.bulkemail.service.SuppressionImportService;
 import com.example.bulkemail.service.SuppressionService;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/suppression")
 @Tag(name = "Suppression")
 public class SuppressionController {
     private final SuppressionService suppressionService;
+    private final SuppressionImportService importService;
     private final AuditService auditService;
 
-    public SuppressionController(SuppressionService suppressionService, AuditService auditService) {
+    public SuppressionController(SuppressionService suppressionService, SuppressionImportService importService,
+                                 AuditService auditService) {
         this.suppressionService = suppressionService;
+        this.importService = importService;
         this.auditService = auditService;
     }
 
@@ -32,6 +45,57 @@ public class SuppressionController {
         return entry;
     }
 
+    // CSV (an "email" header column, or email first) or NDJSON ({"email": ..., "reason": ...} per line).
+    @PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @PreAuthorize("hasAnyRole('SUPER_ADMIN','HR_ADMIN')")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public SuppressionDtos.ImportStatus importFile(@RequestPart("file") MultipartFile file,
+                                                  @RequestParam(required = false) String reason,
+                                                  HttpServletRequest http) {
+        return importService.start(file, reason, ip(http), userAgent(http));
+    }
+
+    @GetMapping("/import/{jobId}")
+    @PreAuthorize("hasAnyRole('SUPER_ADMIN','HR_ADMIN')")
+    public SuppressionDtos.ImportStatus importStatus(@PathVariable String jobId) {
+        return importService.status(jobId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Import not found"));
+    }
+
+    @GetMapping("/rules")
+    @PreAuthorize("hasAnyRole('SUPER_ADMIN','HR_ADMIN','AUDITOR')")
+    public List<SuppressionRule> rules() {
+        return suppressionService.listRules();
+    }
+
+    // Domain ("example.com"), subdomain ("*.example.com") and local-part ("noreply@*") rules.
+    @PostMapping("/rules")
+    @PreAuthorize("hasAnyRole('SUPER_ADMIN','HR_ADMIN')")
+    public SuppressionRule addRule(@Valid @RequestBody SuppressionDtos.RuleRequest request, HttpServletRequest http) {
+        SuppressionRule rule;
+        try {
+            rule = suppressionService.addRule(request.getPattern(), request.getReason());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        auditService.logAction("SUPPRESSION_RULE_ADD", "suppression_rule", rule.getId().toString(), null, rule,
+                ip(http), userAgent(http));
+        return rule;
+    }
+
+    @DeleteMapping("/rules/{id}")
+    @PreAuthorize("hasAnyRole('SUPER_ADMIN','HR_ADMIN')")
+    public void removeRule(@PathVariable Long id, HttpServletRequest http) {
+        SuppressionRule rule;
+        try {
+            rule = suppressionService.removeRule(id);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+        }
+        auditService.logAction("SUPPRESSION_RULE_REMOVE", "suppression_rule", id.toString(), rule, null,
+                ip(http), userAgent(http));
+    }
+
     @DeleteMapping
     @PreAuthorize("hasAnyRole('SUPER_ADMIN','HR_ADMIN')")
     public void remove(@RequestParam String email, HttpServletRequest http) {
@@ -49,7 +113,27 @@ public class SuppressionController {
 
     @GetMapping
     @PreAuthorize("hasAnyRole('SUPER_ADMIN','HR_ADMIN','AUDITOR')")
-    public List<SuppressionList> list() {
-        return suppressionService.list();
+    // One keyset page; when more rows follow, X-Next-Cursor carries the value to pass as "after".
+    public List<SuppressionList> list(@RequestParam(required = false) String after,
+                                      @RequestParam(required = false) String prefix,
+                                      @RequestParam(defaultValue = "500") int limit,
+                                      HttpServletResponse response) {
+        List<SuppressionList> page = suppressionService.page(after, prefix, limit);
+        if (page.size() == limit) {
+            response.setHeader("X-Next-Cursor", page.get(page.size() - 1).getEmail());
+        }
+        return page;
+    }
+
+    @GetMapping("/export")
+    @PreAuthorize("hasAnyRole('SUPER_ADMIN','HR_ADMIN','AUDITOR')")
+    public void export(@RequestParam(required = false) String prefix, HttpServletRequest http,
+                       HttpServletResponse response) throws IOException {
+        response.setContentType("application/x-ndjson");
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("Content-Disposition", "attachment; filename=suppression-list.ndjson");
+        long rows = suppressionService.export(prefix, response.getOutputStream());
+        auditService.logAction("SUPPRESSION_EXPORT", "suppression", null, null,
+                Map.of("rows", rows, "prefix", prefix != null ? prefix : ""), ip(http), userAgent(http));
     }
 }
@@ -0,0 +1,56 @@
+package com.example.bulkemail.api;
+
+import com.example.bulkemail.service.ClickTrackingService;
+import com.example.bulkemail.service.OpenTrackingService;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Base64;
+
+@RestController
+@RequestMapping("/public/track")
+@Tag(name = "Tracking")
+public class TrackingController {
+    // 1x1 transparent GIF.
+    private static final byte[] PIXEL = Base64.getDecoder()
+            .decode("R0lGODlhAQABAIAAAAAAAP///yH5BAEAAAAALAAAAAABAAEAAAIBRAA7");
+
+    private final OpenTrackingService openTrackingService;
+    private final ClickTrackingService clickTrackingService;
+
+    public TrackingController(OpenTrackingService openTrackingService, ClickTrackingService clickTrackingService) {
+        this.openTrackingService = openTrackingService;
+        this.clickTrackingService = clickTrackingService;
+    }
+
+    // Always answers with the pixel, so a bad or stale token looks the same as a good one to the client.
+    @GetMapping("/open/{token}")
+    public ResponseEntity<byte[]> open(@PathVariable String token) {
+        openTrackingService.record(token);
+        return ResponseEntity.ok()
+                .contentType(MediaType.IMAGE_GIF)
+                .cacheControl(CacheControl.noStore().mustRevalidate().cachePrivate())
+                .header("Pragma", "no-cache")
+                .body(PIXEL);
+    }
+
+    // Only targets from the campaign's own link table are served, so this is not an open redirect.
+    @GetMapping("/click/{token}")
+    public ResponseEntity<Void> click(@PathVariable String token) {
+        String target = clickTrackingService.resolve(token)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Link not found"));
+        return ResponseEntity.status(HttpStatus.FOUND)
+                .header(HttpHeaders.LOCATION, target)
+                .cacheControl(CacheControl.noStore().cachePrivate())
+                .build();
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.bulkemail.api;
+
+import com.example.bulkemail.service.UnsubscribeService;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+@RestController
+@RequestMapping("/public/unsubscribe")
+@Tag(name = "Unsubscribe")
+public class UnsubscribeController {
+    private final UnsubscribeService unsubscribeService;
+
+    public UnsubscribeController(UnsubscribeService unsubscribeService) {
+        this.unsubscribeService = unsubscribeService;
+    }
+
+    // Link scanners follow GET, so it only shows a confirmation form; the change happens on POST.
+    @GetMapping(value = "/{token}", produces = MediaType.TEXT_HTML_VALUE)
+    public String confirm(@PathVariable String token) {
+        if (!unsubscribeService.isValid(token)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Unsubscribe link is invalid");
+        }
+        return "<!DOCTYPE html><html><body><form method=\"post\">"
+                + "<p>Stop receiving these emails?</p><button type=\"submit\">Unsubscribe</button>"
+                + "</form></body></html>";
+    }
+
+    // RFC 8058 one-click POST from the mailbox provider, or the form above.
+    @PostMapping(value = "/{token}", produces = MediaType.TEXT_HTML_VALUE)
+    public String unsubscribe(@PathVariable String token) {
+        if (!unsubscribeService.unsubscribe(token)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Unsubscribe link is invalid");
+        }
+        return "<!DOCTYPE html><html><body><p>You have been unsubscribed.</p></body></html>";
+    }
+}
@@ -1,35 +1,34 @@
 package com.example.bulkemail.api;
 
-import com.example.bulkemail.audit.AuditService;
-import com.example.bulkemail.dto.SuppressionRequest;
-import com.example.bulkemail.service.SuppressionService;
+import com.example.bulkemail.security.SnsMessageVerifier;
+import com.example.bulkemail.service.SesNotificationService;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
 @RestController
 @RequestMapping("/api/webhooks")
 @Tag(name = "Webhooks")
 public class WebhookController {
-    private final SuppressionService suppressionService;
-    private final AuditService auditService;
+    private final SesNotificationService sesNotificationService;
+    private final SnsMessageVerifier snsMessageVerifier;
 
-    public WebhookController(SuppressionService suppressionService, AuditService auditService) {
-        this.suppressionService = suppressionService;
-        this.auditService = auditService;
+    public WebhookController(SesNotificationService sesNotificationService, SnsMessageVerifier snsMessageVerifier) {
+        this.sesNotificationService = sesNotificationService;
+        this.snsMessageVerifier = snsMessageVerifier;
     }
 
+    // The endpoint is unauthenticated, so only SNS-signed messages from an allowed topic are accepted.
+    // Acknowledged as soon as it is buffered; a full buffer answers 503 so SNS redelivers later.
     @PostMapping("/ses")
     public String sesWebhook(@RequestBody String payload) {
-        auditService.logAction("SES_WEBHOOK_RECEIVED", "webhook", null, null, payload, null, null);
+        if (!snsMessageVerifier.verify(payload)) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Not a signed SNS message for an allowed topic");
+        }
+        if (!sesNotificationService.enqueue(payload)) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Notification buffer is full");
+        }
         return "accepted";
     }
-
-    @PostMapping("/ses/bounce")
-    public String sesBounce(@RequestParam String email) {
-        SuppressionRequest request = new SuppressionRequest();
-        request.setEmail(email);
-        request.setReason("SES bounce");
-        suppressionService.add(request);
-        return "suppressed";
-    }
 }
@@ -8,6 +8,8 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 
 @Service
 public class AuditService {
@@ -21,6 +23,22 @@ public class AuditService {
 
     public void logAction(String action, String resourceType, String resourceId, Object beforeObj, Object afterObj,
                           String ip, String userAgent) {
+        auditLogRepository.save(build(action, resourceType, resourceId, beforeObj, afterObj, ip, userAgent));
+    }
+
+    public void logActions(List<Entry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        List<AuditLog> logs = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            logs.add(build(entry.action(), entry.resourceType(), entry.resourceId(), null, entry.afterObj(), null, null));
+        }
+        auditLogRepository.saveAll(logs);
+    }
+
+    private AuditLog build(String action, String resourceType, String resourceId, Object beforeObj, Object afterObj,
+                           String ip, String userAgent) {
         AuditLog log = new AuditLog();
         log.setAction(action);
         log.setResourceType(resourceType);
@@ -32,7 +50,7 @@ public class AuditService {
         log.setIp(ip);
         log.setUserAgent(userAgent);
         log.setCreatedAt(Instant.now());
-        auditLogRepository.save(log);
+        return log;
     }
 
     private String toJson(Object obj) {
@@ -45,4 +63,7 @@ public class AuditService {
             return "{\"error\":\"serialization_failed\"}";
         }
     }
+
+    public record Entry(String action, String resourceType, String resourceId, Object afterObj) {
+    }
 }
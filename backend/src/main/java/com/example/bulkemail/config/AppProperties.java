@@ -12,6 +12,10 @@ public class AppProperties {
     private Approval approval = new Approval();
     private Sending sending = new Sending();
     private Throttle throttle = new Throttle();
+    private Tracking tracking = new Tracking();
+    private Webhooks webhooks = new Webhooks();
+    private Expansion expansion = new Expansion();
+    private AudienceIndex audienceIndex = new AudienceIndex();
 
     public List<String> getInternalDomains() {
         return internalDomains;
@@ -45,6 +49,38 @@ public class AppProperties {
         this.throttle = throttle;
     }
 
+    public Tracking getTracking() {
+        return tracking;
+    }
+
+    public void setTracking(Tracking tracking) {
+        this.tracking = tracking;
+    }
+
+    public Webhooks getWebhooks() {
+        return webhooks;
+    }
+
+    public void setWebhooks(Webhooks webhooks) {
+        this.webhooks = webhooks;
+    }
+
+    public Expansion getExpansion() {
+        return expansion;
+    }
+
+    public void setExpansion(Expansion expansion) {
+        this.expansion = expansion;
+    }
+
+    public AudienceIndex getAudienceIndex() {
+        return audienceIndex;
+    }
+
+    public void setAudienceIndex(AudienceIndex audienceIndex) {
+        this.audienceIndex = audienceIndex;
+    }
+
     public static class Approval {
         private boolean deptApprovalEnabled = true;
 
@@ -60,6 +96,7 @@ public class AppProperties {
     public static class Sending {
         private int maxTestRecipients = 5;
         private Worker worker = new Worker();
+        private Async async = new Async();
 
         public int getMaxTestRecipients() {
             return maxTestRecipients;
@@ -77,9 +114,18 @@ public class AppProperties {
             this.worker = worker;
         }
 
+        public Async getAsync() {
+            return async;
+        }
+
+        public void setAsync(Async async) {
+            this.async = async;
+        }
+
         public static class Worker {
             private long pollIntervalMs = 5000;
             private int batchSize = 200;
+            private long queueDepthIntervalMs = 30000;
 
             public long getPollIntervalMs() {
                 return pollIntervalMs;
@@ -96,6 +142,80 @@ public class AppProperties {
             public void setBatchSize(int batchSize) {
                 this.batchSize = batchSize;
             }
+
+            public long getQueueDepthIntervalMs() {
+                return queueDepthIntervalMs;
+            }
+
+            public void setQueueDepthIntervalMs(long queueDepthIntervalMs) {
+                this.queueDepthIntervalMs = queueDepthIntervalMs;
+            }
+        }
+
+        public static class Async {
+            private boolean enabled = false;
+            private int ioThreads = 2;
+            private int maxConnectionsPerAccount = 50;
+            private int tlsThreads = 16;
+            private long timeoutMs = 30000;
+            private long idleTimeoutMs = 60000;
+            private String heloName = "localhost";
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public int getIoThreads() {
+                return ioThreads;
+            }
+
+            public void setIoThreads(int ioThreads) {
+                this.ioThreads = ioThreads;
+            }
+
+            public int getMaxConnectionsPerAccount() {
+                return maxConnectionsPerAccount;
+            }
+
+            public void setMaxConnectionsPerAccount(int maxConnectionsPerAccount) {
+                this.maxConnectionsPerAccount = maxConnectionsPerAccount;
+            }
+
+            public int getTlsThreads() {
+                return tlsThreads;
+            }
+
+            public void setTlsThreads(int tlsThreads) {
+                this.tlsThreads = tlsThreads;
+            }
+
+            public long getTimeoutMs() {
+                return timeoutMs;
+            }
+
+            public void setTimeoutMs(long timeoutMs) {
+                this.timeoutMs = timeoutMs;
+            }
+
+            public long getIdleTimeoutMs() {
+                return idleTimeoutMs;
+            }
+
+            public void setIdleTimeoutMs(long idleTimeoutMs) {
+                this.idleTimeoutMs = idleTimeoutMs;
+            }
+
+            public String getHeloName() {
+                return heloName;
+            }
+
+            public void setHeloName(String heloName) {
+                this.heloName = heloName;
+            }
         }
     }
 
@@ -110,4 +230,209 @@ public class AppProperties {
             this.defaultPerMinute = defaultPerMinute;
         }
     }
+
+    public static class Tracking {
+        private boolean openEnabled = false;
+        private boolean clickEnabled = false;
+        private boolean unsubscribeEnabled = false;
+        private String baseUrl;
+        private String secret;
+        private int maxPending = 200_000;
+        private int dedupeCapacity = 500_000;
+
+        public boolean isOpenEnabled() {
+            return openEnabled;
+        }
+
+        public void setOpenEnabled(boolean openEnabled) {
+            this.openEnabled = openEnabled;
+        }
+
+        public boolean isClickEnabled() {
+            return clickEnabled;
+        }
+
+        public void setClickEnabled(boolean clickEnabled) {
+            this.clickEnabled = clickEnabled;
+        }
+
+        public boolean isUnsubscribeEnabled() {
+            return unsubscribeEnabled;
+        }
+
+        public void setUnsubscribeEnabled(boolean unsubscribeEnabled) {
+            this.unsubscribeEnabled = unsubscribeEnabled;
+        }
+
+        public String getBaseUrl() {
+            return baseUrl;
+        }
+
+        public void setBaseUrl(String baseUrl) {
+            this.baseUrl = baseUrl;
+        }
+
+        public String getSecret() {
+            return secret;
+        }
+
+        public void setSecret(String secret) {
+            this.secret = secret;
+        }
+
+        public int getMaxPending() {
+            return maxPending;
+        }
+
+        public void setMaxPending(int maxPending) {
+            this.maxPending = maxPending;
+        }
+
+        public int getDedupeCapacity() {
+            return dedupeCapacity;
+        }
+
+        public void setDedupeCapacity(int dedupeCapacity) {
+            this.dedupeCapacity = dedupeCapacity;
+        }
+    }
+
+    public static class Webhooks {
+        private int queueCapacity = 10_000;
+        private int dedupeCapacity = 100_000;
+        // SNS topics allowed to post to the SES webhook; deliveries from any other topic are rejected.
+        private List<String> snsTopicArns = List.of();
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+
+        public int getDedupeCapacity() {
+            return dedupeCapacity;
+        }
+
+        public void setDedupeCapacity(int dedupeCapacity) {
+            this.dedupeCapacity = dedupeCapacity;
+        }
+
+        public List<String> getSnsTopicArns() {
+            return snsTopicArns;
+        }
+
+        public void setSnsTopicArns(List<String> snsTopicArns) {
+            this.snsTopicArns = snsTopicArns;
+        }
+    }
+
+    public static class Expansion {
+        // "sql" inserts with one statement; "streaming" filters rows in the application on the way through.
+        private String mode = "sql";
+        private int batchSize = 1000;
+        private int fetchSize = 1000;
+        private int chunkSize = 5000;
+        private int jobThreads = 2;
+        // A RUNNING job whose heartbeat is older than this is assumed dead and resumed by another worker.
+        private long staleAfterMs = 300_000;
+        // Pipelined jobs let sending start on committed chunks and pause while this many recipients are queued.
+        private boolean pipelined = true;
+        private int maxQueuedAhead = 20_000;
+        private long backpressureWaitMs = 1000;
+
+        public String getMode() {
+            return mode;
+        }
+
+        public void setMode(String mode) {
+            this.mode = mode;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public int getFetchSize() {
+            return fetchSize;
+        }
+
+        public void setFetchSize(int fetchSize) {
+            this.fetchSize = fetchSize;
+        }
+
+        public int getChunkSize() {
+            return chunkSize;
+        }
+
+        public void setChunkSize(int chunkSize) {
+            this.chunkSize = chunkSize;
+        }
+
+        public int getJobThreads() {
+            return jobThreads;
+        }
+
+        public void setJobThreads(int jobThreads) {
+            this.jobThreads = jobThreads;
+        }
+
+        public long getStaleAfterMs() {
+            return staleAfterMs;
+        }
+
+        public void setStaleAfterMs(long staleAfterMs) {
+            this.staleAfterMs = staleAfterMs;
+        }
+
+        public boolean isPipelined() {
+            return pipelined;
+        }
+
+        public void setPipelined(boolean pipelined) {
+            this.pipelined = pipelined;
+        }
+
+        public int getMaxQueuedAhead() {
+            return maxQueuedAhead;
+        }
+
+        public void setMaxQueuedAhead(int maxQueuedAhead) {
+            this.maxQueuedAhead = maxQueuedAhead;
+        }
+
+        public long getBackpressureWaitMs() {
+            return backpressureWaitMs;
+        }
+
+        public void setBackpressureWaitMs(long backpressureWaitMs) {
+            this.backpressureWaitMs = backpressureWaitMs;
+        }
+    }
+
+    public static class AudienceIndex {
+        private boolean enabled = true;
+        private long rebuildMs = 300_000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getRebuildMs() {
+            return rebuildMs;
+        }
+
+        public void setRebuildMs(long rebuildMs) {
+            this.rebuildMs = rebuildMs;
+        }
+    }
 }
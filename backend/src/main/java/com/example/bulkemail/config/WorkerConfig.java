@@ -3,6 +3,8 @@ package com.example.bulkemail.config;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableScheduling;
 
+// Scheduled jobs run on the pool sized by spring.task.scheduling.pool.size (SCHEDULER_POOL_SIZE). A job never
+// overlaps itself, but with the default single thread every job would queue behind SendWorker's send batch.
 @Configuration
 @EnableScheduling
 public class WorkerConfig {
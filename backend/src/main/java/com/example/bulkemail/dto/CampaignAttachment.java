@@ -9,6 +9,7 @@ public class CampaignAttachment {
     private String id;
     private String originalName;
     private String storedName;
+    private String sha256;
     private long size;
     private String contentType;
     private Instant uploadedAt;
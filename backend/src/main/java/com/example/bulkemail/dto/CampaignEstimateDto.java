@@ -0,0 +1,33 @@
+package com.example.bulkemail.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.time.Instant;
+
+@Data
+public class CampaignEstimateDto {
+    @Schema(example = "42")
+    private Long campaignId;
+
+    @Schema(example = "2512")
+    private long remaining;
+
+    @Schema(example = "480.5")
+    private double currentRatePerMinute;
+
+    @Schema(example = "500.0")
+    private double projectedRatePerMinute;
+
+    @Schema(example = "THROTTLE")
+    private String bottleneck;
+
+    @Schema(example = "2024-05-01T10:00:00Z")
+    private Instant startsAt;
+
+    @Schema(example = "2024-05-01T10:15:30Z")
+    private Instant estimatedCompletionAt;
+
+    @Schema(example = "true")
+    private boolean completesWithinWindow;
+}
@@ -0,0 +1,30 @@
+package com.example.bulkemail.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.time.Instant;
+
+@Data
+public class CampaignProgressDto {
+    @Schema(example = "42")
+    private Long campaignId;
+
+    @Schema(example = "2500")
+    private long queued;
+
+    @Schema(example = "2000")
+    private long sent;
+
+    @Schema(example = "50")
+    private long failed;
+
+    @Schema(example = "12")
+    private long retry;
+
+    @Schema(example = "480.5")
+    private double ratePerMinute;
+
+    @Schema(example = "2024-05-01T10:15:30Z")
+    private Instant estimatedCompletionAt;
+}
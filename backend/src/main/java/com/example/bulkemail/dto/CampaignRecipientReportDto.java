@@ -13,4 +13,5 @@ public class CampaignRecipientReportDto {
     private String lastError;
     private Integer retryCount;
     private Instant updatedAt;
+    private Instant firstOpenedAt;
 }
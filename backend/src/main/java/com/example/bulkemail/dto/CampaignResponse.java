@@ -45,4 +45,6 @@ public class CampaignResponse {
     private Instant createdAt;
 
     private Instant updatedAt;
+
+    private CampaignEstimateDto estimate;
 }
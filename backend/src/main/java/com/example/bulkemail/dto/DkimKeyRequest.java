@@ -0,0 +1,26 @@
+package com.example.bulkemail.dto;
+
+import com.example.bulkemail.entity.DkimAlgorithm;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+@Data
+public class DkimKeyRequest {
+    @Schema(example = "betopiagroup.com")
+    @NotBlank
+    private String domain;
+
+    @Schema(example = "mail2024")
+    @NotBlank
+    private String selector;
+
+    @Schema(example = "RSA_SHA256")
+    @NotNull
+    private DkimAlgorithm algorithm;
+
+    @Schema(description = "PKCS#8 private key in PEM format")
+    @NotBlank
+    private String privateKeyPem;
+}
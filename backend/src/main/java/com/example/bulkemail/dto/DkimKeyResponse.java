@@ -0,0 +1,23 @@
+package com.example.bulkemail.dto;
+
+import com.example.bulkemail.entity.DkimAlgorithm;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.time.Instant;
+
+@Data
+public class DkimKeyResponse {
+    @Schema(example = "3")
+    private Long id;
+
+    @Schema(example = "betopiagroup.com")
+    private String domain;
+
+    @Schema(example = "mail2024")
+    private String selector;
+
+    private DkimAlgorithm algorithm;
+
+    private Instant createdAt;
+}
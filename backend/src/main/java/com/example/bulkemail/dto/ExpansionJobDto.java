@@ -0,0 +1,32 @@
+package com.example.bulkemail.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.time.Instant;
+
+@Data
+public class ExpansionJobDto {
+    @Schema(example = "12")
+    private Long jobId;
+
+    @Schema(example = "7")
+    private Long campaignId;
+
+    @Schema(example = "RUNNING")
+    private String status;
+
+    @Schema(example = "85000")
+    private long matched;
+
+    @Schema(example = "84210")
+    private long inserted;
+
+    @Schema(example = "42.5")
+    private double percent;
+
+    private Instant createdAt;
+    private Instant startedAt;
+    private Instant finishedAt;
+    private String error;
+}
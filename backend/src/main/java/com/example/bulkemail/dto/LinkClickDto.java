@@ -0,0 +1,19 @@
+package com.example.bulkemail.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+@Data
+public class LinkClickDto {
+    @Schema(example = "0")
+    private int linkIndex;
+
+    @Schema(example = "https://intranet.example.com/benefits")
+    private String url;
+
+    @Schema(example = "340")
+    private long clicks;
+
+    @Schema(example = "295")
+    private long uniqueClicks;
+}
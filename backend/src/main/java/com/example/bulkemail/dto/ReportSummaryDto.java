@@ -13,4 +13,13 @@ public class ReportSummaryDto {
 
     @Schema(example = "50")
     private long failed;
+
+    @Schema(example = "1200")
+    private long opened;
+
+    @Schema(example = "1850")
+    private long opens;
+
+    @Schema(example = "410")
+    private long clicked;
 }
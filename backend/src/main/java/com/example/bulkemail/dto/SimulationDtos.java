@@ -0,0 +1,100 @@
+package com.example.bulkemail.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import lombok.Data;
+
+import java.time.Instant;
+import java.util.List;
+
+public class SimulationDtos {
+    @Data
+    public static class SimulationRequest {
+        @Schema(description = "Audiences to simulate when the campaign has not been expanded yet; defaults to its linked audiences",
+                example = "[1,2]")
+        private List<Long> audienceIds;
+
+        @Min(1)
+        @Max(60000)
+        @Schema(description = "SMTP latency per message; defaults to the observed latency of the account, else 200 ms",
+                example = "250")
+        private Integer latencyMs;
+
+        @Min(1)
+        @Max(720)
+        @Schema(example = "168")
+        private Integer horizonHours;
+
+        @Schema(description = "Include recipients already queued by other active campaigns", example = "true")
+        private boolean includeActiveCampaigns = true;
+    }
+
+    @Data
+    public static class SimulationResponse {
+        @Schema(example = "42")
+        private Long campaignId;
+
+        @Schema(example = "400000")
+        private long recipients;
+
+        @Schema(example = "1200")
+        private long competingRecipients;
+
+        private Instant simulatedStart;
+
+        private Instant simulatedEnd;
+
+        @Schema(description = "When the campaign's last queued recipient was claimed; null if not within the horizon")
+        private Instant completedAt;
+
+        @Schema(example = "3600")
+        private Long durationSeconds;
+
+        @Schema(example = "399500")
+        private long sent;
+
+        @Schema(description = "Recipients rejected by the throttle and parked in RETRY", example = "500")
+        private long throttled;
+
+        @Schema(description = "Recipients still queued when the horizon ended", example = "0")
+        private long unsent;
+
+        @Schema(description = "Recipients sent outside the campaign send window", example = "0")
+        private long outsideWindow;
+
+        @Schema(example = "2000")
+        private long polls;
+
+        @Schema(description = "Poll slots spent on rows of campaigns that were not due yet", example = "0")
+        private long idleSlots;
+
+        @Schema(example = "THROTTLE")
+        private String bottleneck;
+
+        private List<String> findings;
+
+        private List<AccountLoad> accounts;
+
+        private List<TimelinePoint> timeline;
+    }
+
+    @Data
+    public static class AccountLoad {
+        private Long smtpAccountId;
+        private String name;
+        private int throttlePerMinute;
+        private long sent;
+        private long throttled;
+        private long peakPerMinute;
+        private long saturatedMinutes;
+        private long activeMinutes;
+    }
+
+    @Data
+    public static class TimelinePoint {
+        private Instant at;
+        private long sent;
+        private long throttled;
+    }
+}
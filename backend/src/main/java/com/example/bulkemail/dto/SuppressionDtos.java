@@ -0,0 +1,80 @@
+package com.example.bulkemail.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotBlank;
+import lombok.Data;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+public class SuppressionDtos {
+    @Data
+    public static class ImportStatus {
+        @Schema(example = "5f0c6f0e-3a5e-4c0b-9a8e-1f3f2a9c7d11")
+        private String jobId;
+
+        @Schema(example = "RUNNING")
+        private String status;
+
+        private String fileName;
+
+        @Schema(example = "CSV")
+        private String format;
+
+        @Schema(example = "62914560")
+        private long totalBytes;
+
+        @Schema(example = "31457280")
+        private long bytesRead;
+
+        @Schema(example = "50.0")
+        private double percent;
+
+        @Schema(example = "1000000")
+        private long rowsRead;
+
+        @Schema(example = "998750")
+        private long accepted;
+
+        @Schema(example = "1250")
+        private long rejected;
+
+        @Schema(example = "2500")
+        private long duplicates;
+
+        @Schema(example = "990000")
+        private long inserted;
+
+        @Schema(example = "6250")
+        private long alreadySuppressed;
+
+        private List<RejectedRow> rejectedSamples = new ArrayList<>();
+        private Instant startedAt;
+        private Instant finishedAt;
+        private String error;
+    }
+
+    @Data
+    public static class RuleRequest {
+        @NotBlank
+        @Schema(example = "*.legacy.example.com")
+        private String pattern;
+
+        @NotBlank
+        @Schema(example = "Domain decommissioned")
+        private String reason;
+    }
+
+    @Data
+    public static class RejectedRow {
+        @Schema(example = "42")
+        private long line;
+
+        @Schema(example = "not-an-address")
+        private String value;
+
+        @Schema(example = "missing @")
+        private String reason;
+    }
+}
@@ -25,4 +25,6 @@ public class Audience {
 
     @Column(nullable = false)
     private Instant createdAt;
+
+    private Instant membersRefreshedAt;
 }
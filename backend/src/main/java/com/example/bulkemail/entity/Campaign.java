@@ -63,4 +63,8 @@ public class Campaign {
     private Instant createdAt;
 
     private Instant updatedAt;
+
+    // Incremented in bulk by OpenTrackingService; never part of entity updates.
+    @Column(insertable = false, updatable = false)
+    private long openCount;
 }
@@ -0,0 +1,33 @@
+package com.example.bulkemail.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Instant;
+
+// Rows are inserted in JDBC batches by ClickTrackingService; the entity is used for reporting.
+@Entity
+@Table(name = "campaign_clicks")
+@Getter
+@Setter
+public class CampaignClick {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long campaignId;
+
+    @Column(nullable = false)
+    private Long recipientId;
+
+    @Column(nullable = false)
+    private int linkIndex;
+
+    @Column(nullable = false, columnDefinition = "text")
+    private String url;
+
+    @Column(nullable = false)
+    private Instant clickedAt;
+}
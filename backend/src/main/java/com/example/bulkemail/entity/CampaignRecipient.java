@@ -24,6 +24,8 @@ public class CampaignRecipient {
 
     private String fullName;
 
+    private String department;
+
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
     private RecipientStatus status;
@@ -36,4 +38,8 @@ public class CampaignRecipient {
 
     @Column(nullable = false)
     private Instant updatedAt;
+
+    // Written only by OpenTrackingService's bulk flush; never part of entity updates.
+    @Column(insertable = false, updatable = false)
+    private Instant firstOpenedAt;
 }
@@ -0,0 +1,22 @@
+package com.example.bulkemail.entity;
+
+public enum DkimAlgorithm {
+    RSA_SHA256("rsa-sha256", "RSA"),
+    ED25519_SHA256("ed25519-sha256", "Ed25519");
+
+    private final String tag;
+    private final String keyAlgorithm;
+
+    DkimAlgorithm(String tag, String keyAlgorithm) {
+        this.tag = tag;
+        this.keyAlgorithm = keyAlgorithm;
+    }
+
+    public String getTag() {
+        return tag;
+    }
+
+    public String getKeyAlgorithm() {
+        return keyAlgorithm;
+    }
+}
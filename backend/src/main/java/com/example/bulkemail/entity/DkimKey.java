@@ -0,0 +1,33 @@
+package com.example.bulkemail.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Instant;
+
+@Entity
+@Table(name = "dkim_keys")
+@Getter
+@Setter
+public class DkimKey {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, unique = true)
+    private String domain;
+
+    @Column(nullable = false)
+    private String selector;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private DkimAlgorithm algorithm;
+
+    @Column(nullable = false, columnDefinition = "text")
+    private String privateKeyPem;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+}
@@ -0,0 +1,57 @@
+package com.example.bulkemail.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Instant;
+
+// Created through JPA; progress, checkpoint and ownership columns are written with JDBC by ExpansionJobService.
+@Entity
+@Table(name = "expansion_jobs")
+@Getter
+@Setter
+public class ExpansionJob {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long campaignId;
+
+    // Comma-separated audience ids.
+    @Column(nullable = false)
+    private String audienceIds;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private ExpansionJobStatus status;
+
+    // Highest employee id whose chunk is committed; null until the previous recipients have been cleared.
+    private Long lastEmployeeId;
+
+    @Column(nullable = false)
+    private long maxEmployeeId;
+
+    @Column(nullable = false)
+    private long matched;
+
+    @Column(nullable = false)
+    private long inserted;
+
+    private String owner;
+
+    private Instant heartbeatAt;
+
+    private String requestedBy;
+
+    @Column(columnDefinition = "text")
+    private String error;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    private Instant startedAt;
+
+    private Instant finishedAt;
+}
@@ -0,0 +1,9 @@
+package com.example.bulkemail.entity;
+
+public enum ExpansionJobStatus {
+    QUEUED,
+    RUNNING,
+    COMPLETED,
+    FAILED,
+    CANCELLED
+}
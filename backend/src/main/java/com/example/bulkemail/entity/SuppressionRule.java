@@ -0,0 +1,28 @@
+package com.example.bulkemail.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Instant;
+
+@Entity
+@Table(name = "suppression_rules")
+@Getter
+@Setter
+public class SuppressionRule {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, unique = true)
+    private String pattern;
+
+    @Column(nullable = false)
+    private String reason;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    private String createdBy;
+}
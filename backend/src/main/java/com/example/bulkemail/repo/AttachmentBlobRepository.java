@@ -0,0 +1,30 @@
+package com.example.bulkemail.repo;
+
+import com.example.bulkemail.entity.AttachmentBlob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface AttachmentBlobRepository extends JpaRepository<AttachmentBlob, String> {
+    @Modifying
+    @Query(value = "insert into attachment_blobs (sha256, size, ref_count, created_at) values (?1, ?2, 0, ?3) "
+            + "on conflict (sha256) do update set created_at = excluded.created_at", nativeQuery = true)
+    int register(String sha256, long size, Instant createdAt);
+
+    @Modifying
+    @Query("update AttachmentBlob b set b.refCount = b.refCount + 1 where b.sha256 = ?1")
+    int acquire(String sha256);
+
+    @Modifying
+    @Query("update AttachmentBlob b set b.refCount = b.refCount - 1 where b.sha256 = ?1 and b.refCount > 0")
+    int release(String sha256);
+
+    @Modifying
+    @Query("delete from AttachmentBlob b where b.sha256 = ?1 and b.refCount <= 0 and b.createdAt < ?2")
+    int deleteIfUnreferenced(String sha256, Instant registeredBefore);
+
+    List<AttachmentBlob> findByRefCountLessThanEqualAndCreatedAtBefore(int refCount, Instant createdAt);
+}
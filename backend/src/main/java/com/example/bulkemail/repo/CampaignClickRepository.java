@@ -0,0 +1,16 @@
+package com.example.bulkemail.repo;
+
+import com.example.bulkemail.entity.CampaignClick;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
+
+public interface CampaignClickRepository extends JpaRepository<CampaignClick, Long> {
+    @Query("select c.linkIndex, c.url, count(c), count(distinct c.recipientId) from CampaignClick c "
+            + "where c.campaignId = ?1 group by c.linkIndex, c.url order by c.linkIndex")
+    List<Object[]> summarizeByLink(Long campaignId);
+
+    @Query("select count(distinct c.recipientId) from CampaignClick c where c.campaignId = ?1")
+    long countDistinctRecipients(Long campaignId);
+}
@@ -16,6 +16,14 @@ public interface CampaignRecipientRepository extends JpaRepository<CampaignRecip
 
     long countByCampaignIdAndStatus(Long campaignId, RecipientStatus status);
 
+    long countByCampaignIdAndFirstOpenedAtIsNotNull(Long campaignId);
+
+    @Query("select cr.campaign.id, count(cr) from CampaignRecipient cr where cr.status in ?1 and cr.campaign.status in ?2 group by cr.campaign.id")
+    List<Object[]> countByStatusesGroupedByCampaign(List<RecipientStatus> statuses, List<com.example.bulkemail.entity.CampaignStatus> campaignStatuses);
+
+    @Query("select cr.status, count(cr) from CampaignRecipient cr where cr.campaign.id = ?1 group by cr.status")
+    List<Object[]> countByCampaignIdGroupedByStatus(Long campaignId);
+
     void deleteByCampaignId(Long campaignId);
 
     List<CampaignRecipient> findByCampaignId(Long campaignId);
@@ -3,8 +3,10 @@ package com.example.bulkemail.repo;
 import com.example.bulkemail.entity.Campaign;
 import com.example.bulkemail.entity.CampaignStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 import java.util.List;
+import java.util.Optional;
 
 public interface CampaignRepository extends JpaRepository<Campaign, Long> {
     List<Campaign> findByStatusIn(List<CampaignStatus> statuses);
@@ -12,4 +14,9 @@ public interface CampaignRepository extends JpaRepository<Campaign, Long> {
     long countBySmtpAccount_Id(Long smtpAccountId);
 
     long countBySenderIdentity_Id(Long senderIdentityId);
+
+    // Current status, with the row locked until the transaction ends. Completion checks take this lock first,
+    // so the send worker and the expansion job never both see the other's work as still in flight.
+    @Query(value = "select status from campaigns where id = ?1 for update", nativeQuery = true)
+    Optional<String> lockStatus(Long id);
 }
@@ -0,0 +1,10 @@
+package com.example.bulkemail.repo;
+
+import com.example.bulkemail.entity.DkimKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.Optional;
+
+public interface DkimKeyRepository extends JpaRepository<DkimKey, Long> {
+    Optional<DkimKey> findByDomainIgnoreCase(String domain);
+}
@@ -0,0 +1,16 @@
+package com.example.bulkemail.repo;
+
+import com.example.bulkemail.entity.ExpansionJob;
+import com.example.bulkemail.entity.ExpansionJobStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface ExpansionJobRepository extends JpaRepository<ExpansionJob, Long> {
+    Optional<ExpansionJob> findFirstByCampaignIdOrderByIdDesc(Long campaignId);
+
+    Optional<ExpansionJob> findByIdAndCampaignId(Long id, Long campaignId);
+
+    boolean existsByCampaignIdAndStatusIn(Long campaignId, List<ExpansionJobStatus> statuses);
+}
@@ -1,11 +1,17 @@
 package com.example.bulkemail.repo;
 
 import com.example.bulkemail.entity.SuppressionList;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface SuppressionListRepository extends JpaRepository<SuppressionList, Long> {
     Optional<SuppressionList> findByEmail(String email);
     void deleteByEmail(String email);
+
+    List<SuppressionList> findByEmailGreaterThanOrderByEmailAsc(String after, Limit limit);
+
+    List<SuppressionList> findByEmailStartingWithAndEmailGreaterThanOrderByEmailAsc(String prefix, String after, Limit limit);
 }
@@ -0,0 +1,17 @@
+package com.example.bulkemail.repo;
+
+import com.example.bulkemail.entity.SuppressionRule;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface SuppressionRuleRepository extends JpaRepository<SuppressionRule, Long> {
+    Optional<SuppressionRule> findByPattern(String pattern);
+
+    List<SuppressionRule> findAllByOrderByPatternAsc();
+
+    @Query("select r.pattern from SuppressionRule r")
+    List<String> findAllPatterns();
+}
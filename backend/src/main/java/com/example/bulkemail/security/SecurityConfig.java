@@ -22,7 +22,9 @@ public class SecurityConfig {
                                 "/actuator/health",
                                 "/api/webhooks/**",
                                 "/api/auth/**",
-                                "/public/auth/**"
+                                "/public/auth/**",
+                                "/public/track/**",
+                                "/public/unsubscribe/**"
                         ).permitAll()
                         .anyRequest().authenticated())
                 .oauth2ResourceServer(oauth2 -> oauth2
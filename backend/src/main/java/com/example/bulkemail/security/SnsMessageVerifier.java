@@ -0,0 +1,163 @@
+package com.example.bulkemail.security;
+
+import com.example.bulkemail.config.AppProperties;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+// Authenticates Amazon SNS HTTP deliveries before anything is queued. The topic must be listed in
+// app.webhooks.sns-topic-arns, the signing certificate must be served over HTTPS by an SNS host, and the
+// signature (version 1 is SHA1withRSA, version 2 SHA256withRSA) must match the string SNS signs for the
+// message type. Keys are cached by certificate URL; SNS signs with the same certificate for months.
+@Component
+public class SnsMessageVerifier {
+    private static final Logger logger = LoggerFactory.getLogger(SnsMessageVerifier.class);
+    private static final Pattern CERTIFICATE_HOST = Pattern.compile("sns\\.[a-z0-9-]+\\.amazonaws\\.com(\\.cn)?");
+    private static final List<String> NOTIFICATION_KEYS =
+            List.of("Message", "MessageId", "Subject", "Timestamp", "TopicArn", "Type");
+    private static final List<String> CONFIRMATION_KEYS =
+            List.of("Message", "MessageId", "SubscribeURL", "Timestamp", "Token", "TopicArn", "Type");
+    private static final int KEY_CACHE_SIZE = 16;
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    private final ObjectMapper objectMapper;
+    private final Set<String> topicArns;
+    private final HttpClient httpClient = HttpClient.newBuilder().connectTimeout(TIMEOUT).build();
+    private final Map<String, PublicKey> keys = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, PublicKey> eldest) {
+            return size() > KEY_CACHE_SIZE;
+        }
+    });
+
+    public SnsMessageVerifier(ObjectMapper objectMapper, AppProperties appProperties) {
+        this.objectMapper = objectMapper;
+        List<String> configured = appProperties.getWebhooks().getSnsTopicArns();
+        this.topicArns = configured == null ? Set.of() : configured.stream()
+                .map(String::trim)
+                .filter(arn -> !arn.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+        if (topicArns.isEmpty()) {
+            logger.warn("app.webhooks.sns-topic-arns is empty; every SES webhook delivery will be rejected");
+        }
+    }
+
+    // True when the payload is an SNS message that SNS signed for an allowed topic.
+    public boolean verify(String payload) {
+        JsonNode message;
+        try {
+            message = objectMapper.readTree(payload);
+        } catch (JsonProcessingException e) {
+            return reject("payload is not JSON");
+        }
+        if (message == null || !message.isObject()) {
+            return reject("payload is not an SNS message");
+        }
+        String topicArn = message.path("TopicArn").asText("");
+        if (!topicArns.contains(topicArn)) {
+            return reject("topic " + topicArn + " is not allowed");
+        }
+        List<String> signedKeys = switch (message.path("Type").asText("")) {
+            case "Notification" -> NOTIFICATION_KEYS;
+            case "SubscriptionConfirmation", "UnsubscribeConfirmation" -> CONFIRMATION_KEYS;
+            default -> null;
+        };
+        if (signedKeys == null) {
+            return reject("unknown message type " + message.path("Type").asText(""));
+        }
+        String algorithm = switch (message.path("SignatureVersion").asText("")) {
+            case "1" -> "SHA1withRSA";
+            case "2" -> "SHA256withRSA";
+            default -> null;
+        };
+        if (algorithm == null) {
+            return reject("unsupported signature version " + message.path("SignatureVersion").asText(""));
+        }
+        StringBuilder signed = new StringBuilder();
+        for (String key : signedKeys) {
+            JsonNode value = message.get(key);
+            if (value == null || value.isNull()) {
+                // Subject is the only optional signed field.
+                if (key.equals("Subject")) {
+                    continue;
+                }
+                return reject("missing " + key);
+            }
+            signed.append(key).append('\n').append(value.asText()).append('\n');
+        }
+        try {
+            Signature signature = Signature.getInstance(algorithm);
+            signature.initVerify(key(message.path("SigningCertURL").asText("")));
+            signature.update(signed.toString().getBytes(StandardCharsets.UTF_8));
+            if (!signature.verify(Base64.getDecoder().decode(message.path("Signature").asText("")))) {
+                return reject("signature does not match");
+            }
+            return true;
+        } catch (IllegalArgumentException | GeneralSecurityException | IOException e) {
+            return reject(e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return reject("interrupted while fetching the signing certificate");
+        }
+    }
+
+    // Downloads and parses the signing certificate; package-private so tests can supply a key.
+    PublicKey download(URI uri) throws GeneralSecurityException, IOException, InterruptedException {
+        HttpResponse<byte[]> response = httpClient.send(HttpRequest.newBuilder(uri).timeout(TIMEOUT).GET().build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            throw new IOException("HTTP " + response.statusCode() + " fetching " + uri);
+        }
+        X509Certificate certificate = (X509Certificate) CertificateFactory.getInstance("X.509")
+                .generateCertificate(new ByteArrayInputStream(response.body()));
+        certificate.checkValidity();
+        return certificate.getPublicKey();
+    }
+
+    private PublicKey key(String url) throws GeneralSecurityException, IOException, InterruptedException {
+        PublicKey cached = keys.get(url);
+        if (cached != null) {
+            return cached;
+        }
+        URI uri = URI.create(url);
+        String host = uri.getHost() == null ? "" : uri.getHost().toLowerCase(Locale.ROOT);
+        if (!"https".equals(uri.getScheme()) || !CERTIFICATE_HOST.matcher(host).matches()
+                || uri.getPath() == null || !uri.getPath().endsWith(".pem")) {
+            throw new IllegalArgumentException("signing certificate " + url + " is not served by SNS");
+        }
+        PublicKey key = download(uri);
+        keys.put(url, key);
+        return key;
+    }
+
+    private static boolean reject(String reason) {
+        logger.warn("Rejected SNS webhook delivery: {}", reason);
+        return false;
+    }
+}
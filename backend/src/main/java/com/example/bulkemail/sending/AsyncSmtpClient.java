@@ -0,0 +1,479 @@
+package com.example.bulkemail.sending;
+
+import com.example.bulkemail.config.AppProperties;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousChannelGroup;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Plain-text SMTP client on NIO.2 asynchronous channels. A few I/O threads drive every session, and
+// each endpoint keeps a bounded pool of connections that are reused across messages,
+// so in-flight sends are limited by connections rather than threads. When the server advertises PIPELINING
+// (RFC 2920), MAIL, RCPT and DATA go out in one write and the envelope costs one round trip instead of three.
+@Component
+public class AsyncSmtpClient {
+    private static final Logger logger = LoggerFactory.getLogger(AsyncSmtpClient.class);
+    private static final int READ_BUFFER_SIZE = 16 * 1024;
+
+    private final AsynchronousChannelGroup group;
+    private final String heloName;
+    private final int maxConnections;
+    private final long timeoutMs;
+    private final long idleTimeoutMs;
+    private final Map<Endpoint, Pool> pools = new ConcurrentHashMap<>();
+
+    public AsyncSmtpClient(AppProperties appProperties) throws IOException {
+        AppProperties.Sending.Async async = appProperties.getSending().getAsync();
+        AtomicInteger threadIds = new AtomicInteger();
+        this.group = AsynchronousChannelGroup.withFixedThreadPool(async.getIoThreads(), runnable -> {
+            Thread thread = new Thread(runnable, "smtp-io-" + threadIds.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.heloName = async.getHeloName();
+        this.maxConnections = async.getMaxConnectionsPerAccount();
+        this.timeoutMs = async.getTimeoutMs();
+        this.idleTimeoutMs = async.getIdleTimeoutMs();
+    }
+
+    // Completes with the final reply code of the DATA transaction, or fails with SmtpReplyException
+    // when the server rejects the message and with an IOException when the connection breaks.
+    public CompletableFuture<Integer> send(Endpoint endpoint, String from, String to, byte[] data) {
+        Pool pool = pools.computeIfAbsent(endpoint, Pool::new);
+        return pool.acquire().thenCompose(session -> session.transaction(from, to, data)
+                .whenComplete((code, error) -> pool.release(session, error == null
+                        || unwrap(error) instanceof SmtpReplyException && session.isOpen()))
+                .exceptionallyCompose(error -> {
+                    // A pooled connection the server dropped while idle fails before any data is sent;
+                    // that is safe to retry once on a fresh connection.
+                    if (session.isReused() && !session.isDataStarted() && !(unwrap(error) instanceof SmtpReplyException)) {
+                        return pool.acquire().thenCompose(fresh -> fresh.transaction(from, to, data)
+                                .whenComplete((code, retryError) -> pool.release(fresh, retryError == null
+                                        || unwrap(retryError) instanceof SmtpReplyException && fresh.isOpen())));
+                    }
+                    return CompletableFuture.failedFuture(unwrap(error));
+                }));
+    }
+
+    @Scheduled(fixedDelay = 30_000)
+    public void closeIdleConnections() {
+        long cutoff = System.currentTimeMillis() - idleTimeoutMs;
+        for (Pool pool : pools.values()) {
+            pool.closeIdleBefore(cutoff);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException {
+        group.shutdownNow();
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    // Unauthenticated relays only: the channel is never encrypted, so AUTH credentials are not supported here.
+    public record Endpoint(String host, int port) {
+        @Override
+        public String toString() {
+            return host + ":" + port;
+        }
+    }
+
+    public static class SmtpReplyException extends IOException {
+        private final int code;
+
+        public SmtpReplyException(int code, String message) {
+            super(code + " " + message);
+            this.code = code;
+        }
+
+        public int getCode() {
+            return code;
+        }
+    }
+
+    private record Reply(int code, List<String> lines) {
+        String text() {
+            return String.join("; ", lines);
+        }
+    }
+
+    private final class Pool {
+        private final Endpoint endpoint;
+        private final Deque<Session> idle = new ArrayDeque<>();
+        private final Deque<CompletableFuture<Session>> waiters = new ArrayDeque<>();
+        private int open;
+
+        private Pool(Endpoint endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        CompletableFuture<Session> acquire() {
+            synchronized (this) {
+                Session session;
+                while ((session = idle.pollFirst()) != null) {
+                    if (session.isOpen()) {
+                        return CompletableFuture.completedFuture(session.reuse());
+                    }
+                    open--;
+                }
+                if (open >= maxConnections) {
+                    CompletableFuture<Session> waiter = new CompletableFuture<>();
+                    waiters.addLast(waiter);
+                    return waiter;
+                }
+                open++;
+            }
+            CompletableFuture<Session> target = new CompletableFuture<>();
+            connect(target);
+            return target;
+        }
+
+        void release(Session session, boolean reusable) {
+            CompletableFuture<Session> next;
+            synchronized (this) {
+                next = waiters.pollFirst();
+                if (next == null) {
+                    if (reusable) {
+                        idle.addFirst(session.idle());
+                    } else {
+                        open--;
+                    }
+                }
+            }
+            if (!reusable) {
+                session.close();
+            }
+            if (next != null) {
+                if (reusable) {
+                    next.complete(session.reuse());
+                } else {
+                    connect(next);
+                }
+            }
+        }
+
+        void closeIdleBefore(long cutoff) {
+            List<Session> expired = new ArrayList<>();
+            synchronized (this) {
+                idle.removeIf(session -> {
+                    if (session.idleSince() < cutoff || !session.isOpen()) {
+                        expired.add(session);
+                        open--;
+                        return true;
+                    }
+                    return false;
+                });
+            }
+            expired.forEach(Session::quit);
+        }
+
+        // The caller has already counted the connection slot. If connecting fails, the slot passes to
+        // the next waiter so that a queue of sends never outlives the connections that could serve it.
+        private void connect(CompletableFuture<Session> target) {
+            Session.open(AsyncSmtpClient.this, endpoint).whenComplete((session, error) -> {
+                if (error == null) {
+                    target.complete(session);
+                    return;
+                }
+                CompletableFuture<Session> next;
+                synchronized (this) {
+                    next = waiters.pollFirst();
+                    if (next == null) {
+                        open--;
+                    }
+                }
+                target.completeExceptionally(unwrap(error));
+                if (next != null) {
+                    connect(next);
+                }
+            });
+        }
+    }
+
+    private static final class Session {
+        private final AsyncSmtpClient client;
+        private final AsynchronousSocketChannel channel;
+        private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        private boolean pipelining;
+        private boolean reused;
+        private boolean dataStarted;
+        private long idleSince;
+
+        private Session(AsyncSmtpClient client, AsynchronousSocketChannel channel) {
+            this.client = client;
+            this.channel = channel;
+        }
+
+        static CompletableFuture<Session> open(AsyncSmtpClient client, Endpoint endpoint) {
+            AsynchronousSocketChannel channel;
+            try {
+                channel = AsynchronousSocketChannel.open(client.group);
+            } catch (IOException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+            Session session = new Session(client, channel);
+            CompletableFuture<Void> connected = new CompletableFuture<>();
+            channel.connect(new InetSocketAddress(endpoint.host(), endpoint.port()), null,
+                    new CompletionHandler<Void, Void>() {
+                        @Override
+                        public void completed(Void result, Void attachment) {
+                            connected.complete(null);
+                        }
+
+                        @Override
+                        public void failed(Throwable error, Void attachment) {
+                            connected.completeExceptionally(error);
+                        }
+                    });
+            return connected.orTimeout(client.timeoutMs, TimeUnit.MILLISECONDS)
+                    .thenCompose(ignored -> session.readReply())
+                    .thenCompose(greeting -> expect(greeting, 220))
+                    .thenCompose(ignored -> session.command("EHLO " + client.heloName))
+                    .thenCompose(ehlo -> expect(ehlo, 250))
+                    .thenApply(ehlo -> {
+                        session.pipelining = ehlo.lines().stream().anyMatch("PIPELINING"::equalsIgnoreCase);
+                        return session;
+                    })
+                    .whenComplete((ignored, error) -> {
+                        if (error != null) {
+                            session.close();
+                        }
+                    });
+        }
+
+        CompletableFuture<Integer> transaction(String from, String to, byte[] data) {
+            dataStarted = false;
+            return envelope(from, to)
+                    .thenCompose(ignored -> {
+                        dataStarted = true;
+                        return write(ByteBuffer.wrap(data));
+                    })
+                    .thenCompose(ignored -> readReply())
+                    .thenCompose(reply -> expect(reply, 250))
+                    .thenApply(Reply::code)
+                    .exceptionallyCompose(error -> {
+                        Throwable cause = unwrap(error);
+                        if (cause instanceof SmtpReplyException && isOpen()) {
+                            // Clear the envelope so the connection can carry the next message.
+                            return command("RSET").handle((reply, resetError) -> {
+                                if (resetError != null || reply.code() != 250) {
+                                    close();
+                                }
+                                throw new CompletionException(cause);
+                            });
+                        }
+                        close();
+                        return CompletableFuture.failedFuture(cause);
+                    });
+        }
+
+        private CompletableFuture<Reply> envelope(String from, String to) {
+            String mail = "MAIL FROM:<" + from + ">";
+            String rcpt = "RCPT TO:<" + to + ">";
+            if (!pipelining) {
+                return command(mail)
+                        .thenCompose(reply -> expect(reply, 250))
+                        .thenCompose(ignored -> command(rcpt))
+                        .thenCompose(reply -> expect(reply, 250, 251))
+                        .thenCompose(ignored -> command("DATA"))
+                        .thenCompose(reply -> expect(reply, 354));
+            }
+            // All three replies are read before any is judged, so the connection stays in step for RSET.
+            return write(ByteBuffer.wrap((mail + "\r\n" + rcpt + "\r\nDATA\r\n").getBytes(StandardCharsets.UTF_8)))
+                    .thenCompose(ignored -> readReply())
+                    .thenCompose(mailReply -> readReply()
+                            .thenCompose(rcptReply -> readReply()
+                                    .thenCompose(dataReply -> {
+                                        boolean accepted = mailReply.code() == 250
+                                                && (rcptReply.code() == 250 || rcptReply.code() == 251);
+                                        if (accepted || dataReply.code() != 354) {
+                                            return expect(mailReply, 250)
+                                                    .thenCompose(reply -> expect(rcptReply, 250, 251))
+                                                    .thenCompose(reply -> expect(dataReply, 354));
+                                        }
+                                        // A server that opened DATA without a recipient gets an empty message
+                                        // it has no one to deliver to.
+                                        return command(".").thenCompose(reply -> expect(mailReply, 250)
+                                                .thenCompose(ignored -> expect(rcptReply, 250, 251)));
+                                    })));
+        }
+
+        private static CompletableFuture<Reply> expect(Reply reply, int... codes) {
+            for (int code : codes) {
+                if (reply.code() == code) {
+                    return CompletableFuture.completedFuture(reply);
+                }
+            }
+            return CompletableFuture.failedFuture(new SmtpReplyException(reply.code(), reply.text()));
+        }
+
+        private CompletableFuture<Reply> command(String line) {
+            return write(ByteBuffer.wrap((line + "\r\n").getBytes(StandardCharsets.UTF_8)))
+                    .thenCompose(ignored -> readReply());
+        }
+
+        private CompletableFuture<Void> write(ByteBuffer buffer) {
+            CompletableFuture<Void> result = new CompletableFuture<>();
+            writeRemaining(buffer, result);
+            return result;
+        }
+
+        private void writeRemaining(ByteBuffer buffer, CompletableFuture<Void> result) {
+            channel.write(buffer, client.timeoutMs, TimeUnit.MILLISECONDS, null, new CompletionHandler<Integer, Void>() {
+                @Override
+                public void completed(Integer written, Void attachment) {
+                    if (buffer.hasRemaining()) {
+                        writeRemaining(buffer, result);
+                    } else {
+                        result.complete(null);
+                    }
+                }
+
+                @Override
+                public void failed(Throwable error, Void attachment) {
+                    result.completeExceptionally(error);
+                }
+            });
+        }
+
+        private CompletableFuture<Reply> readReply() {
+            CompletableFuture<Reply> result = new CompletableFuture<>();
+            try {
+                Reply reply = parseReply();
+                if (reply != null) {
+                    result.complete(reply);
+                } else {
+                    readMore(result);
+                }
+            } catch (ProtocolException e) {
+                result.completeExceptionally(e);
+            }
+            return result;
+        }
+
+        private void readMore(CompletableFuture<Reply> result) {
+            channel.read(readBuffer, client.timeoutMs, TimeUnit.MILLISECONDS, null, new CompletionHandler<Integer, Void>() {
+                @Override
+                public void completed(Integer read, Void attachment) {
+                    if (read < 0) {
+                        result.completeExceptionally(new EOFException("SMTP server closed the connection"));
+                        return;
+                    }
+                    try {
+                        Reply reply = parseReply();
+                        if (reply != null) {
+                            result.complete(reply);
+                        } else {
+                            readMore(result);
+                        }
+                    } catch (ProtocolException e) {
+                        result.completeExceptionally(e);
+                    }
+                }
+
+                @Override
+                public void failed(Throwable error, Void attachment) {
+                    result.completeExceptionally(error);
+                }
+            });
+        }
+
+        // Returns the next complete (possibly multiline) reply in the buffer and compacts it away,
+        // or null when more input is needed.
+        private Reply parseReply() throws ProtocolException {
+            byte[] buffer = readBuffer.array();
+            int end = readBuffer.position();
+            int lineStart = 0;
+            List<String> lines = new ArrayList<>(1);
+            for (int i = 0; i + 1 < end; i++) {
+                if (buffer[i] != '\r' || buffer[i + 1] != '\n') {
+                    continue;
+                }
+                String line = new String(buffer, lineStart, i - lineStart, StandardCharsets.UTF_8);
+                if (line.length() < 3) {
+                    throw new ProtocolException("Malformed SMTP reply: " + line);
+                }
+                lines.add(line.length() > 4 ? line.substring(4) : "");
+                lineStart = i + 2;
+                i++;
+                if (line.length() == 3 || line.charAt(3) != '-') {
+                    int code;
+                    try {
+                        code = Integer.parseInt(line.substring(0, 3));
+                    } catch (NumberFormatException e) {
+                        throw new ProtocolException("Malformed SMTP reply: " + line);
+                    }
+                    readBuffer.flip();
+                    readBuffer.position(lineStart);
+                    readBuffer.compact();
+                    return new Reply(code, lines);
+                }
+            }
+            if (!readBuffer.hasRemaining()) {
+                throw new ProtocolException("SMTP reply exceeds " + READ_BUFFER_SIZE + " bytes");
+            }
+            return null;
+        }
+
+        boolean isOpen() {
+            return channel.isOpen();
+        }
+
+        boolean isReused() {
+            return reused;
+        }
+
+        boolean isDataStarted() {
+            return dataStarted;
+        }
+
+        long idleSince() {
+            return idleSince;
+        }
+
+        Session idle() {
+            idleSince = System.currentTimeMillis();
+            return this;
+        }
+
+        Session reuse() {
+            reused = true;
+            return this;
+        }
+
+        void quit() {
+            command("QUIT").whenComplete((reply, error) -> close());
+        }
+
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                logger.debug("SMTP connection close failed: {}", e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.bulkemail.sending;
+
+import com.example.bulkemail.dto.CampaignAttachment;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+// Keeps a transfer-encoded copy of each attachment next to the original so that per-message sends
+// only copy bytes instead of re-encoding the same file for every recipient. Spool files are written by a
+// background thread; a send that finds no spool file yet encodes on the fly and queues the spool.
+@Component
+public class AttachmentSpool {
+    private static final Logger logger = LoggerFactory.getLogger(AttachmentSpool.class);
+
+    private final Path root;
+    private final Set<Path> ready = ConcurrentHashMap.newKeySet();
+    private final Set<Path> queued = ConcurrentHashMap.newKeySet();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    public AttachmentSpool(@Value("${app.attachments.path:/root/Attachments Files}") String attachmentsPath) {
+        this.root = Path.of(attachmentsPath);
+    }
+
+    // Queues the attachments for spooling once the current transaction commits, so approval never waits for
+    // the encode.
+    public void prepare(List<CampaignAttachment> attachments) {
+        List<CampaignAttachment> pending = List.copyOf(attachments);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    queue(pending);
+                }
+            });
+        } else {
+            queue(pending);
+        }
+    }
+
+    public StreamingAttachmentPart part(Path file, String contentType, String fileName) throws MessagingException {
+        String encoding = StreamingAttachmentPart.encodingFor(contentType);
+        try {
+            Path spooled = spooled(file, encoding);
+            if (spooled != null) {
+                return StreamingAttachmentPart.preEncoded(file, spooled, encoding, contentType, fileName);
+            }
+        } catch (IOException e) {
+            logger.warn("Attachment spool unavailable for {}, encoding per message: {}", file, e.getMessage());
+        }
+        queue(file, encoding);
+        return new StreamingAttachmentPart(file, contentType, fileName);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdownNow();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    public void evict(Path file) {
+        for (String encoding : List.of("base64", "quoted-printable")) {
+            Path spooled = spoolPath(file, encoding);
+            ready.remove(spooled);
+            try {
+                Files.deleteIfExists(spooled);
+            } catch (IOException e) {
+                logger.warn("Attachment spool cleanup failed for {}: {}", spooled, e.getMessage());
+            }
+        }
+    }
+
+    private void queue(List<CampaignAttachment> attachments) {
+        for (CampaignAttachment attachment : attachments) {
+            Path file = root.resolve(attachment.getStoredName());
+            if (Files.exists(file)) {
+                queue(file, StreamingAttachmentPart.encodingFor(attachment.getContentType()));
+            }
+        }
+    }
+
+    private void queue(Path file, String encoding) {
+        Path target = spoolPath(file, encoding);
+        if (ready.contains(target) || !queued.add(target)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    spool(file, encoding);
+                } catch (IOException e) {
+                    logger.warn("Attachment spool skipped for {}: {}", file, e.getMessage());
+                } finally {
+                    queued.remove(target);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            queued.remove(target);
+        }
+    }
+
+    // The spool file when it is complete and newer than the original, otherwise null.
+    private Path spooled(Path file, String encoding) throws IOException {
+        Path target = spoolPath(file, encoding);
+        if (ready.contains(target)) {
+            return target;
+        }
+        if (Files.exists(target)
+                && Files.getLastModifiedTime(target).compareTo(Files.getLastModifiedTime(file)) >= 0) {
+            ready.add(target);
+            return target;
+        }
+        return null;
+    }
+
+    Path spool(Path file, String encoding) throws IOException {
+        Path spooled = spooled(file, encoding);
+        if (spooled != null) {
+            return spooled;
+        }
+        Path target = spoolPath(file, encoding);
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp), StreamingAttachmentPart.CHUNK_SIZE)) {
+                StreamingAttachmentPart.encode(file, out, encoding);
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        ready.add(target);
+        return target;
+    }
+
+    private Path spoolPath(Path file, String encoding) {
+        String suffix = "base64".equals(encoding) ? ".b64" : ".qp";
+        return file.resolveSibling(file.getFileName() + suffix);
+    }
+}
@@ -0,0 +1,223 @@
+package com.example.bulkemail.sending;
+
+import com.example.bulkemail.entity.Campaign;
+import com.example.bulkemail.entity.DkimAlgorithm;
+import com.example.bulkemail.entity.DkimKey;
+import com.example.bulkemail.repo.DkimKeyRepository;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Component
+public class DkimSigner {
+    private static final String[] SIGNED_HEADERS = {
+            "From", "Reply-To", "To", "Subject", "Date", "Message-ID", "MIME-Version", "Content-Type",
+            "List-Unsubscribe", "List-Unsubscribe-Post"
+    };
+    private static final long KEY_CACHE_TTL_MS = 60_000;
+    // Body hashes of campaigns sending right now; older ones fall out least recently used first.
+    private static final int BODY_HASH_CACHE_SIZE = 256;
+
+    private final DkimKeyRepository dkimKeyRepository;
+    private final SendMetrics sendMetrics;
+    private final Map<String, CachedKey> keys = new ConcurrentHashMap<>();
+    private final Map<Long, CachedBodyHash> bodyHashes = Collections.synchronizedMap(
+            new LinkedHashMap<>(64, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, CachedBodyHash> eldest) {
+                    return size() > BODY_HASH_CACHE_SIZE;
+                }
+            });
+
+    public DkimSigner(DkimKeyRepository dkimKeyRepository, SendMetrics sendMetrics) {
+        this.dkimKeyRepository = dkimKeyRepository;
+        this.sendMetrics = sendMetrics;
+    }
+
+    // Signs the message, which must already have had saveChanges() applied, if a key is configured for the
+    // domain. When the body is the same for every
+    // recipient of the campaign rendition, the canonical body hash is computed once and reused.
+    public boolean sign(SignableMimeMessage message, String domain, Campaign campaign, boolean recipientInvariantBody) {
+        if (domain == null || domain.isBlank()) {
+            return false;
+        }
+        Optional<LoadedKey> key = key(domain.toLowerCase(Locale.ROOT));
+        if (key.isEmpty()) {
+            return false;
+        }
+        long start = System.nanoTime();
+        try {
+            String bodyHash = recipientInvariantBody && campaign.getId() != null
+                    ? cachedBodyHash(message, campaign)
+                    : bodyHash(message);
+            String header = signatureHeader(message, key.get(), bodyHash);
+            message.addHeader("DKIM-Signature", header);
+            message.seal();
+            sendMetrics.recordDkimSignature(key.get().algorithm(), System.nanoTime() - start);
+            return true;
+        } catch (MessagingException | IOException | GeneralSecurityException e) {
+            throw new IllegalStateException("DKIM signing failed: " + e.getMessage(), e);
+        }
+    }
+
+    public void validate(DkimAlgorithm algorithm, String privateKeyPem) {
+        try {
+            parsePrivateKey(algorithm, privateKeyPem);
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid DKIM private key: " + e.getMessage(), e);
+        }
+    }
+
+    public void evictKeys() {
+        keys.clear();
+    }
+
+    public void evictBodyHash(Long campaignId) {
+        bodyHashes.remove(campaignId);
+    }
+
+    private String cachedBodyHash(MimeMessage message, Campaign campaign) throws IOException, MessagingException,
+            NoSuchAlgorithmException {
+        CachedBodyHash cached = bodyHashes.get(campaign.getId());
+        if (cached != null && Objects.equals(cached.version(), campaign.getUpdatedAt())) {
+            return cached.hash();
+        }
+        String hash = bodyHash(message);
+        bodyHashes.put(campaign.getId(), new CachedBodyHash(campaign.getUpdatedAt(), hash));
+        return hash;
+    }
+
+    private String bodyHash(MimeMessage message) throws IOException, MessagingException, NoSuchAlgorithmException {
+        RelaxedBodyDigestStream stream = new RelaxedBodyDigestStream(MessageDigest.getInstance("SHA-256"), true);
+        message.writeTo(stream);
+        return Base64.getEncoder().encodeToString(stream.finish());
+    }
+
+    private String signatureHeader(MimeMessage message, LoadedKey key, String bodyHash)
+            throws MessagingException, GeneralSecurityException {
+        List<String> names = new ArrayList<>();
+        StringBuilder data = new StringBuilder(512);
+        for (String name : SIGNED_HEADERS) {
+            String line = lastHeaderLine(message, name);
+            if (line != null) {
+                names.add(name);
+                appendRelaxedHeader(data, line);
+                data.append("\r\n");
+            }
+        }
+        String unsigned = "v=1; a=" + key.algorithm().getTag()
+                + "; c=relaxed/relaxed; d=" + key.domain()
+                + "; s=" + key.selector()
+                + "; t=" + Instant.now().getEpochSecond()
+                + "; h=" + String.join(":", names)
+                + "; bh=" + bodyHash
+                + "; b=";
+        appendRelaxedHeader(data, "DKIM-Signature: " + unsigned);
+        byte[] signed = data.toString().getBytes(StandardCharsets.UTF_8);
+        Signature signature;
+        if (key.algorithm() == DkimAlgorithm.ED25519_SHA256) {
+            // RFC 8463: Ed25519 signs the SHA-256 hash of the canonicalized header data.
+            signed = MessageDigest.getInstance("SHA-256").digest(signed);
+            signature = Signature.getInstance("Ed25519");
+        } else {
+            signature = Signature.getInstance("SHA256withRSA");
+        }
+        signature.initSign(key.privateKey());
+        signature.update(signed);
+        return unsigned + Base64.getEncoder().encodeToString(signature.sign());
+    }
+
+    private String lastHeaderLine(MimeMessage message, String name) throws MessagingException {
+        Enumeration<String> lines = message.getMatchingHeaderLines(new String[]{name});
+        String last = null;
+        while (lines.hasMoreElements()) {
+            last = lines.nextElement();
+        }
+        return last;
+    }
+
+    static void appendRelaxedHeader(StringBuilder out, String line) {
+        int colon = line.indexOf(':');
+        out.append(line.substring(0, colon).trim().toLowerCase(Locale.ROOT)).append(':');
+        int start = out.length();
+        boolean pendingSpace = false;
+        for (int i = colon + 1; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '\r' || c == '\n') {
+                continue;
+            }
+            if (c == ' ' || c == '\t') {
+                pendingSpace = true;
+                continue;
+            }
+            if (pendingSpace && out.length() > start) {
+                out.append(' ');
+            }
+            pendingSpace = false;
+            out.append(c);
+        }
+    }
+
+    private Optional<LoadedKey> key(String domain) {
+        CachedKey cached = keys.get(domain);
+        long now = System.currentTimeMillis();
+        if (cached != null && now - cached.loadedAt() < KEY_CACHE_TTL_MS) {
+            return cached.key();
+        }
+        Optional<LoadedKey> loaded = dkimKeyRepository.findByDomainIgnoreCase(domain).map(this::load);
+        keys.put(domain, new CachedKey(loaded, now));
+        return loaded;
+    }
+
+    private LoadedKey load(DkimKey key) {
+        try {
+            return new LoadedKey(key.getDomain().toLowerCase(Locale.ROOT), key.getSelector(), key.getAlgorithm(),
+                    parsePrivateKey(key.getAlgorithm(), key.getPrivateKeyPem()));
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            throw new IllegalStateException("DKIM key for " + key.getDomain() + " is invalid", e);
+        }
+    }
+
+    private static PrivateKey parsePrivateKey(DkimAlgorithm algorithm, String pem) throws GeneralSecurityException {
+        StringBuilder base64 = new StringBuilder();
+        for (String line : pem.split("\\R")) {
+            String trimmed = line.trim();
+            if (!trimmed.isEmpty() && !trimmed.startsWith("-----")) {
+                base64.append(trimmed);
+            }
+        }
+        byte[] der = Base64.getDecoder().decode(base64.toString());
+        return KeyFactory.getInstance(algorithm.getKeyAlgorithm()).generatePrivate(new PKCS8EncodedKeySpec(der));
+    }
+
+    private record LoadedKey(String domain, String selector, DkimAlgorithm algorithm, PrivateKey privateKey) {
+    }
+
+    private record CachedKey(Optional<LoadedKey> key, long loadedAt) {
+    }
+
+    private record CachedBodyHash(Instant version, String hash) {
+    }
+}
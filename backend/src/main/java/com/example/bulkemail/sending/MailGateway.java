@@ -3,6 +3,30 @@ package com.example.bulkemail.sending;
 import com.example.bulkemail.entity.Campaign;
 import com.example.bulkemail.entity.CampaignRecipient;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 public interface MailGateway {
     void send(Campaign campaign, CampaignRecipient recipient);
+
+    // Returns one result per recipient, in input order. Failures are reported, not thrown.
+    default List<SendResult> sendBatch(Campaign campaign, List<CampaignRecipient> recipients) {
+        List<SendResult> results = new ArrayList<>(recipients.size());
+        for (CampaignRecipient recipient : recipients) {
+            long start = System.nanoTime();
+            try {
+                send(campaign, recipient);
+                results.add(SendResult.sent(recipient, 250, System.nanoTime() - start));
+            } catch (RuntimeException e) {
+                results.add(SendResult.failed(recipient, 0, e.getMessage(), System.nanoTime() - start));
+            }
+        }
+        return results;
+    }
+
+    // Completes once the server has accepted or rejected the message; never completes exceptionally.
+    default CompletableFuture<SendResult> sendAsync(Campaign campaign, CampaignRecipient recipient) {
+        return CompletableFuture.completedFuture(sendBatch(campaign, List.of(recipient)).getFirst());
+    }
 }
@@ -0,0 +1,72 @@
+package com.example.bulkemail.sending;
+
+import com.example.bulkemail.entity.CampaignRecipient;
+
+public enum MergeField {
+    FULL_NAME("fullName"),
+    FIRST_NAME("firstName"),
+    EMAIL("email"),
+    DEPARTMENT("department");
+
+    private final String token;
+
+    MergeField(String token) {
+        this.token = token;
+    }
+
+    public String token() {
+        return token;
+    }
+
+    public static MergeField fromToken(CharSequence source, int start, int end) {
+        for (MergeField field : values()) {
+            String token = field.token;
+            if (token.length() == end - start && regionMatches(source, start, token)) {
+                return field;
+            }
+        }
+        return null;
+    }
+
+    void appendValue(CampaignRecipient recipient, StringBuilder out, boolean html) {
+        String value = switch (this) {
+            case FULL_NAME, FIRST_NAME -> recipient.getFullName();
+            case EMAIL -> recipient.getEmail();
+            case DEPARTMENT -> recipient.getDepartment();
+        };
+        if (value == null) {
+            return;
+        }
+        int end = value.length();
+        if (this == FIRST_NAME) {
+            int space = value.indexOf(' ');
+            if (space > 0) {
+                end = space;
+            }
+        }
+        if (!html) {
+            out.append(value, 0, end);
+            return;
+        }
+        for (int i = 0; i < end; i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '<' -> out.append("&lt;");
+                case '>' -> out.append("&gt;");
+                case '&' -> out.append("&amp;");
+                case '"' -> out.append("&quot;");
+                case '\'' -> out.append("&#39;");
+                default -> out.append(c);
+            }
+        }
+    }
+
+    private static boolean regionMatches(CharSequence source, int start, String token) {
+        for (int i = 0; i < token.length(); i++) {
+            if (source.charAt(start + i) != token.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,228 @@
+package com.example.bulkemail.sending;
+
+import com.example.bulkemail.entity.CampaignRecipient;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public final class MergeTemplate {
+    private static final int INITIAL_BUFFER = 8 * 1024;
+    private static final int MAX_RETAINED_BUFFER = 1024 * 1024;
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(INITIAL_BUFFER));
+    private static final Pattern ANCHOR_HREF = Pattern.compile(
+            "<a\\b[^>]*?\\bhref\\s*=\\s*(?:\"([^\"]*)\"|'([^']*)')", Pattern.CASE_INSENSITIVE);
+
+    private final String source;
+    private final boolean html;
+    // Literal i spans [literalStart[i], literalEnd[i]) of source and is followed by fields[i] or by link slot
+    // linkSlots[i] (neither after the last literal).
+    private final int[] literalStart;
+    private final int[] literalEnd;
+    private final MergeField[] fields;
+    private final int[] linkSlots;
+    // Slot s replaces [linkStart[s], linkEnd[s]) of source, the value of an absolute http(s) href.
+    private final int[] linkStart;
+    private final int[] linkEnd;
+    private final List<String> links;
+    private final int fieldCount;
+    private final int literalLength;
+
+    private MergeTemplate(String source, boolean html, int[] literalStart, int[] literalEnd, MergeField[] fields,
+                          int[] linkSlots, int[] linkStart, int[] linkEnd, List<String> links) {
+        this.source = source;
+        this.html = html;
+        this.literalStart = literalStart;
+        this.literalEnd = literalEnd;
+        this.fields = fields;
+        this.linkSlots = linkSlots;
+        this.linkStart = linkStart;
+        this.linkEnd = linkEnd;
+        this.links = links;
+        int length = 0;
+        int count = 0;
+        for (int i = 0; i < literalStart.length; i++) {
+            length += literalEnd[i] - literalStart[i];
+            if (fields[i] != null) {
+                count++;
+            }
+        }
+        this.literalLength = length;
+        this.fieldCount = count;
+    }
+
+    public static MergeTemplate compile(String source) {
+        return compile(source, false);
+    }
+
+    // HTML templates also record their links as slots, so a tracking URL can be spliced in per recipient
+    // without re-parsing the body. Rendering without a LinkWriter writes the links unchanged.
+    public static MergeTemplate compileHtml(String source) {
+        return compile(source, true);
+    }
+
+    private static MergeTemplate compile(String source, boolean html) {
+        String text = source != null ? source : "";
+        List<int[]> literals = new ArrayList<>();
+        List<MergeField> fields = new ArrayList<>();
+        int literalFrom = 0;
+        int cursor = 0;
+        while (true) {
+            int open = text.indexOf("{{", cursor);
+            if (open < 0) {
+                break;
+            }
+            int close = text.indexOf("}}", open + 2);
+            if (close < 0) {
+                break;
+            }
+            int nameStart = open + 2;
+            int nameEnd = close;
+            while (nameStart < nameEnd && Character.isWhitespace(text.charAt(nameStart))) {
+                nameStart++;
+            }
+            while (nameEnd > nameStart && Character.isWhitespace(text.charAt(nameEnd - 1))) {
+                nameEnd--;
+            }
+            MergeField field = MergeField.fromToken(text, nameStart, nameEnd);
+            if (field == null) {
+                cursor = open + 2;
+                continue;
+            }
+            literals.add(new int[]{literalFrom, open});
+            fields.add(field);
+            literalFrom = close + 2;
+            cursor = literalFrom;
+        }
+        literals.add(new int[]{literalFrom, text.length()});
+        fields.add(null);
+        List<int[]> spans = html ? linkSpans(text) : List.of();
+        List<Integer> slots = new ArrayList<>();
+        List<int[]> pieces = new ArrayList<>();
+        List<MergeField> pieceFields = new ArrayList<>();
+        int span = 0;
+        for (int i = 0; i < literals.size(); i++) {
+            int from = literals.get(i)[0];
+            int to = literals.get(i)[1];
+            while (span < spans.size() && spans.get(span)[1] <= to) {
+                int[] link = spans.get(span);
+                if (link[0] >= from) {
+                    pieces.add(new int[]{from, link[0]});
+                    pieceFields.add(null);
+                    slots.add(span);
+                    from = link[1];
+                }
+                span++;
+            }
+            pieces.add(new int[]{from, to});
+            pieceFields.add(fields.get(i));
+            slots.add(-1);
+        }
+        int[] starts = new int[pieces.size()];
+        int[] ends = new int[pieces.size()];
+        int[] linkSlots = new int[pieces.size()];
+        for (int i = 0; i < pieces.size(); i++) {
+            starts[i] = pieces.get(i)[0];
+            ends[i] = pieces.get(i)[1];
+            linkSlots[i] = slots.get(i);
+        }
+        int[] linkStart = new int[spans.size()];
+        int[] linkEnd = new int[spans.size()];
+        List<String> links = new ArrayList<>(spans.size());
+        for (int i = 0; i < spans.size(); i++) {
+            linkStart[i] = spans.get(i)[0];
+            linkEnd[i] = spans.get(i)[1];
+            links.add(text.substring(linkStart[i], linkEnd[i]).replace("&amp;", "&"));
+        }
+        return new MergeTemplate(text, html, starts, ends, pieceFields.toArray(new MergeField[0]), linkSlots,
+                linkStart, linkEnd, List.copyOf(links));
+    }
+
+    // Absolute http(s) hrefs on anchors. Values holding merge placeholders are left alone, which also keeps
+    // every span inside a single literal.
+    private static List<int[]> linkSpans(String text) {
+        List<int[]> spans = new ArrayList<>();
+        Matcher matcher = ANCHOR_HREF.matcher(text);
+        while (matcher.find()) {
+            int group = matcher.start(1) >= 0 ? 1 : 2;
+            int start = matcher.start(group);
+            int end = matcher.end(group);
+            while (start < end && Character.isWhitespace(text.charAt(start))) {
+                start++;
+            }
+            while (end > start && Character.isWhitespace(text.charAt(end - 1))) {
+                end--;
+            }
+            if ((text.regionMatches(true, start, "http://", 0, 7) || text.regionMatches(true, start, "https://", 0, 8))
+                    && text.substring(start, end).indexOf("{{") < 0) {
+                spans.add(new int[]{start, end});
+            }
+        }
+        return spans;
+    }
+
+    public boolean isStatic() {
+        return fieldCount == 0;
+    }
+
+    public boolean hasLinks() {
+        return !links.isEmpty();
+    }
+
+    // Link targets by slot, with HTML-escaped ampersands decoded.
+    public List<String> links() {
+        return links;
+    }
+
+    public String source() {
+        return source;
+    }
+
+    public void renderTo(CampaignRecipient recipient, StringBuilder out) {
+        renderTo(recipient, out, null);
+    }
+
+    public void renderTo(CampaignRecipient recipient, StringBuilder out, LinkWriter linkWriter) {
+        out.ensureCapacity(out.length() + literalLength + 64 * fieldCount);
+        for (int i = 0; i < literalStart.length; i++) {
+            out.append(source, literalStart[i], literalEnd[i]);
+            MergeField field = fields[i];
+            int slot = linkSlots[i];
+            if (field != null) {
+                field.appendValue(recipient, out, html);
+            } else if (slot >= 0) {
+                if (linkWriter != null) {
+                    linkWriter.appendLink(slot, out);
+                } else {
+                    out.append(source, linkStart[slot], linkEnd[slot]);
+                }
+            }
+        }
+    }
+
+    public String render(CampaignRecipient recipient) {
+        return render(recipient, null);
+    }
+
+    public String render(CampaignRecipient recipient, LinkWriter linkWriter) {
+        if (isStatic() && (linkWriter == null || links.isEmpty())) {
+            return source;
+        }
+        StringBuilder buffer = BUFFER.get();
+        buffer.setLength(0);
+        renderTo(recipient, buffer, linkWriter);
+        String rendered = buffer.toString();
+        if (buffer.capacity() > MAX_RETAINED_BUFFER) {
+            BUFFER.set(new StringBuilder(INITIAL_BUFFER));
+        } else {
+            buffer.setLength(0);
+        }
+        return rendered;
+    }
+
+    @FunctionalInterface
+    public interface LinkWriter {
+        void appendLink(int slot, StringBuilder out);
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.bulkemail.sending;
+
+import com.example.bulkemail.entity.Campaign;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+// Compiled templates keyed on the campaign id, its updatedAt and the template sources themselves, so an edit
+// is never served from a stale entry even when it lands within the same updatedAt tick. Superseded versions
+// age out of the LRU.
+@Component
+public class MergeTemplateCache {
+    private static final int CACHE_SIZE = 256;
+
+    private final Map<Key, CompiledCampaign> compiled = Collections.synchronizedMap(
+            new LinkedHashMap<>(64, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Key, CompiledCampaign> eldest) {
+                    return size() > CACHE_SIZE;
+                }
+            });
+
+    public CompiledCampaign get(Campaign campaign) {
+        if (campaign.getId() == null) {
+            return CompiledCampaign.compile(campaign);
+        }
+        Key key = new Key(campaign.getId(), campaign.getUpdatedAt(), campaign.getSubject(), campaign.getHtmlBody(),
+                campaign.getTextBody());
+        CompiledCampaign cached = compiled.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        CompiledCampaign fresh = CompiledCampaign.compile(campaign);
+        compiled.put(key, fresh);
+        return fresh;
+    }
+
+    public void evict(Long campaignId) {
+        synchronized (compiled) {
+            compiled.keySet().removeIf(key -> Objects.equals(key.campaignId(), campaignId));
+        }
+    }
+
+    private record Key(Long campaignId, Instant updatedAt, String subject, String htmlBody, String textBody) {
+    }
+
+    public record CompiledCampaign(Instant version, MergeTemplate subject, MergeTemplate htmlBody,
+                                   MergeTemplate textBody) {
+        static CompiledCampaign compile(Campaign campaign) {
+            return new CompiledCampaign(
+                    campaign.getUpdatedAt(),
+                    MergeTemplate.compile(campaign.getSubject()),
+                    campaign.getHtmlBody() != null ? MergeTemplate.compileHtml(campaign.getHtmlBody()) : null,
+                    MergeTemplate.compile(campaign.getTextBody()));
+        }
+    }
+}
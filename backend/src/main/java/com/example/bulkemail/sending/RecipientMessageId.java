@@ -0,0 +1,33 @@
+package com.example.bulkemail.sending;
+
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Message-ID that names the campaign recipient it was sent to, so bounce and complaint notifications that
+// echo the original Message-ID can be matched back to a recipient row without storing provider ids.
+public record RecipientMessageId(long campaignId, long recipientId) {
+    private static final Pattern PATTERN = Pattern.compile("<?bulkemail\\.(\\d+)\\.(\\d+)\\.[0-9a-f]+@");
+
+    public static String format(long campaignId, long recipientId, String domain) {
+        return "<bulkemail." + campaignId + "." + recipientId + "."
+                + Long.toHexString(ThreadLocalRandom.current().nextLong() >>> 1)
+                + "@" + (domain != null && !domain.isBlank() ? domain : "localhost") + ">";
+    }
+
+    public static Optional<RecipientMessageId> parse(String messageId) {
+        if (messageId == null) {
+            return Optional.empty();
+        }
+        Matcher matcher = PATTERN.matcher(messageId.trim());
+        if (!matcher.lookingAt()) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(new RecipientMessageId(Long.parseLong(matcher.group(1)), Long.parseLong(matcher.group(2))));
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.bulkemail.sending;
+
+import java.io.OutputStream;
+import java.security.MessageDigest;
+
+// Consumes a serialized RFC 5322 message, skips the header block and feeds the body to the digest
+// using DKIM "relaxed" body canonicalization (RFC 6376 section 3.4.4).
+class RelaxedBodyDigestStream extends OutputStream {
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    private final MessageDigest digest;
+    private boolean inHeaders;
+    private boolean headerLineEmpty;
+    private int pendingLines;
+    private boolean pendingSpace;
+    private boolean pendingCr;
+    private boolean hasContent;
+
+    RelaxedBodyDigestStream(MessageDigest digest, boolean skipHeaders) {
+        this.digest = digest;
+        this.inHeaders = skipHeaders;
+        // A message that opens with an empty line has no headers.
+        this.headerLineEmpty = true;
+    }
+
+    @Override
+    public void write(int b) {
+        if (inHeaders) {
+            trackHeaderEnd(b);
+            return;
+        }
+        if (pendingCr) {
+            pendingCr = false;
+            if (b == '\n') {
+                endLine();
+                return;
+            }
+            content('\r');
+        }
+        if (b == '\r') {
+            pendingCr = true;
+        } else if (b == '\n') {
+            endLine();
+        } else if (b == ' ' || b == '\t') {
+            pendingSpace = true;
+        } else {
+            content(b);
+        }
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            write(bytes[i]);
+        }
+    }
+
+    public byte[] finish() {
+        if (pendingCr) {
+            pendingCr = false;
+            content('\r');
+        }
+        if (hasContent) {
+            digest.update(CRLF);
+        }
+        return digest.digest();
+    }
+
+    private void trackHeaderEnd(int b) {
+        if (b == '\n') {
+            if (headerLineEmpty) {
+                inHeaders = false;
+            }
+            headerLineEmpty = true;
+        } else if (b != '\r') {
+            headerLineEmpty = false;
+        }
+    }
+
+    private void endLine() {
+        pendingSpace = false;
+        pendingLines++;
+    }
+
+    private void content(int b) {
+        while (pendingLines > 0) {
+            digest.update(CRLF);
+            pendingLines--;
+        }
+        if (pendingSpace) {
+            digest.update((byte) ' ');
+            pendingSpace = false;
+        }
+        digest.update((byte) b);
+        hasContent = true;
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.bulkemail.sending;
+
+import com.example.bulkemail.entity.Campaign;
+import com.example.bulkemail.entity.DkimAlgorithm;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component
+public class SendMetrics {
+    private static final String PREFIX = "bulkemail.";
+
+    private final MeterRegistry registry;
+    private final Map<Long, AtomicLong> queueDepths = new ConcurrentHashMap<>();
+    private final Map<Long, Gauge> queueDepthGauges = new ConcurrentHashMap<>();
+    private final Timer pollTimer;
+    private final DistributionSummary batchUtilization;
+    private final Timer batchDbTimer;
+    private final Timer batchSmtpTimer;
+
+    public SendMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.pollTimer = Timer.builder(PREFIX + "worker.poll")
+                .description("Duration of one send worker poll, including the batch it sends")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.batchUtilization = DistributionSummary.builder(PREFIX + "worker.batch.utilization")
+                .description("Eligible recipients per poll as a fraction of the configured batch size")
+                .register(registry);
+        this.batchDbTimer = Timer.builder(PREFIX + "send.batch.time")
+                .description("Time spent per batch, split by phase")
+                .tag("phase", "db")
+                .register(registry);
+        this.batchSmtpTimer = Timer.builder(PREFIX + "send.batch.time")
+                .description("Time spent per batch, split by phase")
+                .tag("phase", "smtp")
+                .register(registry);
+    }
+
+    public void recordSend(Campaign campaign, long nanos, boolean success) {
+        Timer.builder(PREFIX + "send.latency")
+                .description("SMTP send latency per message")
+                .tags(campaignTags(campaign).and("outcome", success ? "sent" : "failed"))
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordThrottleRejection(Campaign campaign) {
+        counter("throttle.rejections", campaign).increment();
+    }
+
+    public void recordSuppressionHit(Campaign campaign) {
+        counter("suppression.hits", campaign).increment();
+    }
+
+    public void recordPoll(long nanos) {
+        pollTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordBatchUtilization(int eligible, int batchSize) {
+        if (batchSize > 0) {
+            batchUtilization.record((double) eligible / batchSize);
+        }
+    }
+
+    public void recordBatchTimes(long dbNanos, long smtpNanos) {
+        batchDbTimer.record(dbNanos, TimeUnit.NANOSECONDS);
+        batchSmtpTimer.record(smtpNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordDkimSignature(DkimAlgorithm algorithm, long nanos) {
+        Timer.builder(PREFIX + "dkim.sign")
+                .description("DKIM signing time per message; the count rate is signatures per second")
+                .tag("algorithm", algorithm.getTag())
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void updateQueueDepths(Map<Long, Long> depthByCampaign) {
+        depthByCampaign.forEach((campaignId, depth) -> queueDepths
+                .computeIfAbsent(campaignId, this::registerQueueDepth)
+                .set(depth));
+        Set<Long> stale = Set.copyOf(queueDepths.keySet());
+        for (Long campaignId : stale) {
+            if (!depthByCampaign.containsKey(campaignId)) {
+                queueDepths.remove(campaignId);
+                Gauge gauge = queueDepthGauges.remove(campaignId);
+                if (gauge != null) {
+                    registry.remove(gauge);
+                }
+            }
+        }
+    }
+
+    private AtomicLong registerQueueDepth(Long campaignId) {
+        AtomicLong depth = new AtomicLong();
+        Gauge gauge = Gauge.builder(PREFIX + "campaign.queue.depth", depth, AtomicLong::get)
+                .description("Recipients still queued or awaiting retry for an active campaign")
+                .tag("campaign", campaignId.toString())
+                .register(registry);
+        queueDepthGauges.put(campaignId, gauge);
+        return depth;
+    }
+
+    private Counter counter(String name, Campaign campaign) {
+        return Counter.builder(PREFIX + name)
+                .tags(campaignTags(campaign))
+                .register(registry);
+    }
+
+    private Tags campaignTags(Campaign campaign) {
+        String account = campaign.getSmtpAccount() != null ? campaign.getSmtpAccount().getName() : "none";
+        String category = campaign.getCategory() != null ? campaign.getCategory().name() : "none";
+        return Tags.of("account", account != null ? account : "none", "category", category);
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.bulkemail.sending;
+
+import com.example.bulkemail.entity.CampaignRecipient;
+
+// Outcome of one recipient within a gateway batch. replyCode is the SMTP reply code when the server
+// gave one, or 0 when the failure happened before a reply (connection, rendering, signing).
+public record SendResult(CampaignRecipient recipient, boolean sent, int replyCode, String detail, long latencyNanos) {
+
+    public static SendResult sent(CampaignRecipient recipient, int replyCode, long latencyNanos) {
+        return new SendResult(recipient, true, replyCode, null, latencyNanos);
+    }
+
+    public static SendResult failed(CampaignRecipient recipient, int replyCode, String detail, long latencyNanos) {
+        return new SendResult(recipient, false, replyCode, detail, latencyNanos);
+    }
+
+    public boolean permanentFailure() {
+        return !sent && replyCode >= 500 && replyCode < 600;
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.bulkemail.sending;
+
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeMessage;
+
+public class SignableMimeMessage extends MimeMessage {
+    private boolean sealed;
+    private String messageId;
+
+    public SignableMimeMessage(Session session) {
+        super(session);
+    }
+
+    // Used instead of JavaMail's generated Message-ID when set.
+    public void setMessageId(String messageId) {
+        this.messageId = messageId;
+    }
+
+    // Once signed, headers and body structure must not be regenerated by later saveChanges() calls.
+    public void seal() {
+        this.sealed = true;
+    }
+
+    @Override
+    protected void updateHeaders() throws MessagingException {
+        if (!sealed) {
+            super.updateHeaders();
+        }
+    }
+
+    @Override
+    protected void updateMessageID() throws MessagingException {
+        if (messageId != null) {
+            setHeader("Message-ID", messageId);
+        } else {
+            super.updateMessageID();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.bulkemail.sending;
+
+import com.example.bulkemail.entity.Campaign;
+import com.example.bulkemail.entity.CampaignRecipient;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+// Accepts every message without sending it and advances the virtual clock by the expected SMTP latency.
+// With concurrency above one, a batch takes ceil(n / concurrency) round trips instead of n.
+public class SimulatedMailGateway implements MailGateway {
+    private final VirtualClock clock;
+    private final Duration latency;
+    private final int concurrency;
+
+    public SimulatedMailGateway(VirtualClock clock, Duration latency, int concurrency) {
+        this.clock = clock;
+        this.latency = latency;
+        this.concurrency = Math.max(1, concurrency);
+    }
+
+    @Override
+    public void send(Campaign campaign, CampaignRecipient recipient) {
+        clock.advance(latency);
+    }
+
+    @Override
+    public List<SendResult> sendBatch(Campaign campaign, List<CampaignRecipient> recipients) {
+        List<SendResult> results = new ArrayList<>(recipients.size());
+        long latencyNanos = latency.toNanos();
+        for (CampaignRecipient recipient : recipients) {
+            results.add(SendResult.sent(recipient, 250, latencyNanos));
+        }
+        long roundTrips = (recipients.size() + concurrency - 1) / concurrency;
+        clock.advance(latency.multipliedBy(roundTrips));
+        return results;
+    }
+}
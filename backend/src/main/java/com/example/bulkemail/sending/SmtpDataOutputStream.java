@@ -0,0 +1,61 @@
+package com.example.bulkemail.sending;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+
+// Turns a serialized message into the SMTP DATA payload: bare CR or LF become CRLF, lines starting
+// with '.' are dot-stuffed (RFC 5321 section 4.5.2) and finish() appends the end-of-data marker.
+class SmtpDataOutputStream extends OutputStream {
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    private final ByteArrayOutputStream out;
+    private boolean lineStart = true;
+    private boolean afterCr;
+
+    SmtpDataOutputStream(int initialSize) {
+        this.out = new ByteArrayOutputStream(initialSize);
+    }
+
+    @Override
+    public void write(int b) {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        int runStart = off;
+        int end = off + len;
+        for (int i = off; i < end; i++) {
+            byte c = b[i];
+            if (c != '\r' && c != '\n' && !(c == '.' && lineStart)) {
+                afterCr = false;
+                lineStart = false;
+                continue;
+            }
+            out.write(b, runStart, i - runStart);
+            runStart = i + 1;
+            if (c == '.') {
+                out.write('.');
+                out.write('.');
+                afterCr = false;
+                lineStart = false;
+            } else if (c == '\n' && afterCr) {
+                afterCr = false;
+            } else {
+                out.write(CRLF, 0, 2);
+                afterCr = c == '\r';
+                lineStart = true;
+            }
+        }
+        out.write(b, runStart, end - runStart);
+    }
+
+    byte[] finish() {
+        if (!lineStart) {
+            out.write(CRLF, 0, 2);
+        }
+        out.write('.');
+        out.write(CRLF, 0, 2);
+        return out.toByteArray();
+    }
+}
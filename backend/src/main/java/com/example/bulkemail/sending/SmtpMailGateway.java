@@ -1,17 +1,21 @@
 package com.example.bulkemail.sending;
 
+import com.example.bulkemail.config.AppProperties;
 import com.example.bulkemail.entity.Campaign;
+import com.example.bulkemail.entity.CampaignCategory;
 import com.example.bulkemail.entity.CampaignRecipient;
 import com.example.bulkemail.entity.SmtpAccount;
+import jakarta.annotation.PreDestroy;
 import jakarta.mail.Message;
 import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
 import jakarta.mail.internet.MimeBodyPart;
 import jakarta.mail.internet.InternetAddress;
-import jakarta.mail.internet.MimeMessage;
 import jakarta.mail.internet.MimeMultipart;
-import jakarta.activation.DataHandler;
-import jakarta.activation.DataSource;
-import jakarta.mail.util.ByteArrayDataSource;
+import org.eclipse.angus.mail.smtp.SMTPAddressFailedException;
+import org.eclipse.angus.mail.smtp.SMTPSendFailedException;
+import org.eclipse.angus.mail.smtp.SMTPTransport;
 import org.springframework.mail.javamail.JavaMailSenderImpl;
 import org.springframework.stereotype.Component;
 import org.springframework.beans.factory.annotation.Value;
@@ -21,23 +25,254 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Date;
 import java.util.Properties;
 import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class SmtpMailGateway implements MailGateway {
     private final ObjectMapper objectMapper;
+    private final MergeTemplateCache templateCache;
+    private final DkimSigner dkimSigner;
+    private final AttachmentSpool attachmentSpool;
+    private final AsyncSmtpClient asyncSmtpClient;
+    private final TrackingTokens trackingTokens;
+    private final ExecutorService blockingExecutor;
+    private final AppProperties.Tracking tracking;
     private final String attachmentsPath;
 
-    public SmtpMailGateway(ObjectMapper objectMapper,
+    public SmtpMailGateway(ObjectMapper objectMapper, MergeTemplateCache templateCache, DkimSigner dkimSigner,
+                           AttachmentSpool attachmentSpool, AsyncSmtpClient asyncSmtpClient,
+                           TrackingTokens trackingTokens, AppProperties appProperties,
                            @Value("${app.attachments.path:/root/Attachments Files}") String attachmentsPath) {
         this.objectMapper = objectMapper;
+        this.templateCache = templateCache;
+        this.dkimSigner = dkimSigner;
+        this.attachmentSpool = attachmentSpool;
+        this.asyncSmtpClient = asyncSmtpClient;
+        this.trackingTokens = trackingTokens;
+        AppProperties.Sending.Async async = appProperties.getSending().getAsync();
+        // Only the async path hands work to this pool; batch sends run on the worker thread.
+        this.blockingExecutor = async.isEnabled() ? Executors.newFixedThreadPool(async.getTlsThreads()) : null;
+        this.tracking = appProperties.getTracking();
         this.attachmentsPath = attachmentsPath;
     }
 
     @Override
     public void send(Campaign campaign, CampaignRecipient recipient) {
+        JavaMailSenderImpl mailSender = mailSender(campaign.getSmtpAccount());
+        try {
+            mailSender.send(buildMessage(mailSender.getSession(), campaign, recipient));
+        } catch (Exception e) {
+            throw new IllegalStateException("SMTP send failed: " + e.getMessage(), e);
+        }
+    }
+
+    // Sends the whole group over one SMTP session; a failed recipient does not abort the rest.
+    @Override
+    public List<SendResult> sendBatch(Campaign campaign, List<CampaignRecipient> recipients) {
+        List<SendResult> results = new ArrayList<>(recipients.size());
+        if (recipients.isEmpty()) {
+            return results;
+        }
+        SmtpAccount account = campaign.getSmtpAccount();
+        Session session = mailSender(account).getSession();
+        Transport transport = null;
+        try {
+            transport = session.getTransport("smtp");
+            for (CampaignRecipient recipient : recipients) {
+                long start = System.nanoTime();
+                try {
+                    if (!transport.isConnected()) {
+                        transport.connect(account.getHost(), account.getPort() != null ? account.getPort() : -1,
+                                account.getUsername(), account.getPassword());
+                    }
+                    SignableMimeMessage message = buildMessage(session, campaign, recipient);
+                    transport.sendMessage(message, message.getAllRecipients());
+                    results.add(SendResult.sent(recipient, lastReturnCode(transport), System.nanoTime() - start));
+                } catch (Exception e) {
+                    results.add(SendResult.failed(recipient, replyCode(e), "SMTP send failed: " + e.getMessage(),
+                            System.nanoTime() - start));
+                }
+            }
+        } catch (MessagingException e) {
+            for (int i = results.size(); i < recipients.size(); i++) {
+                results.add(SendResult.failed(recipients.get(i), replyCode(e), "SMTP send failed: " + e.getMessage(), 0));
+            }
+        } finally {
+            if (transport != null) {
+                try {
+                    transport.close();
+                } catch (MessagingException ignored) {
+                    // connection is discarded either way
+                }
+            }
+        }
+        return results;
+    }
+
+    // The message is rendered and signed on the calling thread. Plain-text relays are driven by the NIO
+    // client, which holds each DATA payload in memory until it is written. Accounts that need STARTTLS or
+    // implicit TLS, accounts with credentials, and campaigns with attachments go through JavaMail on a small
+    // bounded pool instead: the NIO client never authenticates, so passwords are only sent over JavaMail, and
+    // attachment parts are streamed from disk to the socket rather than buffered per in-flight message.
+    @Override
+    public CompletableFuture<SendResult> sendAsync(Campaign campaign, CampaignRecipient recipient) {
+        long start = System.nanoTime();
+        SmtpAccount account = campaign.getSmtpAccount();
+        JavaMailSenderImpl mailSender = mailSender(account);
+        SignableMimeMessage message;
+        try {
+            message = buildMessage(mailSender.getSession(), campaign, recipient);
+        } catch (Exception e) {
+            return CompletableFuture.completedFuture(SendResult.failed(recipient, 0,
+                    "SMTP send failed: " + e.getMessage(), System.nanoTime() - start));
+        }
+        if (requiresTls(account) || hasCredentials(account)
+                || !parseAttachments(campaign.getAttachmentsJson()).isEmpty()) {
+            if (blockingExecutor == null) {
+                throw new IllegalStateException("Async sending is disabled");
+            }
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    mailSender.send(message);
+                    return SendResult.sent(recipient, 250, System.nanoTime() - start);
+                } catch (Exception e) {
+                    return SendResult.failed(recipient, replyCode(e), "SMTP send failed: " + e.getMessage(),
+                            System.nanoTime() - start);
+                }
+            }, blockingExecutor);
+        }
+        byte[] data;
+        String from;
+        try {
+            SmtpDataOutputStream out = new SmtpDataOutputStream(message.getSize() > 0 ? message.getSize() + 1024 : 8192);
+            message.writeTo(out);
+            data = out.finish();
+            from = ((InternetAddress) message.getFrom()[0]).getAddress();
+        } catch (Exception e) {
+            return CompletableFuture.completedFuture(SendResult.failed(recipient, 0,
+                    "SMTP send failed: " + e.getMessage(), System.nanoTime() - start));
+        }
+        AsyncSmtpClient.Endpoint endpoint = new AsyncSmtpClient.Endpoint(account.getHost(),
+                account.getPort() != null ? account.getPort() : 25);
+        return asyncSmtpClient.send(endpoint, from, recipient.getEmail(), data)
+                .handle((code, error) -> {
+                    if (error == null) {
+                        return SendResult.sent(recipient, code, System.nanoTime() - start);
+                    }
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null
+                            ? error.getCause()
+                            : error;
+                    return SendResult.failed(recipient, replyCode(cause), "SMTP send failed: " + cause.getMessage(),
+                            System.nanoTime() - start);
+                });
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (blockingExecutor != null) {
+            blockingExecutor.shutdown();
+            blockingExecutor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    private boolean requiresTls(SmtpAccount account) {
+        return account.isUseTls() || (account.getPort() != null && account.getPort() == 465);
+    }
+
+    private boolean hasCredentials(SmtpAccount account) {
+        return account.getUsername() != null && !account.getUsername().isBlank();
+    }
+
+    private SignableMimeMessage buildMessage(Session session, Campaign campaign, CampaignRecipient recipient)
+            throws MessagingException, java.io.UnsupportedEncodingException {
         SmtpAccount account = campaign.getSmtpAccount();
+        SignableMimeMessage message = new SignableMimeMessage(session);
+        String senderEmail = campaign.getSenderIdentity().getEmail();
+        String smtpUsername = account.getUsername();
+        String fromEmail = senderEmail;
+        if (smtpUsername != null && smtpUsername.contains("@") && !smtpUsername.equalsIgnoreCase(senderEmail)) {
+            fromEmail = smtpUsername;
+        }
+        message.setFrom(new InternetAddress(fromEmail,
+                campaign.getSenderIdentity().getDisplayName(), StandardCharsets.UTF_8.name()));
+        if (senderEmail != null && !senderEmail.isBlank() && !senderEmail.equalsIgnoreCase(fromEmail)) {
+            message.setReplyTo(new InternetAddress[]{new InternetAddress(senderEmail,
+                    campaign.getSenderIdentity().getDisplayName(), StandardCharsets.UTF_8.name())});
+        }
+        message.setRecipient(Message.RecipientType.TO, new InternetAddress(recipient.getEmail()));
+        MergeTemplateCache.CompiledCampaign templates = templateCache.get(campaign);
+        message.setSubject(templates.subject().render(recipient), StandardCharsets.UTF_8.name());
+        boolean trackable = campaign.getId() != null && recipient.getId() != null;
+        boolean tracked = false;
+        String html = null;
+        MergeTemplate htmlBody = templates.htmlBody();
+        if (htmlBody != null && trackable && tracking.isClickEnabled() && htmlBody.hasLinks()) {
+            String clickBase = tracking.getBaseUrl() + "/public/track/click/";
+            html = htmlBody.render(recipient, (slot, out) -> out.append(clickBase).append(trackingTokens.sign(
+                    TrackingTokens.Purpose.CLICK, campaign.getId(), recipient.getId(), slot)));
+            tracked = true;
+        } else if (htmlBody != null) {
+            html = htmlBody.render(recipient);
+        }
+        if (html != null && !html.isBlank() && tracking.isOpenEnabled() && trackable) {
+            html = withOpenPixel(html, trackingTokens.sign(TrackingTokens.Purpose.OPEN, campaign.getId(), recipient.getId()));
+            tracked = true;
+        }
+        String textBody = templates.textBody().render(recipient);
+        List<com.example.bulkemail.dto.CampaignAttachment> attachments = parseAttachments(campaign.getAttachmentsJson());
+        if (attachments.isEmpty()) {
+            if (html != null && !html.isBlank()) {
+                message.setContent(html, "text/html; charset=UTF-8");
+            } else {
+                message.setText(textBody, StandardCharsets.UTF_8.name());
+            }
+        } else {
+            MimeMultipart multipart = new FixedBoundaryMultipart(boundary(campaign));
+            MimeBodyPart bodyPart = new MimeBodyPart();
+            if (html != null && !html.isBlank()) {
+                bodyPart.setContent(html, "text/html; charset=UTF-8");
+            } else {
+                bodyPart.setText(textBody, StandardCharsets.UTF_8.name());
+            }
+            multipart.addBodyPart(bodyPart);
+            for (com.example.bulkemail.dto.CampaignAttachment attachment : attachments) {
+                Path filePath = Path.of(attachmentsPath, attachment.getStoredName());
+                if (Files.exists(filePath)) {
+                    String contentType = attachment.getContentType() != null ? attachment.getContentType() : "application/octet-stream";
+                    multipart.addBodyPart(attachmentSpool.part(filePath, contentType, attachment.getOriginalName()));
+                }
+            }
+            message.setContent(multipart);
+        }
+        // Tracking URLs carry a per-recipient token, so a tracked body is never invariant.
+        boolean invariantBody = !tracked && (html != null && !html.isBlank()
+                ? templates.htmlBody().isStatic()
+                : templates.textBody().isStatic());
+        if (trackable && tracking.isUnsubscribeEnabled() && campaign.getCategory() != CampaignCategory.EMERGENCY) {
+            // RFC 8058 one-click: mailbox providers POST to the URL, so it must work without a browser session.
+            message.setHeader("List-Unsubscribe", "<" + tracking.getBaseUrl() + "/public/unsubscribe/"
+                    + trackingTokens.sign(TrackingTokens.Purpose.UNSUBSCRIBE, campaign.getId(), recipient.getId()) + ">");
+            message.setHeader("List-Unsubscribe-Post", "List-Unsubscribe=One-Click");
+        }
+        if (trackable) {
+            message.setMessageId(RecipientMessageId.format(campaign.getId(), recipient.getId(), domainOf(fromEmail)));
+        }
+        message.setSentDate(new Date());
+        message.saveChanges();
+        dkimSigner.sign(message, domainOf(fromEmail), campaign, invariantBody);
+        return message;
+    }
+
+    private JavaMailSenderImpl mailSender(SmtpAccount account) {
         JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
         mailSender.setHost(account.getHost());
         mailSender.setPort(account.getPort());
@@ -54,60 +289,64 @@ public class SmtpMailGateway implements MailGateway {
         props.put("mail.smtp.ssl.enable", String.valueOf(useSsl));
         props.put("mail.smtp.connectiontimeout", "5000");
         props.put("mail.smtp.timeout", "5000");
+        return mailSender;
+    }
 
-        try {
-            MimeMessage message = mailSender.createMimeMessage();
-            String senderEmail = campaign.getSenderIdentity().getEmail();
-            String smtpUsername = account.getUsername();
-            String fromEmail = senderEmail;
-            if (smtpUsername != null && smtpUsername.contains("@") && !smtpUsername.equalsIgnoreCase(senderEmail)) {
-                fromEmail = smtpUsername;
+    private int lastReturnCode(Transport transport) {
+        return transport instanceof SMTPTransport smtp ? smtp.getLastReturnCode() : 250;
+    }
+
+    private int replyCode(Throwable error) {
+        Throwable current = error;
+        while (current != null) {
+            if (current instanceof SMTPAddressFailedException address) {
+                return address.getReturnCode();
             }
-            message.setFrom(new InternetAddress(fromEmail,
-                    campaign.getSenderIdentity().getDisplayName(), StandardCharsets.UTF_8.name()));
-            if (senderEmail != null && !senderEmail.isBlank() && !senderEmail.equalsIgnoreCase(fromEmail)) {
-                message.setReplyTo(new InternetAddress[]{new InternetAddress(senderEmail,
-                        campaign.getSenderIdentity().getDisplayName(), StandardCharsets.UTF_8.name())});
+            if (current instanceof SMTPSendFailedException send) {
+                return send.getReturnCode();
             }
-            message.setRecipient(Message.RecipientType.TO, new InternetAddress(recipient.getEmail()));
-            message.setSubject(campaign.getSubject(), StandardCharsets.UTF_8.name());
-            String html = campaign.getHtmlBody();
-            String textBody = campaign.getTextBody() != null ? campaign.getTextBody() : "";
-            List<com.example.bulkemail.dto.CampaignAttachment> attachments = parseAttachments(campaign.getAttachmentsJson());
-            if (attachments.isEmpty()) {
-                if (html != null && !html.isBlank()) {
-                    message.setContent(html, "text/html; charset=UTF-8");
-                } else {
-                    message.setText(textBody, StandardCharsets.UTF_8.name());
-                }
-            } else {
-                MimeMultipart multipart = new MimeMultipart();
-                MimeBodyPart bodyPart = new MimeBodyPart();
-                if (html != null && !html.isBlank()) {
-                    bodyPart.setContent(html, "text/html; charset=UTF-8");
-                } else {
-                    bodyPart.setText(textBody, StandardCharsets.UTF_8.name());
-                }
-                multipart.addBodyPart(bodyPart);
-                for (com.example.bulkemail.dto.CampaignAttachment attachment : attachments) {
-                    Path filePath = Path.of(attachmentsPath, attachment.getStoredName());
-                    if (Files.exists(filePath)) {
-                        MimeBodyPart attachPart = new MimeBodyPart();
-                        byte[] bytes = Files.readAllBytes(filePath);
-                        String contentType = attachment.getContentType() != null ? attachment.getContentType() : "application/octet-stream";
-                        DataSource dataSource = new ByteArrayDataSource(bytes, contentType);
-                        attachPart.setDataHandler(new DataHandler(dataSource));
-                        attachPart.setFileName(attachment.getOriginalName());
-                        multipart.addBodyPart(attachPart);
-                    }
-                }
-                message.setContent(multipart);
+            if (current instanceof AsyncSmtpClient.SmtpReplyException reply) {
+                return reply.getCode();
             }
-            mailSender.send(message);
-        } catch (MessagingException | java.io.UnsupportedEncodingException e) {
-            throw new IllegalStateException("SMTP send failed: " + e.getMessage(), e);
-        } catch (Exception e) {
-            throw new IllegalStateException("SMTP send failed: " + e.getMessage(), e);
+            current = current instanceof MessagingException messaging && messaging.getNextException() != null
+                    ? messaging.getNextException()
+                    : current.getCause();
+        }
+        return 0;
+    }
+
+    private String withOpenPixel(String html, String token) {
+        String pixel = "<img src=\"" + tracking.getBaseUrl() + "/public/track/open/" + token
+                + "\" width=\"1\" height=\"1\" alt=\"\" style=\"display:none\">";
+        int bodyEnd = html.length() - 7;
+        while (bodyEnd >= 0 && !html.regionMatches(true, bodyEnd, "</body>", 0, 7)) {
+            bodyEnd--;
+        }
+        if (bodyEnd < 0) {
+            return html + pixel;
+        }
+        return html.substring(0, bodyEnd) + pixel + html.substring(bodyEnd);
+    }
+
+    private String domainOf(String email) {
+        int at = email != null ? email.lastIndexOf('@') : -1;
+        return at >= 0 ? email.substring(at + 1) : null;
+    }
+
+    // A stable boundary per campaign version keeps the serialized body identical across recipients,
+    // which is what lets the DKIM body hash be cached.
+    private String boundary(Campaign campaign) {
+        if (campaign.getId() == null) {
+            return "=_bulkemail_" + UUID.randomUUID();
+        }
+        long version = campaign.getUpdatedAt() != null ? campaign.getUpdatedAt().toEpochMilli() : 0;
+        return "=_bulkemail_" + campaign.getId() + "_" + Long.toHexString(version);
+    }
+
+    private static final class FixedBoundaryMultipart extends MimeMultipart {
+        private FixedBoundaryMultipart(String boundary) {
+            super();
+            this.contentType = "multipart/mixed; boundary=\"" + boundary + "\"";
         }
     }
 
@@ -0,0 +1,148 @@
+package com.example.bulkemail.sending;
+
+import jakarta.activation.DataHandler;
+import jakarta.activation.DataSource;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeBodyPart;
+import jakarta.mail.internet.MimeUtility;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Base64;
+import java.util.Enumeration;
+import java.util.Locale;
+
+// Attachment body part that never holds the file on heap. It either copies a pre-encoded spool file
+// (see AttachmentSpool) or encodes the original chunk by chunk straight onto the output stream.
+public class StreamingAttachmentPart extends MimeBodyPart {
+    static final int CHUNK_SIZE = 48 * 1024;
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    private final Path file;
+    private final Path preEncoded;
+    private final String encoding;
+
+    public StreamingAttachmentPart(Path file, String contentType, String fileName) throws MessagingException {
+        this(file, null, encodingFor(contentType), contentType, fileName);
+    }
+
+    private StreamingAttachmentPart(Path file, Path preEncoded, String encoding, String contentType, String fileName)
+            throws MessagingException {
+        this.file = file;
+        this.preEncoded = preEncoded;
+        this.encoding = encoding;
+        setDataHandler(new DataHandler(new FileChannelDataSource(file, contentType, fileName)));
+        setHeader("Content-Type", contentType);
+        setHeader("Content-Transfer-Encoding", encoding);
+        setFileName(fileName);
+    }
+
+    public static StreamingAttachmentPart preEncoded(Path file, Path preEncoded, String encoding, String contentType,
+                                                     String fileName) throws MessagingException {
+        return new StreamingAttachmentPart(file, preEncoded, encoding, contentType, fileName);
+    }
+
+    public static String encodingFor(String contentType) {
+        return contentType != null && contentType.toLowerCase(Locale.ROOT).startsWith("text/")
+                ? "quoted-printable"
+                : "base64";
+    }
+
+    // Spool files and on-the-fly parts share this encoder so both produce byte-identical output.
+    public static void encode(Path file, OutputStream target, String encoding) throws IOException {
+        OutputStream encoder;
+        if ("base64".equals(encoding)) {
+            encoder = Base64.getMimeEncoder().wrap(new NonClosingOutputStream(target));
+        } else {
+            try {
+                encoder = MimeUtility.encode(new NonClosingOutputStream(target), encoding);
+            } catch (MessagingException e) {
+                throw new IOException("Unsupported transfer encoding " + encoding, e);
+            }
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(CHUNK_SIZE);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                encoder.write(buffer.array(), 0, buffer.limit());
+                buffer.clear();
+            }
+        }
+        encoder.close();
+    }
+
+    @Override
+    public void writeTo(OutputStream os) throws IOException, MessagingException {
+        writeHeaders(os);
+        if (preEncoded == null) {
+            encode(file, os, encoding);
+            return;
+        }
+        // transferTo is zero-copy when the target is a socket or file channel; behind the SMTP
+        // dot-stuffing stream (and TLS) the JDK falls back to a bounded buffered copy.
+        try (FileChannel channel = FileChannel.open(preEncoded, StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(new NonClosingOutputStream(os));
+            long size = channel.size();
+            long position = 0;
+            while (position < size) {
+                position += channel.transferTo(position, size - position, target);
+            }
+        }
+    }
+
+    private void writeHeaders(OutputStream os) throws IOException, MessagingException {
+        Enumeration<String> lines = getAllHeaderLines();
+        while (lines.hasMoreElements()) {
+            os.write(lines.nextElement().getBytes(StandardCharsets.UTF_8));
+            os.write(CRLF);
+        }
+        os.write(CRLF);
+    }
+
+    private static final class NonClosingOutputStream extends FilterOutputStream {
+        private NonClosingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            out.write(bytes, offset, length);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+
+    private record FileChannelDataSource(Path file, String contentType, String name) implements DataSource {
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return Channels.newInputStream(FileChannel.open(file, StandardOpenOption.READ));
+        }
+
+        @Override
+        public OutputStream getOutputStream() throws IOException {
+            throw new IOException("Attachment data source is read-only");
+        }
+
+        @Override
+        public String getContentType() {
+            return contentType;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.example.bulkemail.sending;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+// Domain and wildcard suppression rules compiled into a trie keyed by domain labels, right to left.
+// Supported patterns (case-insensitive):
+//   example.com            every address at example.com
+//   *.example.com          every address at any subdomain of example.com
+//   noreply@*              that local part at any domain
+//   noreply@example.com    local part and domain may be combined with either domain form
+// A lookup walks the address in place: labels and local parts are hashed and compared over index ranges
+// of the input, so matching allocates nothing and costs one probe per domain label.
+public final class SuppressionMatcher {
+    private static final SuppressionMatcher EMPTY = new SuppressionMatcher(new Builder().freeze(), 0);
+
+    private final Node root;
+    private final int ruleCount;
+
+    private SuppressionMatcher(Node root, int ruleCount) {
+        this.root = root;
+        this.ruleCount = ruleCount;
+    }
+
+    public static SuppressionMatcher empty() {
+        return EMPTY;
+    }
+
+    // Throws IllegalArgumentException naming the first pattern that is not one of the supported forms.
+    public static SuppressionMatcher compile(Collection<String> patterns) {
+        Builder root = new Builder();
+        for (String pattern : patterns) {
+            add(root, pattern);
+        }
+        return patterns.isEmpty() ? EMPTY : new SuppressionMatcher(root.freeze(), patterns.size());
+    }
+
+    // Normalized form of a pattern, as it is stored; throws IllegalArgumentException when unsupported.
+    public static String normalize(String pattern) {
+        Builder scratch = new Builder();
+        return add(scratch, pattern);
+    }
+
+    public int size() {
+        return ruleCount;
+    }
+
+    public boolean matches(String email) {
+        if (email == null || ruleCount == 0) {
+            return false;
+        }
+        int at = email.lastIndexOf('@');
+        int end = email.length();
+        if (end > 0 && email.charAt(end - 1) == '.') {
+            end--;
+        }
+        if (at <= 0 || at >= end - 1) {
+            return false;
+        }
+        Node node = root;
+        if (node.coversSubdomains(email, 0, at)) {
+            return true;
+        }
+        while (true) {
+            int dot = email.lastIndexOf('.', end - 1);
+            int start = dot > at ? dot + 1 : at + 1;
+            node = node.children.get(email, start, end);
+            if (node == null) {
+                return false;
+            }
+            if (start == at + 1) {
+                return node.coversDomain(email, 0, at);
+            }
+            if (node.coversSubdomains(email, 0, at)) {
+                return true;
+            }
+            end = start - 1;
+        }
+    }
+
+    private static String add(Builder root, String pattern) {
+        if (pattern == null || pattern.isBlank()) {
+            throw new IllegalArgumentException("Suppression pattern is empty");
+        }
+        String normalized = pattern.trim().toLowerCase(Locale.ROOT);
+        String local = null;
+        String domain = normalized;
+        int at = normalized.lastIndexOf('@');
+        if (at >= 0) {
+            local = normalized.substring(0, at);
+            domain = normalized.substring(at + 1);
+            if (local.isEmpty() || local.equals("*")) {
+                local = null;
+            } else if (local.indexOf('*') >= 0 || local.indexOf('@') >= 0) {
+                throw new IllegalArgumentException("Unsupported suppression pattern: " + pattern);
+            }
+        }
+        if (domain.endsWith(".")) {
+            domain = domain.substring(0, domain.length() - 1);
+        }
+        boolean subdomains = false;
+        if (domain.equals("*")) {
+            if (local == null) {
+                throw new IllegalArgumentException("Pattern would suppress every address: " + pattern);
+            }
+            root.subtree.add(local);
+            return local + "@*";
+        }
+        if (domain.startsWith("*.")) {
+            subdomains = true;
+            domain = domain.substring(2);
+        }
+        String[] labels = domain.split("\\.", -1);
+        Builder node = root;
+        for (int i = labels.length - 1; i >= 0; i--) {
+            String label = labels[i];
+            if (label.isEmpty() || label.indexOf('*') >= 0 || label.indexOf('@') >= 0) {
+                throw new IllegalArgumentException("Unsupported suppression pattern: " + pattern);
+            }
+            node = node.children.computeIfAbsent(label, key -> new Builder());
+        }
+        (subdomains ? node.subtree : node.exact).add(local);
+        String prefix = local != null ? local + "@" : "";
+        return prefix + (subdomains ? "*." : "") + domain;
+    }
+
+    private static final class Builder {
+        private final Map<String, Builder> children = new HashMap<>();
+        // A null entry stands for "any local part".
+        private final Set<String> exact = new HashSet<>();
+        private final Set<String> subtree = new HashSet<>();
+
+        private Node freeze() {
+            List<String> labels = new ArrayList<>(children.keySet());
+            Node[] nodes = new Node[labels.size()];
+            for (int i = 0; i < nodes.length; i++) {
+                nodes[i] = children.get(labels.get(i)).freeze();
+            }
+            return new Node(new RegionTable<>(labels, nodes), exact.contains(null), locals(exact),
+                    subtree.contains(null), locals(subtree));
+        }
+
+        private static RegionTable<Boolean> locals(Set<String> values) {
+            List<String> keys = values.stream().filter(Objects::nonNull).toList();
+            Boolean[] flags = new Boolean[keys.size()];
+            Arrays.fill(flags, Boolean.TRUE);
+            return new RegionTable<>(keys, flags);
+        }
+    }
+
+    private record Node(RegionTable<Node> children, boolean domainAll, RegionTable<Boolean> domainLocals,
+                        boolean subdomainsAll, RegionTable<Boolean> subdomainLocals) {
+        boolean coversDomain(String email, int from, int to) {
+            return domainAll || domainLocals.get(email, from, to) != null;
+        }
+
+        boolean coversSubdomains(String email, int from, int to) {
+            return subdomainsAll || subdomainLocals.get(email, from, to) != null;
+        }
+    }
+
+    // Open-addressing table of lower-case keys, probed with a range of a larger string.
+    private static final class RegionTable<V> {
+        private final String[] keys;
+        private final Object[] values;
+        private final int mask;
+
+        private RegionTable(List<String> keys, V[] values) {
+            int capacity = Integer.highestOneBit(Math.max(1, keys.size() * 2 - 1)) << 1;
+            this.keys = new String[capacity];
+            this.values = new Object[capacity];
+            this.mask = capacity - 1;
+            for (int i = 0; i < keys.size(); i++) {
+                String key = keys.get(i);
+                int slot = hash(key, 0, key.length()) & mask;
+                while (this.keys[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                this.keys[slot] = key;
+                this.values[slot] = values[i];
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        V get(String source, int from, int to) {
+            int length = to - from;
+            int slot = hash(source, from, to) & mask;
+            String key;
+            while ((key = keys[slot]) != null) {
+                if (key.length() == length && key.regionMatches(true, 0, source, from, length)) {
+                    return (V) values[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+            return null;
+        }
+
+        private static int hash(String source, int from, int to) {
+            int h = 0;
+            for (int i = from; i < to; i++) {
+                h = 31 * h + Character.toLowerCase(source.charAt(i));
+            }
+            return h ^ (h >>> 16);
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.example.bulkemail.sending;
 
 import org.springframework.stereotype.Service;
 
+import java.time.Clock;
 import java.time.Instant;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -9,10 +10,20 @@ import java.util.concurrent.ConcurrentHashMap;
 @Service
 public class ThrottleService {
     private final Map<Long, Counter> counters = new ConcurrentHashMap<>();
+    private final Clock clock;
+
+    public ThrottleService() {
+        this(Clock.systemUTC());
+    }
+
+    // The dispatch simulator runs its own instance against a virtual clock.
+    public ThrottleService(Clock clock) {
+        this.clock = clock;
+    }
 
     public synchronized boolean tryConsume(Long smtpAccountId, int perMinute) {
         Counter counter = counters.computeIfAbsent(smtpAccountId, id -> new Counter());
-        Instant now = Instant.now();
+        Instant now = clock.instant();
         if (counter.windowStart == null || now.isAfter(counter.windowStart.plusSeconds(60))) {
             counter.windowStart = now;
             counter.count = 0;
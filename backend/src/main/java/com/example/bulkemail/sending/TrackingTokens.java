@@ -0,0 +1,126 @@
+package com.example.bulkemail.sending;
+
+import com.example.bulkemail.config.AppProperties;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.Optional;
+
+// Self-contained recipient tokens for links embedded in outgoing mail. The campaign and recipient ids
+// travel in the token next to a truncated HMAC, so a hit can be attributed without touching the database.
+// Links must keep working after a restart and point at a reachable host, so startup fails when any tracking
+// feature is enabled without app.tracking.secret and app.tracking.base-url.
+@Component
+public class TrackingTokens {
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int MAC_BYTES = 12;
+
+    private final ThreadLocal<Mac> macs;
+
+    public TrackingTokens(AppProperties appProperties) {
+        AppProperties.Tracking tracking = appProperties.getTracking();
+        String secret = tracking.getSecret();
+        boolean enabled = tracking.isOpenEnabled() || tracking.isClickEnabled() || tracking.isUnsubscribeEnabled();
+        if (enabled && (secret == null || secret.isBlank())) {
+            throw new IllegalStateException("app.tracking.secret (TRACKING_SECRET) is required when open, click "
+                    + "or unsubscribe tracking is enabled");
+        }
+        if (enabled && (tracking.getBaseUrl() == null || tracking.getBaseUrl().isBlank())) {
+            throw new IllegalStateException("app.tracking.base-url (TRACKING_BASE_URL) is required when open, "
+                    + "click or unsubscribe tracking is enabled");
+        }
+        if (secret == null || secret.isBlank()) {
+            // Nothing is signed while every tracking feature is off; tokens from earlier runs no longer verify.
+            this.macs = null;
+            return;
+        }
+        SecretKeySpec spec = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+        this.macs = ThreadLocal.withInitial(() -> {
+            try {
+                Mac mac = Mac.getInstance(ALGORITHM);
+                mac.init(spec);
+                return mac;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("HMAC unavailable", e);
+            }
+        });
+    }
+
+    public String sign(Purpose purpose, long campaignId, long recipientId) {
+        return sign(purpose, campaignId, recipientId, 0);
+    }
+
+    // The slot is only encoded for purposes that carry one.
+    public String sign(Purpose purpose, long campaignId, long recipientId, int slot) {
+        ByteBuffer buffer = ByteBuffer.allocate(purpose.idBytes + MAC_BYTES);
+        buffer.putLong(campaignId).putLong(recipientId);
+        if (purpose.withSlot) {
+            buffer.putInt(slot);
+        }
+        buffer.put(mac(purpose, buffer.array()), 0, MAC_BYTES);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+    }
+
+    public Optional<Token> verify(Purpose purpose, String token) {
+        if (macs == null) {
+            return Optional.empty();
+        }
+        int tokenBytes = purpose.idBytes + MAC_BYTES;
+        if (token == null || token.length() != (tokenBytes * 4 + 2) / 3) {
+            return Optional.empty();
+        }
+        byte[] raw;
+        try {
+            raw = Base64.getUrlDecoder().decode(token);
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+        if (raw.length != tokenBytes) {
+            return Optional.empty();
+        }
+        byte[] expected = mac(purpose, raw);
+        byte[] actual = new byte[MAC_BYTES];
+        byte[] truncated = new byte[MAC_BYTES];
+        System.arraycopy(raw, purpose.idBytes, actual, 0, MAC_BYTES);
+        System.arraycopy(expected, 0, truncated, 0, MAC_BYTES);
+        if (!MessageDigest.isEqual(actual, truncated)) {
+            return Optional.empty();
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(raw);
+        return Optional.of(new Token(buffer.getLong(), buffer.getLong(), purpose.withSlot ? buffer.getInt() : 0));
+    }
+
+    // The purpose is part of the MAC input, so a token minted for one endpoint is rejected by the others.
+    private byte[] mac(Purpose purpose, byte[] raw) {
+        if (macs == null) {
+            throw new IllegalStateException("Tracking tokens need app.tracking.secret");
+        }
+        Mac mac = macs.get();
+        mac.update((byte) purpose.ordinal());
+        mac.update(raw, 0, purpose.idBytes);
+        return mac.doFinal();
+    }
+
+    public enum Purpose {
+        OPEN(false),
+        CLICK(true),
+        UNSUBSCRIBE(false);
+
+        private final boolean withSlot;
+        private final int idBytes;
+
+        Purpose(boolean withSlot) {
+            this.withSlot = withSlot;
+            this.idBytes = withSlot ? 20 : 16;
+        }
+    }
+
+    public record Token(long campaignId, long recipientId, int slot) {
+    }
+}
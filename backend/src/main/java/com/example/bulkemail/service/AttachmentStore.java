@@ -0,0 +1,178 @@
+package com.example.bulkemail.service;
+
+import com.example.bulkemail.dto.CampaignAttachment;
+import com.example.bulkemail.entity.AttachmentBlob;
+import com.example.bulkemail.repo.AttachmentBlobRepository;
+import com.example.bulkemail.sending.AttachmentSpool;
+import jakarta.transaction.Transactional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+// Content-addressed attachment storage: files live under blobs/<xx>/<sha256> and are shared by every
+// campaign that references the same bytes. Reference counts follow the campaigns' attachmentsJson.
+// Attachments uploaded before content addressing carry no sha256. They are never counted or collected, because
+// duplicated campaigns may share their files, so those files stay on disk until removed by hand.
+@Service
+public class AttachmentStore {
+    private static final Logger logger = LoggerFactory.getLogger(AttachmentStore.class);
+    private static final Duration ORPHAN_GRACE = Duration.ofHours(1);
+
+    private final AttachmentBlobRepository blobRepository;
+    private final AttachmentSpool attachmentSpool;
+    private final Path root;
+    private final Object lock = new Object();
+    // Blobs whose row is deleted in a transaction that has not finished yet. Guarded by lock.
+    private final Set<String> pendingDeletes = new HashSet<>();
+
+    public AttachmentStore(AttachmentBlobRepository blobRepository, AttachmentSpool attachmentSpool,
+                           @Value("${app.attachments.path:/root/Attachments Files}") String attachmentsPath) {
+        this.blobRepository = blobRepository;
+        this.attachmentSpool = attachmentSpool;
+        this.root = Path.of(attachmentsPath);
+    }
+
+    // Streams the upload to a temp file while hashing it, then moves it to its content address.
+    // The blob starts unreferenced; syncReferences() counts it once the campaign is saved.
+    @Transactional
+    public StoredBlob store(MultipartFile file) throws IOException {
+        Files.createDirectories(root);
+        Path temp = Files.createTempFile(root, "upload-", ".tmp");
+        try {
+            MessageDigest digest = sha256();
+            long size;
+            try (InputStream in = new DigestInputStream(file.getInputStream(), digest);
+                 OutputStream out = Files.newOutputStream(temp)) {
+                size = in.transferTo(out);
+            }
+            String hash = HexFormat.of().formatHex(digest.digest());
+            String storedName = storedName(hash);
+            Path target = root.resolve(storedName);
+            blobRepository.register(hash, size, Instant.now());
+            synchronized (lock) {
+                // The same bytes were just collected by a transaction that has not finished; keep the file.
+                pendingDeletes.remove(hash);
+                if (!Files.exists(target)) {
+                    Files.createDirectories(target.getParent());
+                    Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+                }
+            }
+            return new StoredBlob(hash, storedName, size);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // The lists must come from the server: CampaignService only passes attachments created by store(). A newly
+    // referenced blob whose row is gone fails the save instead of leaving the campaign with a dangling file.
+    @Transactional
+    public void syncReferences(List<CampaignAttachment> before, List<CampaignAttachment> after) {
+        Set<String> previous = hashes(before);
+        Set<String> current = hashes(after);
+        for (String hash : current) {
+            if (!previous.contains(hash) && blobRepository.acquire(hash) == 0) {
+                throw new IllegalStateException("Attachment blob " + hash + " no longer exists");
+            }
+        }
+        for (String hash : previous) {
+            if (!current.contains(hash) && blobRepository.release(hash) > 0) {
+                collect(hash);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.attachments.gc-interval-ms:3600000}")
+    @Transactional
+    public void collectGarbage() {
+        for (AttachmentBlob blob : blobRepository.findByRefCountLessThanEqualAndCreatedAtBefore(0,
+                Instant.now().minus(ORPHAN_GRACE))) {
+            collect(blob.getSha256());
+        }
+    }
+
+    // Deletes the row now and the file only once that delete has committed, so a rollback never leaves a row
+    // without its file. A blob registered within the grace period is kept, since its upload may not be
+    // referenced by a saved campaign yet.
+    private void collect(String hash) {
+        if (blobRepository.deleteIfUnreferenced(hash, Instant.now().minus(ORPHAN_GRACE)) == 0) {
+            return;
+        }
+        synchronized (lock) {
+            pendingDeletes.add(hash);
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            deleteFile(hash, true);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                deleteFile(hash, status == STATUS_COMMITTED);
+            }
+        });
+    }
+
+    private void deleteFile(String hash, boolean committed) {
+        synchronized (lock) {
+            if (!pendingDeletes.remove(hash) || !committed) {
+                return;
+            }
+            Path file = root.resolve(storedName(hash));
+            attachmentSpool.evict(file);
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                logger.warn("Attachment blob cleanup failed for {}: {}", file, e.getMessage());
+            }
+        }
+    }
+
+    private Set<String> hashes(List<CampaignAttachment> attachments) {
+        Set<String> hashes = new LinkedHashSet<>();
+        if (attachments != null) {
+            for (CampaignAttachment attachment : attachments) {
+                if (attachment.getSha256() != null) {
+                    hashes.add(attachment.getSha256());
+                }
+            }
+        }
+        return hashes;
+    }
+
+    private String storedName(String hash) {
+        return "blobs/" + hash.substring(0, 2) + "/" + hash;
+    }
+
+    private MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public record StoredBlob(String sha256, String storedName, long size) {
+    }
+}
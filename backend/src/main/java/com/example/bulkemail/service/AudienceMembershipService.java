@@ -0,0 +1,167 @@
+package com.example.bulkemail.service;
+
+import com.example.bulkemail.entity.AudienceRule;
+import com.example.bulkemail.entity.AudienceRuleType;
+import com.example.bulkemail.entity.EmployeeStatus;
+import com.example.bulkemail.repo.AudienceRuleRepository;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+// Keeps audience_members, the materialized result of each audience's rules, in step with the directory.
+// A rule change recomputes that audience; an employee write recomputes only that employee's memberships; a
+// department or location rename recomputes the audiences that filter on those names. Employee deletes cascade.
+// An audience whose members_refreshed_at is null (created before materialization, or never refreshed) is
+// computed on first read. Expansion reads the table instead of the rules. Preview and simulation counts come from
+// the in-memory EmployeeBitmapIndex when it is built, and from the table otherwise.
+@Service
+public class AudienceMembershipService {
+    // Above this many changed employees, recomputing every audience is cheaper than probing per employee.
+    private static final int FULL_REFRESH_THRESHOLD = 1000;
+    private static final String FROM = "from employees e "
+            + "left join departments d on d.id = e.department_id "
+            + "left join locations l on l.id = e.location_id ";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AudienceRuleRepository audienceRuleRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final EmployeeBitmapIndex bitmapIndex;
+
+    public AudienceMembershipService(JdbcTemplate jdbcTemplate, AudienceRuleRepository audienceRuleRepository,
+                                     PlatformTransactionManager transactionManager, EmployeeBitmapIndex bitmapIndex) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.audienceRuleRepository = audienceRuleRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.bitmapIndex = bitmapIndex;
+    }
+
+    // Recomputes one audience, joining the caller's transaction if there is one. The audience row is locked,
+    // so concurrent refreshes of it run one after another.
+    public void refreshAudience(Long audienceId) {
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Long> locked = jdbcTemplate.queryForList("select id from audiences where id = ? for update",
+                    Long.class, audienceId);
+            if (locked.isEmpty()) {
+                return;
+            }
+            jdbcTemplate.update("delete from audience_members where audience_id = ?", audienceId);
+            List<Object> args = new ArrayList<>();
+            args.add(audienceId);
+            String predicate = toSqlPredicate(audienceRuleRepository.findByAudienceId(audienceId), args);
+            jdbcTemplate.update("insert into audience_members (audience_id, employee_id) select ?, e.id " + FROM
+                    + "where " + predicate + " on conflict do nothing", args.toArray());
+            jdbcTemplate.update("update audiences set members_refreshed_at = now() where id = ?", audienceId);
+        });
+    }
+
+    // Recomputes the memberships of the given employees after they were created, updated or imported.
+    // Audiences that were never materialized are skipped; their first read computes them in full.
+    public void refreshEmployees(Collection<Long> employeeIds) {
+        if (employeeIds.isEmpty()) {
+            return;
+        }
+        if (employeeIds.size() > FULL_REFRESH_THRESHOLD) {
+            refreshAll();
+            return;
+        }
+        String ids = String.join(",", Collections.nCopies(employeeIds.size(), "?"));
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("delete from audience_members where employee_id in (" + ids + ")",
+                    employeeIds.toArray());
+            for (Long audienceId : jdbcTemplate.queryForList("select id from audiences "
+                    + "where members_refreshed_at is not null", Long.class)) {
+                List<Object> args = new ArrayList<>();
+                args.add(audienceId);
+                String predicate = toSqlPredicate(audienceRuleRepository.findByAudienceId(audienceId), args);
+                args.addAll(employeeIds);
+                jdbcTemplate.update("insert into audience_members (audience_id, employee_id) select ?, e.id " + FROM
+                        + "where " + predicate + " and e.id in (" + ids + ") on conflict do nothing", args.toArray());
+            }
+        });
+    }
+
+    // Recomputes the audiences that have a rule of this type, after a department or location changed.
+    public void refreshRuleType(AudienceRuleType type) {
+        List<Long> audienceIds = jdbcTemplate.queryForList("select distinct audience_id from audience_rules "
+                + "where rule_type = ?", Long.class, type.name());
+        audienceIds.forEach(this::refreshAudience);
+    }
+
+    public void refreshAll() {
+        jdbcTemplate.queryForList("select id from audiences", Long.class).forEach(this::refreshAudience);
+    }
+
+    // Computes any of the audiences that have never been materialized.
+    public void ensureFresh(Collection<Long> audienceIds) {
+        for (Long audienceId : audienceIds) {
+            Boolean stale = jdbcTemplate.queryForObject("select exists (select 1 from audiences "
+                    + "where id = ? and members_refreshed_at is null)", Boolean.class, audienceId);
+            if (Boolean.TRUE.equals(stale)) {
+                refreshAudience(audienceId);
+            }
+        }
+    }
+
+    // Distinct employees in any of the audiences.
+    public long countMembers(Collection<Long> audienceIds) {
+        if (audienceIds.isEmpty()) {
+            return 0;
+        }
+        IdBitmap members = indexed(audienceIds);
+        if (members != null) {
+            return members.cardinality();
+        }
+        ensureFresh(audienceIds);
+        String ids = String.join(",", Collections.nCopies(audienceIds.size(), "?"));
+        String sql = audienceIds.size() == 1
+                ? "select count(*) from audience_members where audience_id = ?"
+                : "select count(distinct employee_id) from audience_members where audience_id in (" + ids + ")";
+        Long count = jdbcTemplate.queryForObject(sql, Long.class, audienceIds.toArray());
+        return count != null ? count : 0;
+    }
+
+    public List<Long> sampleMembers(Long audienceId, int limit) {
+        IdBitmap members = indexed(List.of(audienceId));
+        if (members != null) {
+            return members.first(limit);
+        }
+        ensureFresh(List.of(audienceId));
+        return jdbcTemplate.queryForList("select employee_id from audience_members where audience_id = ? "
+                + "order by employee_id limit ?", Long.class, audienceId, limit);
+    }
+
+    // Members according to the bitmap index, or null while it is not built. Unknown audience ids match nobody.
+    private IdBitmap indexed(Collection<Long> audienceIds) {
+        return bitmapIndex.match(audienceIds);
+    }
+
+    // The audience's rules as SQL over employees e left-joined to departments d and locations l.
+    // Values are appended to args in placeholder order. TITLE_CONTAINS is a literal substring match, so LIKE
+    // wildcards in the value are escaped.
+    public String toSqlPredicate(List<AudienceRule> rules, List<Object> args) {
+        List<String> predicates = new ArrayList<>();
+        for (AudienceRule rule : rules) {
+            if (rule.getRuleType() == AudienceRuleType.DEPARTMENT) {
+                predicates.add("lower(d.name) = ?");
+                args.add(rule.getRuleValue().toLowerCase(Locale.ROOT));
+            } else if (rule.getRuleType() == AudienceRuleType.LOCATION) {
+                predicates.add("lower(l.name) = ?");
+                args.add(rule.getRuleValue().toLowerCase(Locale.ROOT));
+            } else if (rule.getRuleType() == AudienceRuleType.TITLE_CONTAINS) {
+                predicates.add("lower(e.title) like ? escape '\\'");
+                args.add("%" + rule.getRuleValue().toLowerCase(Locale.ROOT).replaceAll("([\\\\%_])", "\\\\$1") + "%");
+            } else if (rule.getRuleType() == AudienceRuleType.STATUS) {
+                predicates.add("e.status = ?");
+                args.add(EmployeeStatus.valueOf(rule.getRuleValue().toUpperCase(Locale.ROOT)).name());
+            }
+        }
+        return predicates.isEmpty() ? "true" : "(" + String.join(" and ", predicates) + ")";
+    }
+}
@@ -6,9 +6,6 @@ import com.example.bulkemail.repo.AudienceRepository;
 import com.example.bulkemail.repo.AudienceRuleRepository;
 import com.example.bulkemail.repo.EmployeeRepository;
 import com.example.bulkemail.security.SecurityUtil;
-import jakarta.persistence.criteria.Join;
-import jakarta.persistence.criteria.Predicate;
-import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
@@ -24,14 +21,19 @@ public class AudienceService {
     private final AudienceRuleRepository audienceRuleRepository;
     private final EmployeeRepository employeeRepository;
     private final com.example.bulkemail.repo.CampaignAudienceRepository campaignAudienceRepository;
+    private final AudienceMembershipService membershipService;
+    private final EmployeeBitmapIndex bitmapIndex;
 
     public AudienceService(AudienceRepository audienceRepository, AudienceRuleRepository audienceRuleRepository,
                            EmployeeRepository employeeRepository,
-                           com.example.bulkemail.repo.CampaignAudienceRepository campaignAudienceRepository) {
+                           com.example.bulkemail.repo.CampaignAudienceRepository campaignAudienceRepository,
+                           AudienceMembershipService membershipService, EmployeeBitmapIndex bitmapIndex) {
         this.audienceRepository = audienceRepository;
         this.audienceRuleRepository = audienceRuleRepository;
         this.employeeRepository = employeeRepository;
         this.campaignAudienceRepository = campaignAudienceRepository;
+        this.membershipService = membershipService;
+        this.bitmapIndex = bitmapIndex;
     }
 
     public AudienceResponse create(AudienceCreateRequest request) {
@@ -42,6 +44,8 @@ public class AudienceService {
         audience.setCreatedAt(Instant.now());
         Audience saved = audienceRepository.save(audience);
         List<AudienceRuleDto> rules = saveRules(saved, request.getRules());
+        membershipService.refreshAudience(saved.getId());
+        bitmapIndex.evictAudience(saved.getId());
         AudienceResponse response = toResponse(saved);
         response.setRules(rules);
         return response;
@@ -56,6 +60,8 @@ public class AudienceService {
         Audience saved = audienceRepository.save(audience);
         audienceRuleRepository.deleteByAudienceId(audienceId);
         List<AudienceRuleDto> rules = saveRules(saved, request.getRules());
+        membershipService.refreshAudience(audienceId);
+        bitmapIndex.evictAudience(audienceId);
         AudienceResponse response = toResponse(saved);
         response.setRules(rules);
         return response;
@@ -66,6 +72,7 @@ public class AudienceService {
         campaignAudienceRepository.deleteByAudienceId(audienceId);
         audienceRuleRepository.deleteByAudienceId(audienceId);
         audienceRepository.deleteById(audienceId);
+        bitmapIndex.evictAudience(audienceId);
     }
 
     public List<AudienceResponse> list() {
@@ -77,14 +84,13 @@ public class AudienceService {
         }).toList();
     }
 
+    // Reads the materialized membership; the rules are only evaluated when they or the directory change.
     public AudiencePreviewResponse preview(Long audienceId) {
         Audience audience = audienceRepository.findById(audienceId)
                 .orElseThrow(() -> new IllegalArgumentException("Audience not found"));
-        List<AudienceRule> rules = audienceRuleRepository.findByAudienceId(audience.getId());
-        Specification<Employee> spec = toSpecification(rules);
-        long count = employeeRepository.count(spec);
+        long count = membershipService.countMembers(List.of(audience.getId()));
         List<EmployeeDto> sample = employeeRepository
-                .findAll(spec, org.springframework.data.domain.PageRequest.of(0, 10))
+                .findAllById(membershipService.sampleMembers(audience.getId(), 10))
                 .stream().map(this::toEmployeeDto).toList();
         AudiencePreviewResponse response = new AudiencePreviewResponse();
         response.setCount(count);
@@ -92,26 +98,6 @@ public class AudienceService {
         return response;
     }
 
-    public Specification<Employee> toSpecification(List<AudienceRule> rules) {
-        return (root, query, cb) -> {
-            List<Predicate> predicates = new ArrayList<>();
-            for (AudienceRule rule : rules) {
-                if (rule.getRuleType() == AudienceRuleType.DEPARTMENT) {
-                    Join<Employee, Department> dept = root.join("department");
-                    predicates.add(cb.equal(cb.lower(dept.get("name")), rule.getRuleValue().toLowerCase()));
-                } else if (rule.getRuleType() == AudienceRuleType.LOCATION) {
-                    Join<Employee, Location> loc = root.join("location");
-                    predicates.add(cb.equal(cb.lower(loc.get("name")), rule.getRuleValue().toLowerCase()));
-                } else if (rule.getRuleType() == AudienceRuleType.TITLE_CONTAINS) {
-                    predicates.add(cb.like(cb.lower(root.get("title")), "%" + rule.getRuleValue().toLowerCase() + "%"));
-                } else if (rule.getRuleType() == AudienceRuleType.STATUS) {
-                    predicates.add(cb.equal(root.get("status"), EmployeeStatus.valueOf(rule.getRuleValue().toUpperCase())));
-                }
-            }
-            return cb.and(predicates.toArray(new Predicate[0]));
-        };
-    }
-
     private List<AudienceRuleDto> saveRules(Audience audience, List<AudienceRuleDto> ruleDtos) {
         List<AudienceRuleDto> saved = new ArrayList<>();
         for (AudienceRuleDto dto : ruleDtos) {
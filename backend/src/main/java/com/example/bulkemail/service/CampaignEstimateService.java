@@ -0,0 +1,205 @@
+package com.example.bulkemail.service;
+
+import com.example.bulkemail.config.AppProperties;
+import com.example.bulkemail.dto.CampaignEstimateDto;
+import com.example.bulkemail.entity.Campaign;
+import com.example.bulkemail.entity.SmtpAccount;
+import com.example.bulkemail.repo.CampaignRepository;
+import com.example.bulkemail.repo.SmtpAccountRepository;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Projects when a campaign will finish. The projection uses the observed send rate when there is one.
+// Otherwise it uses a model of the dispatcher: the per-account throttle shared between that account's
+// active campaigns, and what the worker can push per minute given SMTP latency, concurrency and the
+// poll cadence. The inputs are folded in as sends happen, so an estimate costs O(1).
+@Service
+public class CampaignEstimateService {
+    private static final long PLAN_TTL_MS = 60_000L;
+    private static final long ACTIVE_WINDOW_MS = 120_000L;
+    private static final double LATENCY_SMOOTHING = 0.1;
+
+    private final CampaignRepository campaignRepository;
+    private final SmtpAccountRepository smtpAccountRepository;
+    private final AppProperties appProperties;
+    private final PolicySettingsService policySettingsService;
+    private final Map<Long, Plan> plans = new ConcurrentHashMap<>();
+    private final Map<Long, AccountStats> accounts = new ConcurrentHashMap<>();
+    private final Map<Long, Long> activeCampaigns = new ConcurrentHashMap<>();
+    private volatile int defaultThrottle;
+    private volatile long defaultThrottleLoadedAt;
+
+    public CampaignEstimateService(CampaignRepository campaignRepository, SmtpAccountRepository smtpAccountRepository,
+                                   AppProperties appProperties, PolicySettingsService policySettingsService) {
+        this.campaignRepository = campaignRepository;
+        this.smtpAccountRepository = smtpAccountRepository;
+        this.appProperties = appProperties;
+        this.policySettingsService = policySettingsService;
+    }
+
+    public void recordSend(Campaign campaign, long latencyNanos) {
+        long now = System.currentTimeMillis();
+        activeCampaigns.put(campaign.getId(), now);
+        if (campaign.getSmtpAccount() == null) {
+            return;
+        }
+        AccountStats stats = accounts.computeIfAbsent(campaign.getSmtpAccount().getId(), id -> new AccountStats());
+        stats.activeCampaigns.put(campaign.getId(), now);
+        stats.recordLatency(latencyNanos / 1_000_000_000.0);
+    }
+
+    public CampaignEstimateDto estimate(Campaign campaign, long remaining, double observedPerSecond) {
+        Plan plan = Plan.of(campaign, System.currentTimeMillis());
+        plans.put(campaign.getId(), plan);
+        return estimate(campaign.getId(), plan, remaining, observedPerSecond);
+    }
+
+    public CampaignEstimateDto estimate(Long campaignId, long remaining, double observedPerSecond) {
+        return estimate(campaignId, plan(campaignId), remaining, observedPerSecond);
+    }
+
+    public Optional<Duration> observedLatency(Long accountId) {
+        AccountStats stats = accountId != null ? accounts.get(accountId) : null;
+        if (stats == null || stats.latencySeconds <= 0) {
+            return Optional.empty();
+        }
+        return Optional.of(Duration.ofNanos((long) (stats.latencySeconds * 1_000_000_000L)));
+    }
+
+    public void evict(Long campaignId) {
+        plans.remove(campaignId);
+        activeCampaigns.remove(campaignId);
+    }
+
+    private CampaignEstimateDto estimate(Long campaignId, Plan plan, long remaining, double observedPerSecond) {
+        long nowMillis = System.currentTimeMillis();
+        Instant now = Instant.ofEpochMilli(nowMillis);
+        CampaignEstimateDto dto = new CampaignEstimateDto();
+        dto.setCampaignId(campaignId);
+        dto.setRemaining(remaining);
+        dto.setCurrentRatePerMinute(round(observedPerSecond * 60));
+        dto.setCompletesWithinWindow(true);
+        if (plan == null) {
+            return dto;
+        }
+
+        AccountStats stats = plan.accountId() != null
+                ? accounts.computeIfAbsent(plan.accountId(), id -> new AccountStats())
+                : null;
+        Integer accountThrottle = stats != null ? stats.throttlePerMinute(plan.accountId(), nowMillis) : null;
+        int throttle = accountThrottle != null ? accountThrottle : defaultThrottle(nowMillis);
+        double throttleShare = (double) throttle / Math.max(1, countActive(
+                stats != null ? stats.activeCampaigns : Map.of(), campaignId, nowMillis));
+        double dispatcherShare = dispatcherPerMinute(stats) / Math.max(1, countActive(activeCampaigns, campaignId, nowMillis));
+        double modeled = Math.min(throttleShare, dispatcherShare);
+        dto.setBottleneck(throttleShare <= dispatcherShare ? "THROTTLE" : "DISPATCHER");
+        double projected = observedPerSecond > 0 ? observedPerSecond * 60 : modeled;
+        dto.setProjectedRatePerMinute(round(projected));
+
+        Instant startsAt = now;
+        if (plan.scheduledAt() != null && plan.scheduledAt().isAfter(startsAt)) {
+            startsAt = plan.scheduledAt();
+        }
+        if (plan.windowStart() != null && plan.windowStart().isAfter(startsAt)) {
+            startsAt = plan.windowStart();
+        }
+        dto.setStartsAt(startsAt);
+        if (remaining == 0) {
+            dto.setEstimatedCompletionAt(now);
+        } else if (projected > 0) {
+            Instant completion = startsAt.plusMillis((long) Math.ceil(remaining / projected * 60_000));
+            dto.setEstimatedCompletionAt(completion);
+            dto.setCompletesWithinWindow(plan.windowEnd() == null || !completion.isAfter(plan.windowEnd()));
+        }
+        return dto;
+    }
+
+    // Messages per minute one worker can hand to SMTP: each poll takes batch * latency / concurrency on
+    // top of the poll delay. Without a latency sample the poll cadence is the only limit.
+    private double dispatcherPerMinute(AccountStats stats) {
+        AppProperties.Sending sending = appProperties.getSending();
+        int batchSize = sending.getWorker().getBatchSize();
+        double intervalSeconds = sending.getWorker().getPollIntervalMs() / 1000.0;
+        int concurrency = sending.getAsync().isEnabled() ? sending.getAsync().getMaxConnectionsPerAccount() : 1;
+        double latency = stats != null ? stats.latencySeconds : 0;
+        double cycleSeconds = intervalSeconds + batchSize * latency / concurrency;
+        return cycleSeconds > 0 ? batchSize * 60 / cycleSeconds : Double.MAX_VALUE;
+    }
+
+    private int countActive(Map<Long, Long> lastSeen, Long campaignId, long now) {
+        int count = 1;
+        for (Map.Entry<Long, Long> entry : lastSeen.entrySet()) {
+            if (!entry.getKey().equals(campaignId) && now - entry.getValue() < ACTIVE_WINDOW_MS) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private Plan plan(Long campaignId) {
+        long now = System.currentTimeMillis();
+        Plan plan = plans.get(campaignId);
+        if (plan != null && now - plan.loadedAt() < PLAN_TTL_MS) {
+            return plan;
+        }
+        plan = campaignRepository.findById(campaignId).map(campaign -> Plan.of(campaign, now)).orElse(null);
+        if (plan != null) {
+            plans.put(campaignId, plan);
+        } else {
+            plans.remove(campaignId);
+        }
+        return plan;
+    }
+
+    private int defaultThrottle(long now) {
+        if (now - defaultThrottleLoadedAt > PLAN_TTL_MS) {
+            defaultThrottle = policySettingsService.getEffectiveSettings().getDefaultThrottlePerMinute();
+            defaultThrottleLoadedAt = now;
+        }
+        return defaultThrottle;
+    }
+
+    private static double round(double perMinute) {
+        return perMinute >= Double.MAX_VALUE / 10 ? 0 : Math.round(perMinute * 10) / 10.0;
+    }
+
+    // Only the account id is read from the campaign, so a detached lazy account proxy is fine here.
+    private record Plan(Long accountId, Instant scheduledAt, Instant windowStart, Instant windowEnd, long loadedAt) {
+        static Plan of(Campaign campaign, long now) {
+            return new Plan(
+                    campaign.getSmtpAccount() != null ? campaign.getSmtpAccount().getId() : null,
+                    campaign.getScheduledAt(),
+                    campaign.getSendWindowStart(),
+                    campaign.getSendWindowEnd(),
+                    now);
+        }
+    }
+
+    private final class AccountStats {
+        private final Map<Long, Long> activeCampaigns = new ConcurrentHashMap<>();
+        private volatile double latencySeconds;
+        private volatile Integer throttlePerMinute;
+        private volatile long throttleLoadedAt;
+
+        Integer throttlePerMinute(Long accountId, long now) {
+            if (now - throttleLoadedAt > PLAN_TTL_MS) {
+                throttlePerMinute = smtpAccountRepository.findById(accountId)
+                        .map(SmtpAccount::getThrottlePerMinute)
+                        .orElse(null);
+                throttleLoadedAt = now;
+            }
+            return throttlePerMinute;
+        }
+
+        synchronized void recordLatency(double seconds) {
+            latencySeconds = latencySeconds == 0
+                    ? seconds
+                    : LATENCY_SMOOTHING * seconds + (1 - LATENCY_SMOOTHING) * latencySeconds;
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.example.bulkemail.service;
+
+import com.example.bulkemail.dto.CampaignEstimateDto;
+import com.example.bulkemail.dto.CampaignProgressDto;
+import com.example.bulkemail.entity.Campaign;
+import com.example.bulkemail.entity.RecipientStatus;
+import com.example.bulkemail.repo.CampaignRecipientRepository;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// In-process recipient counters per campaign. They are seeded from the database once, then
+// SendingService moves them on every status change. Subscribers get at most one event per second, and
+// only when something changed. The number of open streams does not change the number of queries.
+@Service
+public class CampaignProgressService {
+    private static final long EMITTER_TIMEOUT_MS = 30 * 60_000L;
+    private static final long RESYNC_INTERVAL_MS = 60_000L;
+    private static final long HEARTBEAT_INTERVAL_MS = 15_000L;
+    private static final long IDLE_EVICTION_MS = 5 * 60_000L;
+    private static final double RATE_SMOOTHING = 0.2;
+
+    private final CampaignRecipientRepository recipientRepository;
+    private final CampaignEstimateService estimateService;
+    private final Map<Long, Progress> progress = new ConcurrentHashMap<>();
+    private final Map<Long, List<SseEmitter>> subscribers = new ConcurrentHashMap<>();
+
+    public CampaignProgressService(CampaignRecipientRepository recipientRepository,
+                                   CampaignEstimateService estimateService) {
+        this.recipientRepository = recipientRepository;
+        this.estimateService = estimateService;
+    }
+
+    public SseEmitter subscribe(Long campaignId) {
+        SseEmitter emitter = new SseEmitter(EMITTER_TIMEOUT_MS);
+        subscribers.compute(campaignId, (id, list) -> {
+            List<SseEmitter> emitters = list != null ? list : new CopyOnWriteArrayList<>();
+            emitters.add(emitter);
+            return emitters;
+        });
+        emitter.onCompletion(() -> unsubscribe(campaignId, emitter));
+        emitter.onTimeout(() -> unsubscribe(campaignId, emitter));
+        emitter.onError(error -> unsubscribe(campaignId, emitter));
+        try {
+            emitter.send(event(snapshot(campaignId)));
+        } catch (IOException e) {
+            emitter.completeWithError(e);
+        }
+        return emitter;
+    }
+
+    public CampaignProgressDto snapshot(Long campaignId) {
+        return toDto(campaignId, seeded(campaignId));
+    }
+
+    public CampaignEstimateDto estimate(Long campaignId) {
+        Progress current = seeded(campaignId);
+        return estimateService.estimate(campaignId, current.remaining(), current.ratePerSecond);
+    }
+
+    public CampaignEstimateDto estimate(Campaign campaign) {
+        Progress current = seeded(campaign.getId());
+        return estimateService.estimate(campaign, current.remaining(), current.ratePerSecond);
+    }
+
+    // Counters that are not tracked yet are ignored; they will be seeded from the database when first read.
+    public void recordTransition(Long campaignId, RecipientStatus from, RecipientStatus to) {
+        if (from == to) {
+            return;
+        }
+        Progress current = progress.get(campaignId);
+        if (current == null) {
+            return;
+        }
+        if (from != null) {
+            current.counts.decrementAndGet(from.ordinal());
+        }
+        if (to != null) {
+            current.counts.incrementAndGet(to.ordinal());
+            if (to == RecipientStatus.SENT) {
+                current.delivered.incrementAndGet();
+            }
+        }
+        current.version.incrementAndGet();
+        current.lastChange = System.currentTimeMillis();
+    }
+
+    // Called when recipients are created, deleted or reset in bulk, or the campaign is rescheduled.
+    public void invalidate(Long campaignId) {
+        estimateService.evict(campaignId);
+        Progress current = progress.get(campaignId);
+        if (current != null) {
+            current.stale = true;
+        }
+    }
+
+    @Scheduled(fixedRate = 1000)
+    public void publish() {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<Long, Progress> entry : progress.entrySet()) {
+            Long campaignId = entry.getKey();
+            Progress current = entry.getValue();
+            current.tick();
+            List<SseEmitter> emitters = subscribers.get(campaignId);
+            if (emitters == null || emitters.isEmpty()) {
+                if (now - current.lastChange > IDLE_EVICTION_MS) {
+                    progress.remove(campaignId, current);
+                }
+                continue;
+            }
+            synchronized (current) {
+                if (current.needsSeed(now)) {
+                    seed(campaignId, current);
+                }
+            }
+            long version = current.version.get();
+            if (version == current.publishedVersion && now - current.publishedAt < HEARTBEAT_INTERVAL_MS) {
+                continue;
+            }
+            current.publishedVersion = version;
+            current.publishedAt = now;
+            CampaignProgressDto dto = toDto(campaignId, current);
+            for (SseEmitter emitter : emitters) {
+                try {
+                    emitter.send(event(dto));
+                } catch (IOException | IllegalStateException e) {
+                    unsubscribe(campaignId, emitter);
+                }
+            }
+        }
+    }
+
+    private Progress seeded(Long campaignId) {
+        Progress current = progress.computeIfAbsent(campaignId, id -> new Progress());
+        synchronized (current) {
+            if (current.needsSeed(System.currentTimeMillis())) {
+                seed(campaignId, current);
+            }
+        }
+        return current;
+    }
+
+    private void seed(Long campaignId, Progress current) {
+        long[] counts = new long[RecipientStatus.values().length];
+        for (Object[] row : recipientRepository.countByCampaignIdGroupedByStatus(campaignId)) {
+            counts[((RecipientStatus) row[0]).ordinal()] = (Long) row[1];
+        }
+        for (int i = 0; i < counts.length; i++) {
+            current.counts.set(i, counts[i]);
+        }
+        current.seededAt = System.currentTimeMillis();
+        current.stale = false;
+        current.version.incrementAndGet();
+    }
+
+    private void unsubscribe(Long campaignId, SseEmitter emitter) {
+        subscribers.computeIfPresent(campaignId, (id, emitters) -> {
+            emitters.remove(emitter);
+            return emitters.isEmpty() ? null : emitters;
+        });
+    }
+
+    private SseEmitter.SseEventBuilder event(CampaignProgressDto dto) {
+        return SseEmitter.event().name("progress").data(dto);
+    }
+
+    private CampaignProgressDto toDto(Long campaignId, Progress current) {
+        CampaignProgressDto dto = new CampaignProgressDto();
+        dto.setCampaignId(campaignId);
+        dto.setQueued(current.count(RecipientStatus.QUEUED));
+        dto.setSent(current.count(RecipientStatus.SENT));
+        dto.setFailed(current.count(RecipientStatus.FAILED));
+        dto.setRetry(current.count(RecipientStatus.RETRY));
+        CampaignEstimateDto estimate = estimateService.estimate(campaignId, current.remaining(), current.ratePerSecond);
+        dto.setRatePerMinute(estimate.getCurrentRatePerMinute());
+        dto.setEstimatedCompletionAt(estimate.getEstimatedCompletionAt());
+        return dto;
+    }
+
+    private static final class Progress {
+        private final AtomicLongArray counts = new AtomicLongArray(RecipientStatus.values().length);
+        private final AtomicLong delivered = new AtomicLong();
+        private final AtomicLong version = new AtomicLong();
+        private volatile boolean stale = true;
+        private volatile long seededAt;
+        private volatile long lastChange = System.currentTimeMillis();
+        private volatile double ratePerSecond;
+        // Only touched by the publishing thread.
+        private long lastDelivered;
+        private long publishedVersion = -1;
+        private long publishedAt;
+
+        long count(RecipientStatus status) {
+            return Math.max(0, counts.get(status.ordinal()));
+        }
+
+        long remaining() {
+            return count(RecipientStatus.QUEUED) + count(RecipientStatus.RETRY);
+        }
+
+        boolean needsSeed(long now) {
+            return stale || now - seededAt > RESYNC_INTERVAL_MS;
+        }
+
+        // Exponentially weighted sends per second, advanced once per publish tick.
+        void tick() {
+            long total = delivered.get();
+            long delta = total - lastDelivered;
+            lastDelivered = total;
+            ratePerSecond = RATE_SMOOTHING * delta + (1 - RATE_SMOOTHING) * ratePerSecond;
+        }
+    }
+}
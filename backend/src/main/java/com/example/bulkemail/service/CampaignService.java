@@ -7,19 +7,16 @@ import com.example.bulkemail.entity.*;
 import com.example.bulkemail.repo.*;
 import com.example.bulkemail.service.PolicySettingsService;
 import com.example.bulkemail.security.SecurityUtil;
+import com.example.bulkemail.sending.AttachmentSpool;
 import jakarta.transaction.Transactional;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.server.ResponseStatusException;
-import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.HashSet;
@@ -35,43 +32,48 @@ public class CampaignService {
     private final CampaignAudienceRepository campaignAudienceRepository;
     private final CampaignRecipientRepository campaignRecipientRepository;
     private final AudienceRepository audienceRepository;
-    private final AudienceRuleRepository audienceRuleRepository;
-    private final EmployeeRepository employeeRepository;
-    private final AudienceService audienceService;
     private final ApprovalService approvalService;
     private final com.example.bulkemail.repo.ApprovalRepository approvalRepository;
     private final AppProperties appProperties;
     private final AuditService auditService;
     private final ObjectMapper objectMapper;
-    private final String attachmentsPath;
     private final PolicySettingsService policySettingsService;
+    private final AttachmentSpool attachmentSpool;
+    private final AttachmentStore attachmentStore;
+    private final CampaignProgressService progressService;
+    private final ClickTrackingService clickTrackingService;
+    private final ExpansionJobService expansionJobService;
 
     public CampaignService(CampaignRepository campaignRepository, SenderIdentityRepository senderIdentityRepository,
                            SmtpAccountRepository smtpAccountRepository, CampaignAudienceRepository campaignAudienceRepository,
                            CampaignRecipientRepository campaignRecipientRepository, AudienceRepository audienceRepository,
-                           AudienceRuleRepository audienceRuleRepository, EmployeeRepository employeeRepository,
-                           AudienceService audienceService, ApprovalService approvalService, AppProperties appProperties,
+                           ApprovalService approvalService, AppProperties appProperties,
                            AuditService auditService,
                            com.example.bulkemail.repo.ApprovalRepository approvalRepository,
                            ObjectMapper objectMapper,
-                           @Value("${app.attachments.path:/root/Attachments Files}") String attachmentsPath,
-                           PolicySettingsService policySettingsService) {
+                           PolicySettingsService policySettingsService,
+                           AttachmentSpool attachmentSpool,
+                           AttachmentStore attachmentStore,
+                           CampaignProgressService progressService,
+                           ClickTrackingService clickTrackingService,
+                           ExpansionJobService expansionJobService) {
         this.campaignRepository = campaignRepository;
         this.senderIdentityRepository = senderIdentityRepository;
         this.smtpAccountRepository = smtpAccountRepository;
         this.campaignAudienceRepository = campaignAudienceRepository;
         this.campaignRecipientRepository = campaignRecipientRepository;
         this.audienceRepository = audienceRepository;
-        this.audienceRuleRepository = audienceRuleRepository;
-        this.employeeRepository = employeeRepository;
-        this.audienceService = audienceService;
         this.approvalService = approvalService;
         this.appProperties = appProperties;
         this.auditService = auditService;
         this.approvalRepository = approvalRepository;
         this.objectMapper = objectMapper;
-        this.attachmentsPath = attachmentsPath;
         this.policySettingsService = policySettingsService;
+        this.attachmentSpool = attachmentSpool;
+        this.attachmentStore = attachmentStore;
+        this.progressService = progressService;
+        this.clickTrackingService = clickTrackingService;
+        this.expansionJobService = expansionJobService;
     }
 
     public CampaignResponse create(CampaignCreateRequest request, String ip, String userAgent) {
@@ -87,7 +89,8 @@ public class CampaignService {
         campaign.setSmtpAccount(smtpAccountRepository.findById(request.getSmtpAccountId())
                 .orElseThrow(() -> new IllegalArgumentException("SMTP account not found")));
         campaign.setStatus(CampaignStatus.DRAFT);
-        campaign.setAttachmentsJson(request.getAttachmentsJson());
+        // A new draft has nothing uploaded yet, so any attachment it names is rejected.
+        resolveAttachments(List.of(), request.getAttachmentsJson());
         campaign.setCreatedBy(SecurityUtil.currentEmail());
         campaign.setCreatedAt(Instant.now());
         Campaign saved = campaignRepository.save(campaign);
@@ -120,7 +123,10 @@ public class CampaignService {
         campaign.setSmtpAccount(smtpAccountRepository.findById(request.getSmtpAccountId())
                 .orElseThrow(() -> new IllegalArgumentException("SMTP account not found")));
         if (request.getAttachmentsJson() != null) {
-            campaign.setAttachmentsJson(request.getAttachmentsJson());
+            List<CampaignAttachment> before = readAttachments(campaign.getAttachmentsJson());
+            List<CampaignAttachment> after = resolveAttachments(before, request.getAttachmentsJson());
+            attachmentStore.syncReferences(before, after);
+            campaign.setAttachmentsJson(writeAttachments(after));
         }
         campaign.setUpdatedAt(Instant.now());
         Campaign saved = campaignRepository.save(campaign);
@@ -145,6 +151,7 @@ public class CampaignService {
         copy.setCreatedBy(SecurityUtil.currentEmail());
         copy.setCreatedAt(Instant.now());
         Campaign saved = campaignRepository.save(copy);
+        attachmentStore.syncReferences(List.of(), readAttachments(saved.getAttachmentsJson()));
         List<Long> audienceIds = campaignAudienceRepository.findByCampaignId(campaignId).stream()
                 .map(link -> link.getAudience().getId())
                 .distinct()
@@ -161,6 +168,7 @@ public class CampaignService {
         Campaign campaign = campaignRepository.findById(campaignId)
                 .orElseThrow(() -> new IllegalArgumentException("Campaign not found"));
         campaignRecipientRepository.resetForCampaign(campaignId, RecipientStatus.QUEUED, Instant.now());
+        progressService.invalidate(campaignId);
         campaign.setStatus(CampaignStatus.SENDING);
         campaign.setUpdatedAt(Instant.now());
         campaignRepository.save(campaign);
@@ -184,6 +192,8 @@ public class CampaignService {
             campaign.setEmergencyBypass(true);
             campaign.setEmergencyReason(request.getEmergencyReason());
             campaign.setStatus(CampaignStatus.APPROVED);
+            attachmentSpool.prepare(readAttachments(campaign.getAttachmentsJson()));
+            clickTrackingService.register(campaign);
             auditService.logAction("EMERGENCY_BYPASS", "campaign", campaign.getId().toString(), null, campaign, ip, userAgent);
         } else {
             campaign.setStatus(CampaignStatus.PENDING_APPROVAL);
@@ -211,12 +221,14 @@ public class CampaignService {
         campaign.setStatus(CampaignStatus.SCHEDULED);
         campaign.setUpdatedAt(Instant.now());
         Campaign saved = campaignRepository.save(campaign);
+        progressService.invalidate(saved.getId());
         auditService.logAction("CAMPAIGN_SCHEDULE", "campaign", saved.getId().toString(), null, saved, ip, userAgent);
         return toResponse(saved);
     }
 
+    // Links the audiences and queues a background expansion job; the campaign moves to SENDING when it completes.
     @Transactional
-    public int expandRecipients(Long campaignId, ExpandRecipientsRequest request, String ip, String userAgent) {
+    public ExpansionJobDto expandRecipients(Long campaignId, ExpandRecipientsRequest request, String ip, String userAgent) {
         Campaign campaign = campaignRepository.findById(campaignId)
                 .orElseThrow(() -> new IllegalArgumentException("Campaign not found"));
         if (campaign.getStatus() != CampaignStatus.APPROVED && campaign.getStatus() != CampaignStatus.SCHEDULED) {
@@ -224,9 +236,6 @@ public class CampaignService {
         }
         campaignAudienceRepository.deleteByCampaignId(campaignId);
         campaignAudienceRepository.flush();
-        campaignRecipientRepository.deleteByCampaignId(campaignId);
-        Set<String> uniqueEmails = new HashSet<>();
-        int total = 0;
         for (Long audienceId : request.getAudienceIds()) {
             Audience audience = audienceRepository.findById(audienceId)
                     .orElseThrow(() -> new IllegalArgumentException("Audience not found"));
@@ -234,30 +243,11 @@ public class CampaignService {
             link.setCampaign(campaign);
             link.setAudience(audience);
             campaignAudienceRepository.save(link);
-            List<AudienceRule> rules = audienceRuleRepository.findByAudienceId(audienceId);
-            Specification<Employee> spec = audienceService.toSpecification(rules);
-            List<Employee> employees = employeeRepository.findAll(spec);
-            for (Employee employee : employees) {
-                if (uniqueEmails.add(employee.getEmail())) {
-                    CampaignRecipient recipient = new CampaignRecipient();
-                    recipient.setCampaign(campaign);
-                    recipient.setEmail(employee.getEmail());
-                    recipient.setFullName(employee.getFullName());
-                    recipient.setStatus(RecipientStatus.QUEUED);
-                    recipient.setRetryCount(0);
-                    recipient.setUpdatedAt(Instant.now());
-                    campaignRecipientRepository.save(recipient);
-                    total++;
-                }
-            }
-        }
-        if (campaign.getStatus() != CampaignStatus.SCHEDULED) {
-            campaign.setStatus(CampaignStatus.SENDING);
         }
-        campaign.setUpdatedAt(Instant.now());
-        campaignRepository.save(campaign);
-        auditService.logAction("CAMPAIGN_EXPAND", "campaign", campaign.getId().toString(), null, total, ip, userAgent);
-        return total;
+        ExpansionJob job = expansionJobService.enqueue(campaignId, request.getAudienceIds());
+        ExpansionJobDto dto = expansionJobService.toDto(job);
+        auditService.logAction("CAMPAIGN_EXPAND", "campaign", campaign.getId().toString(), null, dto, ip, userAgent);
+        return dto;
     }
 
     public void queueRecipients(Long campaignId, String ip, String userAgent) {
@@ -343,6 +333,8 @@ public class CampaignService {
             campaign.setStatus(CampaignStatus.APPROVED);
             campaign.setUpdatedAt(Instant.now());
             campaignRepository.save(campaign);
+            attachmentSpool.prepare(readAttachments(campaign.getAttachmentsJson()));
+            clickTrackingService.register(campaign);
             List<Long> audienceIds = campaignAudienceRepository.findByCampaignId(campaignId).stream()
                     .map(link -> link.getAudience().getId())
                     .distinct()
@@ -382,6 +374,9 @@ public class CampaignService {
         campaignRecipientRepository.deleteByCampaignId(campaignId);
         approvalRepository.deleteByCampaignId(campaignId);
         campaignRepository.deleteById(campaignId);
+        progressService.invalidate(campaignId);
+        clickTrackingService.evict(campaignId);
+        attachmentStore.syncReferences(readAttachments(campaign.getAttachmentsJson()), List.of());
         auditService.logAction("CAMPAIGN_DELETE", "campaign", campaignId.toString(), null, campaign, ip, userAgent);
     }
 
@@ -395,24 +390,21 @@ public class CampaignService {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "File required");
         }
         try {
-            Path targetDir = Path.of(attachmentsPath);
-            Files.createDirectories(targetDir);
             String originalName = file.getOriginalFilename() != null ? file.getOriginalFilename() : "attachment";
-            String safeName = originalName.replaceAll("[^a-zA-Z0-9._-]", "_");
-            String id = UUID.randomUUID().toString();
-            String storedName = id + "_" + safeName;
-            Path target = targetDir.resolve(storedName);
-            file.transferTo(target);
+            AttachmentStore.StoredBlob blob = attachmentStore.store(file);
 
-            List<CampaignAttachment> attachments = readAttachments(campaign.getAttachmentsJson());
+            List<CampaignAttachment> before = readAttachments(campaign.getAttachmentsJson());
+            List<CampaignAttachment> attachments = new ArrayList<>(before);
             CampaignAttachment attachment = new CampaignAttachment();
-            attachment.setId(id);
+            attachment.setId(UUID.randomUUID().toString());
             attachment.setOriginalName(originalName);
-            attachment.setStoredName(storedName);
-            attachment.setSize(file.getSize());
+            attachment.setStoredName(blob.storedName());
+            attachment.setSha256(blob.sha256());
+            attachment.setSize(blob.size());
             attachment.setContentType(file.getContentType());
             attachment.setUploadedAt(Instant.now());
             attachments.add(attachment);
+            attachmentStore.syncReferences(before, attachments);
             campaign.setAttachmentsJson(writeAttachments(attachments));
             campaign.setUpdatedAt(Instant.now());
             Campaign saved = campaignRepository.save(campaign);
@@ -423,9 +415,15 @@ public class CampaignService {
         }
     }
 
+    // Only the detail view carries the estimate; it costs queries per campaign, which lists cannot afford.
     public CampaignResponse get(Long id) {
-        return toResponse(campaignRepository.findById(id)
-                .orElseThrow(() -> new IllegalArgumentException("Campaign not found")));
+        Campaign campaign = campaignRepository.findById(id)
+                .orElseThrow(() -> new IllegalArgumentException("Campaign not found"));
+        CampaignResponse response = toResponse(campaign);
+        if (campaign.getStatus() == CampaignStatus.SENDING || campaign.getStatus() == CampaignStatus.SCHEDULED) {
+            response.setEstimate(progressService.estimate(campaign));
+        }
+        return response;
     }
 
     public List<CampaignResponse> list(CampaignStatus status) {
@@ -476,6 +474,23 @@ public class CampaignService {
         return response;
     }
 
+    // Attachments are only added by upload. A save may keep, reorder or drop the campaign's own attachments,
+    // matched by id, and the stored entries are kept, so a client cannot point a campaign at another blob.
+    private List<CampaignAttachment> resolveAttachments(List<CampaignAttachment> current, String requestedJson) {
+        List<CampaignAttachment> resolved = new ArrayList<>();
+        for (CampaignAttachment requested : readAttachments(requestedJson)) {
+            CampaignAttachment stored = current.stream()
+                    .filter(attachment -> attachment.getId() != null && attachment.getId().equals(requested.getId()))
+                    .findFirst()
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                            "Unknown attachment " + requested.getId() + "; upload attachments to the saved draft"));
+            if (!resolved.contains(stored)) {
+                resolved.add(stored);
+            }
+        }
+        return resolved;
+    }
+
     private List<CampaignAttachment> readAttachments(String attachmentsJson) {
         if (attachmentsJson == null || attachmentsJson.isBlank()) {
             return new ArrayList<>();
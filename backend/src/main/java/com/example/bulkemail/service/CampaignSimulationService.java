@@ -0,0 +1,240 @@
+package com.example.bulkemail.service;
+
+import com.example.bulkemail.config.AppProperties;
+import com.example.bulkemail.dto.SimulationDtos;
+import com.example.bulkemail.entity.Campaign;
+import com.example.bulkemail.entity.CampaignStatus;
+import com.example.bulkemail.entity.RecipientStatus;
+import com.example.bulkemail.entity.SmtpAccount;
+import com.example.bulkemail.repo.CampaignAudienceRepository;
+import com.example.bulkemail.repo.CampaignRecipientRepository;
+import com.example.bulkemail.repo.CampaignRepository;
+import com.example.bulkemail.repo.SmtpAccountRepository;
+import com.example.bulkemail.sending.SimulatedMailGateway;
+import com.example.bulkemail.sending.ThrottleService;
+import com.example.bulkemail.sending.VirtualClock;
+import com.example.bulkemail.worker.DispatchSimulator;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+@Service
+public class CampaignSimulationService {
+    private static final List<CampaignStatus> ACTIVE_STATUSES = List.of(CampaignStatus.SENDING, CampaignStatus.SCHEDULED);
+    private static final Duration DEFAULT_LATENCY = Duration.ofMillis(200);
+    private static final int DEFAULT_HORIZON_HOURS = 168;
+    private static final int MAX_TIMELINE_POINTS = 240;
+
+    private final CampaignRepository campaignRepository;
+    private final CampaignRecipientRepository recipientRepository;
+    private final CampaignAudienceRepository campaignAudienceRepository;
+    private final SmtpAccountRepository smtpAccountRepository;
+    private final AudienceMembershipService membershipService;
+    private final CampaignEstimateService estimateService;
+    private final PolicySettingsService policySettingsService;
+    private final AppProperties appProperties;
+
+    public CampaignSimulationService(CampaignRepository campaignRepository, CampaignRecipientRepository recipientRepository,
+                                     CampaignAudienceRepository campaignAudienceRepository,
+                                     SmtpAccountRepository smtpAccountRepository,
+                                     AudienceMembershipService membershipService,
+                                     CampaignEstimateService estimateService, PolicySettingsService policySettingsService,
+                                     AppProperties appProperties) {
+        this.campaignRepository = campaignRepository;
+        this.recipientRepository = recipientRepository;
+        this.campaignAudienceRepository = campaignAudienceRepository;
+        this.smtpAccountRepository = smtpAccountRepository;
+        this.membershipService = membershipService;
+        this.estimateService = estimateService;
+        this.policySettingsService = policySettingsService;
+        this.appProperties = appProperties;
+    }
+
+    // Read-only: recipient rows are only counted, and the dispatcher runs on in-memory queues.
+    public SimulationDtos.SimulationResponse simulate(Long campaignId, SimulationDtos.SimulationRequest request) {
+        Campaign campaign = campaignRepository.findById(campaignId)
+                .orElseThrow(() -> new IllegalArgumentException("Campaign not found"));
+        long recipients = targetRecipients(campaign, request);
+
+        List<Campaign> competing = new ArrayList<>();
+        Map<Long, Long> competingQueued = new HashMap<>();
+        if (request.isIncludeActiveCampaigns()) {
+            for (Object[] row : recipientRepository.countByStatusesGroupedByCampaign(
+                    List.of(RecipientStatus.QUEUED), ACTIVE_STATUSES)) {
+                Long id = (Long) row[0];
+                if (!id.equals(campaignId)) {
+                    competingQueued.put(id, (Long) row[1]);
+                }
+            }
+            campaignRepository.findAllById(competingQueued.keySet()).forEach(competing::add);
+        }
+
+        Set<Long> accountIds = new LinkedHashSet<>();
+        accountIds.add(campaign.getSmtpAccount().getId());
+        competing.forEach(other -> accountIds.add(other.getSmtpAccount().getId()));
+        Map<Long, SmtpAccount> accounts = new HashMap<>();
+        smtpAccountRepository.findAllById(accountIds).forEach(account -> accounts.put(account.getId(), account));
+        int defaultThrottle = policySettingsService.getEffectiveSettings().getDefaultThrottlePerMinute();
+
+        List<DispatchSimulator.Queue> queues = new ArrayList<>();
+        queues.add(queue(campaign, accounts, defaultThrottle, recipients, campaign.getStatus() != CampaignStatus.SCHEDULED));
+        for (Campaign other : competing) {
+            queues.add(queue(other, accounts, defaultThrottle, competingQueued.get(other.getId()),
+                    other.getStatus() == CampaignStatus.SENDING));
+        }
+
+        Duration latency = request.getLatencyMs() != null
+                ? Duration.ofMillis(request.getLatencyMs())
+                : estimateService.observedLatency(campaign.getSmtpAccount().getId()).orElse(DEFAULT_LATENCY);
+        AppProperties.Sending sending = appProperties.getSending();
+        int concurrency = sending.getAsync().isEnabled() ? sending.getAsync().getMaxConnectionsPerAccount() : 1;
+        VirtualClock clock = new VirtualClock(Instant.now());
+        DispatchSimulator simulator = new DispatchSimulator(clock, new ThrottleService(clock),
+                new SimulatedMailGateway(clock, latency, concurrency),
+                sending.getWorker().getBatchSize(), Duration.ofMillis(sending.getWorker().getPollIntervalMs()));
+        int horizonHours = request.getHorizonHours() != null ? request.getHorizonHours() : DEFAULT_HORIZON_HOURS;
+        DispatchSimulator.Result result = simulator.run(queues, Duration.ofHours(horizonHours));
+        return toResponse(campaignId, result, latency);
+    }
+
+    private long targetRecipients(Campaign campaign, SimulationDtos.SimulationRequest request) {
+        long expanded = 0;
+        long queued = 0;
+        for (Object[] row : recipientRepository.countByCampaignIdGroupedByStatus(campaign.getId())) {
+            expanded += (Long) row[1];
+            if (row[0] == RecipientStatus.QUEUED) {
+                queued = (Long) row[1];
+            }
+        }
+        if (expanded > 0) {
+            return queued;
+        }
+        List<Long> audienceIds = request.getAudienceIds() != null && !request.getAudienceIds().isEmpty()
+                ? request.getAudienceIds()
+                : campaignAudienceRepository.findByCampaignId(campaign.getId()).stream()
+                        .map(link -> link.getAudience().getId())
+                        .distinct()
+                        .toList();
+        if (audienceIds.isEmpty()) {
+            throw new IllegalArgumentException("Campaign has no recipients or audiences to simulate");
+        }
+        return membershipService.countMembers(audienceIds);
+    }
+
+    private DispatchSimulator.Queue queue(Campaign campaign, Map<Long, SmtpAccount> accounts, int defaultThrottle,
+                                          long queued, boolean sending) {
+        SmtpAccount account = accounts.get(campaign.getSmtpAccount().getId());
+        int throttle = account != null && account.getThrottlePerMinute() != null
+                ? account.getThrottlePerMinute()
+                : defaultThrottle;
+        return new DispatchSimulator.Queue(campaign, campaign.getSmtpAccount().getId(),
+                account != null ? account.getName() : null, throttle, queued, sending,
+                campaign.getScheduledAt(), campaign.getSendWindowStart(), campaign.getSendWindowEnd());
+    }
+
+    private SimulationDtos.SimulationResponse toResponse(Long campaignId, DispatchSimulator.Result result,
+                                                         Duration latency) {
+        SimulationDtos.SimulationResponse response = new SimulationDtos.SimulationResponse();
+        response.setCampaignId(campaignId);
+        response.setSimulatedStart(result.start());
+        response.setSimulatedEnd(result.end());
+        response.setPolls(result.polls());
+        response.setIdleSlots(result.idleSlots());
+        long competing = 0;
+        DispatchSimulator.QueueOutcome target = null;
+        for (DispatchSimulator.QueueOutcome outcome : result.queues()) {
+            if (outcome.campaignId().equals(campaignId)) {
+                target = outcome;
+            } else {
+                competing += outcome.recipients();
+            }
+        }
+        response.setCompetingRecipients(competing);
+        if (target != null) {
+            response.setRecipients(target.recipients());
+            response.setSent(target.sent());
+            response.setThrottled(target.throttled());
+            response.setUnsent(target.unsent());
+            response.setOutsideWindow(target.outsideWindow());
+            response.setCompletedAt(target.finishedAt());
+            if (target.finishedAt() != null) {
+                response.setDurationSeconds(Duration.between(result.start(), target.finishedAt()).toSeconds());
+            }
+        }
+
+        List<SimulationDtos.AccountLoad> accounts = new ArrayList<>();
+        for (DispatchSimulator.AccountOutcome outcome : result.accounts()) {
+            SimulationDtos.AccountLoad load = new SimulationDtos.AccountLoad();
+            load.setSmtpAccountId(outcome.accountId());
+            load.setName(outcome.accountName());
+            load.setThrottlePerMinute(outcome.throttlePerMinute());
+            load.setSent(outcome.sent());
+            load.setThrottled(outcome.throttled());
+            load.setPeakPerMinute(outcome.peakPerMinute());
+            load.setSaturatedMinutes(outcome.saturatedMinutes());
+            load.setActiveMinutes(outcome.activeMinutes());
+            accounts.add(load);
+        }
+        response.setAccounts(accounts);
+        response.setTimeline(timeline(result));
+
+        List<String> findings = new ArrayList<>();
+        long throttled = result.accounts().stream().mapToLong(DispatchSimulator.AccountOutcome::throttled).sum();
+        if (throttled > 0) {
+            response.setBottleneck("THROTTLE");
+            findings.add(throttled + " recipients would be rejected by the per-minute throttle and left in RETRY");
+        } else {
+            response.setBottleneck("DISPATCHER");
+            findings.add("Throughput is bounded by batch size " + appProperties.getSending().getWorker().getBatchSize()
+                    + " per poll, poll delay " + appProperties.getSending().getWorker().getPollIntervalMs()
+                    + " ms and " + latency.toMillis() + " ms SMTP latency per message");
+        }
+        for (SimulationDtos.AccountLoad load : accounts) {
+            if (load.getSaturatedMinutes() > 0) {
+                findings.add("Account " + load.getName() + " is at its " + load.getThrottlePerMinute()
+                        + "/min limit in " + load.getSaturatedMinutes() + " of " + load.getActiveMinutes()
+                        + " active minutes");
+            }
+        }
+        if (result.idleSlots() > 0) {
+            findings.add(result.idleSlots() + " poll slots go to rows of campaigns that are not due yet");
+        }
+        if (response.getOutsideWindow() > 0) {
+            findings.add(response.getOutsideWindow() + " recipients would be sent outside the send window");
+        }
+        if (response.getUnsent() > 0) {
+            findings.add(response.getUnsent() + " recipients are still queued at the end of the horizon");
+        }
+        response.setFindings(findings);
+        return response;
+    }
+
+    private List<SimulationDtos.TimelinePoint> timeline(DispatchSimulator.Result result) {
+        List<DispatchSimulator.TimelinePoint> minutes = result.timeline();
+        if (minutes.isEmpty()) {
+            return List.of();
+        }
+        long span = Duration.between(minutes.getFirst().minute(), minutes.getLast().minute()).toMinutes() + 1;
+        long width = Math.max(1, (span + MAX_TIMELINE_POINTS - 1) / MAX_TIMELINE_POINTS);
+        TreeMap<Long, SimulationDtos.TimelinePoint> buckets = new TreeMap<>();
+        for (DispatchSimulator.TimelinePoint minute : minutes) {
+            long index = Duration.between(result.start(), minute.minute()).toMinutes() / width;
+            SimulationDtos.TimelinePoint point = buckets.computeIfAbsent(index, key -> {
+                SimulationDtos.TimelinePoint created = new SimulationDtos.TimelinePoint();
+                created.setAt(result.start().plus(Duration.ofMinutes(key * width)));
+                return created;
+            });
+            point.setSent(point.getSent() + minute.sent());
+            point.setThrottled(point.getThrottled() + minute.throttled());
+        }
+        return new ArrayList<>(buckets.values());
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.bulkemail.service;
+
+import com.example.bulkemail.config.AppProperties;
+import com.example.bulkemail.dto.LinkClickDto;
+import com.example.bulkemail.entity.Campaign;
+import com.example.bulkemail.repo.CampaignClickRepository;
+import com.example.bulkemail.sending.MergeTemplate;
+import com.example.bulkemail.sending.MergeTemplateCache;
+import com.example.bulkemail.sending.TrackingTokens;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Resolves click tokens against per-campaign link tables. A table is the slot list of the campaign's compiled
+// HTML template, written to campaign_links at approval, so a later edit of the body cannot remap a slot that is
+// already in sent mail. Clicks read the table from a bounded in-memory cache, loading it from campaign_links on
+// a miss. Click events go into a bounded queue that a background flush inserts in JDBC batches.
+@Service
+public class ClickTrackingService {
+    private static final Logger logger = LoggerFactory.getLogger(ClickTrackingService.class);
+    private static final int FLUSH_BATCH_SIZE = 500;
+    private static final int LINK_TABLE_CACHE_SIZE = 1024;
+
+    private final TrackingTokens trackingTokens;
+    private final MergeTemplateCache templateCache;
+    private final CampaignClickRepository clickRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<Long, List<String>> linkTables = Collections.synchronizedMap(
+            new LinkedHashMap<>(64, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, List<String>> eldest) {
+                    return size() > LINK_TABLE_CACHE_SIZE;
+                }
+            });
+    private final BlockingQueue<ClickEvent> events;
+    private final AtomicLong dropped = new AtomicLong();
+
+    public ClickTrackingService(TrackingTokens trackingTokens, MergeTemplateCache templateCache,
+                                CampaignClickRepository clickRepository, JdbcTemplate jdbcTemplate,
+                                AppProperties appProperties) {
+        this.trackingTokens = trackingTokens;
+        this.templateCache = templateCache;
+        this.clickRepository = clickRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.events = new ArrayBlockingQueue<>(appProperties.getTracking().getMaxPending());
+    }
+
+    // Compiles the campaign's templates and stores its link table in the caller's transaction; called when the
+    // campaign is approved. The cached copy is replaced once that transaction commits.
+    public void register(Campaign campaign) {
+        MergeTemplate html = templateCache.get(campaign).htmlBody();
+        List<String> links = html != null ? html.links() : List.of();
+        Long campaignId = campaign.getId();
+        jdbcTemplate.update("delete from campaign_links where campaign_id = ?", campaignId);
+        List<Object[]> rows = new ArrayList<>(links.size());
+        for (int slot = 0; slot < links.size(); slot++) {
+            rows.add(new Object[]{campaignId, slot, links.get(slot)});
+        }
+        jdbcTemplate.batchUpdate("insert into campaign_links (campaign_id, link_index, url) values (?, ?, ?)", rows);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    linkTables.put(campaignId, links);
+                }
+            });
+        } else {
+            linkTables.put(campaignId, links);
+        }
+    }
+
+    // Returns the target for a valid token; the click is queued, not written.
+    public Optional<String> resolve(String token) {
+        Optional<TrackingTokens.Token> decoded = trackingTokens.verify(TrackingTokens.Purpose.CLICK, token);
+        if (decoded.isEmpty()) {
+            return Optional.empty();
+        }
+        TrackingTokens.Token click = decoded.get();
+        List<String> links = linkTable(click.campaignId());
+        if (click.slot() < 0 || click.slot() >= links.size()) {
+            return Optional.empty();
+        }
+        String url = links.get(click.slot());
+        if (!events.offer(new ClickEvent(click.campaignId(), click.recipientId(), click.slot(), url,
+                System.currentTimeMillis()))) {
+            dropped.incrementAndGet();
+        }
+        return Optional.of(url);
+    }
+
+    public List<LinkClickDto> summary(Long campaignId) {
+        return clickRepository.summarizeByLink(campaignId).stream().map(row -> {
+            LinkClickDto dto = new LinkClickDto();
+            dto.setLinkIndex((Integer) row[0]);
+            dto.setUrl((String) row[1]);
+            dto.setClicks((Long) row[2]);
+            dto.setUniqueClicks((Long) row[3]);
+            return dto;
+        }).toList();
+    }
+
+    public void evict(Long campaignId) {
+        linkTables.remove(campaignId);
+    }
+
+    @Scheduled(fixedDelayString = "${app.tracking.flush-interval-ms:5000}")
+    public synchronized void flush() {
+        List<ClickEvent> batch = new ArrayList<>(FLUSH_BATCH_SIZE);
+        while (events.drainTo(batch, FLUSH_BATCH_SIZE) > 0) {
+            List<Object[]> rows = new ArrayList<>(batch.size());
+            for (ClickEvent event : batch) {
+                rows.add(new Object[]{event.campaignId(), event.recipientId(), event.slot(), event.url(),
+                        new Timestamp(event.clickedAt())});
+            }
+            try {
+                jdbcTemplate.batchUpdate("insert into campaign_clicks (campaign_id, recipient_id, link_index, url, "
+                        + "clicked_at) values (?, ?, ?, ?, ?)", rows);
+            } catch (RuntimeException e) {
+                logger.warn("Failed to write {} click events: {}", rows.size(), e.getMessage());
+                dropped.addAndGet(rows.size());
+            }
+            batch.clear();
+        }
+        long lost = dropped.getAndSet(0);
+        if (lost > 0) {
+            logger.warn("{} click events were not recorded", lost);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    // Campaigns approved before link tables were stored have no rows, so their click tokens resolve to nothing.
+    private List<String> linkTable(long campaignId) {
+        List<String> links = linkTables.get(campaignId);
+        if (links != null) {
+            return links;
+        }
+        links = List.copyOf(jdbcTemplate.queryForList(
+                "select url from campaign_links where campaign_id = ? order by link_index", String.class, campaignId));
+        linkTables.putIfAbsent(campaignId, links);
+        return links;
+    }
+
+    private record ClickEvent(long campaignId, long recipientId, int slot, String url, long clickedAt) {
+    }
+}
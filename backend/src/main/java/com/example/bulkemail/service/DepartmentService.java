@@ -1,8 +1,10 @@
 package com.example.bulkemail.service;
 
 import com.example.bulkemail.dto.DepartmentDto;
+import com.example.bulkemail.entity.AudienceRuleType;
 import com.example.bulkemail.entity.Department;
 import com.example.bulkemail.repo.DepartmentRepository;
+import jakarta.transaction.Transactional;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -10,9 +12,14 @@ import java.util.List;
 @Service
 public class DepartmentService {
     private final DepartmentRepository departmentRepository;
+    private final AudienceMembershipService membershipService;
+    private final EmployeeBitmapIndex bitmapIndex;
 
-    public DepartmentService(DepartmentRepository departmentRepository) {
+    public DepartmentService(DepartmentRepository departmentRepository, AudienceMembershipService membershipService,
+                        EmployeeBitmapIndex bitmapIndex) {
         this.departmentRepository = departmentRepository;
+        this.membershipService = membershipService;
+        this.bitmapIndex = bitmapIndex;
     }
 
     public DepartmentDto create(DepartmentDto dto) {
@@ -22,11 +29,16 @@ public class DepartmentService {
         return toDto(saved);
     }
 
+    @Transactional
     public DepartmentDto update(Long id, DepartmentDto dto) {
         Department department = departmentRepository.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("Department not found"));
         applyDto(department, dto);
-        return toDto(departmentRepository.save(department));
+        Department saved = departmentRepository.saveAndFlush(department);
+        // Audience rules match departments by name.
+        membershipService.refreshRuleType(AudienceRuleType.DEPARTMENT);
+        bitmapIndex.refreshNames();
+        return toDto(saved);
     }
 
     public void delete(Long id) {
@@ -0,0 +1,116 @@
+package com.example.bulkemail.service;
+
+import java.util.function.Predicate;
+
+// Set of email addresses held as 64-bit fingerprints in an open-addressing long[] table, for deduplicating
+// recipients during expansion without keeping the address strings. A slot costs 8 bytes and the table stays at
+// most 70% full, so an address takes 12-23 bytes, against roughly 100-150 for a HashSet<String> node plus the
+// retained string. Addresses are compared in canonical form: the domain is case-insensitive, the local part exact.
+// Fingerprints can collide, so a hit is only a candidate duplicate and is confirmed by the caller's exact lookup.
+public final class EmailFingerprintSet {
+    private static final int MAX_LOAD_PERCENT = 70;
+    // Zero marks a free slot; a fingerprint of zero is stored as this value instead.
+    private static final long ZERO_FINGERPRINT = 0x9e3779b97f4a7c15L;
+
+    private long[] table;
+    private int mask;
+    private int size;
+    private int resizeAt;
+    private long collisions;
+
+    public EmailFingerprintSet(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, (int) (Math.max(0, expectedSize) * 100L / MAX_LOAD_PERCENT)));
+        allocate(capacity < (1 << 30) ? capacity << 1 : capacity);
+    }
+
+    // Adds the address and returns true unless it is already in the set. On a fingerprint hit, seen is asked
+    // whether the exact address was added before; if it was not, the hit was a collision and the address is new.
+    public boolean add(String email, Predicate<String> seen) {
+        long fingerprint = fingerprint(email);
+        int slot = (int) fingerprint & mask;
+        long current;
+        while ((current = table[slot]) != 0) {
+            if (current == fingerprint) {
+                if (seen.test(email)) {
+                    return false;
+                }
+                // Later duplicates of this address hit the same slot and are confirmed by the same lookup.
+                collisions++;
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = fingerprint;
+        if (++size >= resizeAt) {
+            grow();
+        }
+        return true;
+    }
+
+    public boolean contains(String email) {
+        long fingerprint = fingerprint(email);
+        int slot = (int) fingerprint & mask;
+        long current;
+        while ((current = table[slot]) != 0) {
+            if (current == fingerprint) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long collisions() {
+        return collisions;
+    }
+
+    public long footprintBytes() {
+        return 8L * table.length;
+    }
+
+    // 64-bit FNV-1a over the canonical address, computed in place, followed by the MurmurHash3 finalizer so the
+    // low bits used for the slot depend on every character.
+    public static long fingerprint(String email) {
+        int at = email.lastIndexOf('@');
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < email.length(); i++) {
+            char c = email.charAt(i);
+            h = (h ^ (i > at ? Character.toLowerCase(c) : c)) * 0x100000001b3L;
+        }
+        h = (h ^ (h >>> 33)) * 0xff51afd7ed558ccdL;
+        h = (h ^ (h >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h != 0 ? h : ZERO_FINGERPRINT;
+    }
+
+    public static boolean sameAddress(String a, String b) {
+        int at = a.lastIndexOf('@');
+        return a.length() == b.length() && b.lastIndexOf('@') == at
+                && a.regionMatches(false, 0, b, 0, at + 1)
+                && a.regionMatches(true, at + 1, b, at + 1, a.length() - at - 1);
+    }
+
+    private void allocate(int capacity) {
+        table = new long[capacity];
+        mask = capacity - 1;
+        resizeAt = capacity == (1 << 30) ? Integer.MAX_VALUE : (int) ((long) capacity * MAX_LOAD_PERCENT / 100);
+    }
+
+    private void grow() {
+        long[] old = table;
+        allocate(old.length << 1);
+        for (long fingerprint : old) {
+            if (fingerprint != 0) {
+                int slot = (int) fingerprint & mask;
+                while (table[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                table[slot] = fingerprint;
+            }
+        }
+    }
+}
@@ -0,0 +1,398 @@
+package com.example.bulkemail.service;
+
+import com.example.bulkemail.config.AppProperties;
+import com.example.bulkemail.entity.AudienceRule;
+import com.example.bulkemail.entity.AudienceRuleType;
+import com.example.bulkemail.entity.EmployeeStatus;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// In-process bitmap index of the employee directory, keyed by employee id, for audience counts and membership
+// without a database round trip. There is one IdBitmap per department, location, status and distinct lower-cased
+// title; a rule set is the AND of its rules' bitmaps and several audiences are OR-ed. A TITLE_CONTAINS rule ORs
+// the bitmaps of every distinct title containing the text, which stays cheap because titles repeat heavily.
+// Department and location rules resolve names to ids through small name tables, so a rename touches no bitmap.
+// Employee writes on this instance are applied after their transaction commits; a periodic full rebuild, off the
+// scheduler thread, picks up writes made elsewhere, so counts may lag another instance's employee writes by up to
+// the rebuild interval. Until the first build completes, match returns null.
+// Each audience's rules are compiled once and cached with the audience's members_refreshed_at, which every rule
+// change moves. A match reads only those timestamps, so a rule edit on any instance is seen at once.
+@Service
+public class EmployeeBitmapIndex {
+    private static final Logger logger = LoggerFactory.getLogger(EmployeeBitmapIndex.class);
+    private static final int LOAD_BATCH = 1000;
+    private static final String COLUMNS = "select id, department_id, location_id, status, lower(title) from employees";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate streamingJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final AppProperties.AudienceIndex properties;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final AtomicBoolean rebuildQueued = new AtomicBoolean();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, CompiledAudience> audiences = new ConcurrentHashMap<>();
+    // Guarded by lock.
+    private Snapshot snapshot;
+    private Set<Long> touchedDuringRebuild;
+
+    public EmployeeBitmapIndex(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                               AppProperties appProperties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.properties = appProperties.getAudienceIndex();
+        // Inside a transaction a fetch size makes the PostgreSQL driver read through a server-side cursor.
+        this.streamingJdbcTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.streamingJdbcTemplate.setFetchSize(1000);
+    }
+
+    @Scheduled(fixedDelayString = "${app.audience-index.rebuild-ms:300000}")
+    public void scheduleRebuild() {
+        if (properties.isEnabled() && rebuildQueued.compareAndSet(false, true)) {
+            executor.submit(() -> {
+                try {
+                    rebuild();
+                } finally {
+                    rebuildQueued.set(false);
+                }
+            });
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdownNow();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    // Members of any of the audiences; null while the index is disabled or not built. Unknown ids match nobody.
+    public IdBitmap match(Collection<Long> audienceIds) {
+        if (!isBuilt()) {
+            return null;
+        }
+        if (audienceIds.isEmpty()) {
+            return new IdBitmap();
+        }
+        Map<Long, Timestamp> versions = new HashMap<>();
+        jdbcTemplate.query("select id, members_refreshed_at from audiences where id in ("
+                        + String.join(",", Collections.nCopies(audienceIds.size(), "?")) + ")",
+                rs -> {
+                    versions.put(rs.getLong(1), rs.getTimestamp(2));
+                }, audienceIds.toArray());
+        List<List<Rule>> rules = new ArrayList<>();
+        versions.forEach((audienceId, version) -> {
+            CompiledAudience cached = audiences.get(audienceId);
+            if (cached == null || !Objects.equals(cached.version(), version)) {
+                cached = new CompiledAudience(version, loadRules(audienceId));
+                audiences.put(audienceId, cached);
+            }
+            rules.add(cached.rules());
+        });
+        lock.readLock().lock();
+        try {
+            if (snapshot == null) {
+                return null;
+            }
+            IdBitmap result = new IdBitmap();
+            for (List<Rule> audience : rules) {
+                result = result.or(snapshot.match(audience));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Drops the audience's compiled rules once the current transaction commits.
+    public void evictAudience(Long audienceId) {
+        afterCommit(() -> audiences.remove(audienceId));
+    }
+
+    // Re-reads these employees once the current transaction commits; deleted ones drop out of every bitmap.
+    public void refreshEmployees(Collection<Long> employeeIds) {
+        if (!employeeIds.isEmpty()) {
+            List<Long> ids = List.copyOf(employeeIds);
+            afterCommit(() -> apply(ids));
+        }
+    }
+
+    // Re-reads the department and location names once the current transaction commits.
+    public void refreshNames() {
+        afterCommit(() -> {
+            Names names = loadNames();
+            lock.writeLock().lock();
+            try {
+                if (snapshot != null) {
+                    snapshot.names = names;
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    private boolean isBuilt() {
+        lock.readLock().lock();
+        try {
+            return snapshot != null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<Rule> loadRules(Long audienceId) {
+        List<AudienceRule> rules = new ArrayList<>();
+        jdbcTemplate.query("select rule_type, rule_value from audience_rules where audience_id = ?", rs -> {
+            AudienceRule rule = new AudienceRule();
+            rule.setRuleType(AudienceRuleType.valueOf(rs.getString(1)));
+            rule.setRuleValue(rs.getString(2));
+            rules.add(rule);
+        }, audienceId);
+        return compile(rules);
+    }
+
+    private void rebuild() {
+        lock.writeLock().lock();
+        try {
+            touchedDuringRebuild = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        Snapshot built = null;
+        try {
+            Snapshot next = new Snapshot(loadNames());
+            transactionTemplate.executeWithoutResult(status -> streamingJdbcTemplate.query(COLUMNS,
+                    rs -> {
+                        next.add(rs.getLong(1), (Long) rs.getObject(2), (Long) rs.getObject(3), rs.getString(4),
+                                rs.getString(5));
+                    }));
+            built = next;
+        } catch (RuntimeException e) {
+            logger.warn("Employee bitmap index rebuild failed: {}", e.getMessage());
+        }
+        Set<Long> touched;
+        lock.writeLock().lock();
+        try {
+            if (built != null) {
+                snapshot = built;
+                // Drops audiences deleted on other instances; the rest recompile on their next match.
+                audiences.clear();
+            }
+            touched = touchedDuringRebuild;
+            touchedDuringRebuild = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        // Writes committed while the scan ran may be missing from it; read them again.
+        if (built != null && !touched.isEmpty()) {
+            apply(touched);
+        }
+    }
+
+    private void apply(Collection<Long> employeeIds) {
+        try {
+            Map<Long, Object[]> rows = new HashMap<>();
+            List<Long> ids = new ArrayList<>(employeeIds);
+            for (int from = 0; from < ids.size(); from += LOAD_BATCH) {
+                List<Long> batch = ids.subList(from, Math.min(ids.size(), from + LOAD_BATCH));
+                jdbcTemplate.query(COLUMNS + " where id in ("
+                                + String.join(",", Collections.nCopies(batch.size(), "?")) + ")",
+                        rs -> {
+                            rows.put(rs.getLong(1), new Object[]{rs.getObject(2), rs.getObject(3), rs.getString(4),
+                                    rs.getString(5)});
+                        }, batch.toArray());
+            }
+            Names names = loadNames();
+            lock.writeLock().lock();
+            try {
+                if (touchedDuringRebuild != null) {
+                    touchedDuringRebuild.addAll(employeeIds);
+                }
+                if (snapshot == null) {
+                    return;
+                }
+                snapshot.names = names;
+                for (Long id : ids) {
+                    snapshot.remove(id);
+                    Object[] row = rows.get(id);
+                    if (row != null) {
+                        snapshot.add(id, (Long) row[0], (Long) row[1], (String) row[2], (String) row[3]);
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } catch (RuntimeException e) {
+            // The next rebuild repairs whatever this update missed.
+            logger.warn("Employee bitmap index update failed: {}", e.getMessage());
+        }
+    }
+
+    private Names loadNames() {
+        Names names = new Names();
+        jdbcTemplate.query("select id, name from departments", rs -> {
+            names.department(rs.getLong(1), rs.getString(2));
+        });
+        jdbcTemplate.query("select id, name from locations", rs -> {
+            names.location(rs.getLong(1), rs.getString(2));
+        });
+        return names;
+    }
+
+    // Same semantics as AudienceMembershipService.toSqlPredicate; rule types it ignores are dropped here.
+    static List<Rule> compile(List<AudienceRule> rules) {
+        List<Rule> compiled = new ArrayList<>();
+        for (AudienceRule rule : rules) {
+            AudienceRuleType type = rule.getRuleType();
+            if (type == AudienceRuleType.STATUS) {
+                compiled.add(new Rule(type, null,
+                        EmployeeStatus.valueOf(rule.getRuleValue().toUpperCase(Locale.ROOT))));
+            } else if (type == AudienceRuleType.DEPARTMENT || type == AudienceRuleType.LOCATION
+                    || type == AudienceRuleType.TITLE_CONTAINS) {
+                compiled.add(new Rule(type, lower(rule.getRuleValue()), null));
+            }
+        }
+        return List.copyOf(compiled);
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static String lower(String value) {
+        return value != null ? value.toLowerCase(Locale.ROOT) : null;
+    }
+
+    private static int ordinal(long id) {
+        if (id > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Employee id " + id + " does not fit the bitmap index");
+        }
+        return (int) id;
+    }
+
+    record Rule(AudienceRuleType type, String value, EmployeeStatus status) {
+    }
+
+    private record CompiledAudience(Timestamp version, List<Rule> rules) {
+    }
+
+    static final class Names {
+        private final Map<String, List<Long>> departments = new HashMap<>();
+        private final Map<String, List<Long>> locations = new HashMap<>();
+
+        void department(long id, String name) {
+            departments.computeIfAbsent(lower(name), key -> new ArrayList<>()).add(id);
+        }
+
+        void location(long id, String name) {
+            locations.computeIfAbsent(lower(name), key -> new ArrayList<>()).add(id);
+        }
+    }
+
+    static final class Snapshot {
+        private final IdBitmap all = new IdBitmap();
+        private final Map<Long, IdBitmap> departments = new HashMap<>();
+        private final Map<Long, IdBitmap> locations = new HashMap<>();
+        private final Map<EmployeeStatus, IdBitmap> statuses = new EnumMap<>(EmployeeStatus.class);
+        private final Map<String, IdBitmap> titles = new HashMap<>();
+        private Names names;
+
+        Snapshot(Names names) {
+            this.names = names;
+        }
+
+        void add(long id, Long departmentId, Long locationId, String status, String title) {
+            int ordinal = ordinal(id);
+            all.add(ordinal);
+            if (departmentId != null) {
+                departments.computeIfAbsent(departmentId, key -> new IdBitmap()).add(ordinal);
+            }
+            if (locationId != null) {
+                locations.computeIfAbsent(locationId, key -> new IdBitmap()).add(ordinal);
+            }
+            statuses.computeIfAbsent(EmployeeStatus.valueOf(status), key -> new IdBitmap()).add(ordinal);
+            if (title != null) {
+                titles.computeIfAbsent(title, key -> new IdBitmap()).add(ordinal);
+            }
+        }
+
+        void remove(long id) {
+            if (id > Integer.MAX_VALUE || !all.contains((int) id)) {
+                return;
+            }
+            int ordinal = (int) id;
+            all.remove(ordinal);
+            departments.values().forEach(bitmap -> bitmap.remove(ordinal));
+            locations.values().forEach(bitmap -> bitmap.remove(ordinal));
+            statuses.values().forEach(bitmap -> bitmap.remove(ordinal));
+            titles.values().removeIf(bitmap -> {
+                bitmap.remove(ordinal);
+                return bitmap.isEmpty();
+            });
+        }
+
+        IdBitmap match(List<Rule> rules) {
+            IdBitmap result = all;
+            for (Rule rule : rules) {
+                IdBitmap matched = new IdBitmap();
+                if (rule.type() == AudienceRuleType.DEPARTMENT) {
+                    for (Long departmentId : names.departments.getOrDefault(rule.value(), List.of())) {
+                        matched = matched.or(departments.getOrDefault(departmentId, matched));
+                    }
+                } else if (rule.type() == AudienceRuleType.LOCATION) {
+                    for (Long locationId : names.locations.getOrDefault(rule.value(), List.of())) {
+                        matched = matched.or(locations.getOrDefault(locationId, matched));
+                    }
+                } else if (rule.type() == AudienceRuleType.TITLE_CONTAINS) {
+                    for (Map.Entry<String, IdBitmap> title : titles.entrySet()) {
+                        if (title.getKey().contains(rule.value())) {
+                            matched = matched.or(title.getValue());
+                        }
+                    }
+                } else {
+                    matched = statuses.getOrDefault(rule.status(), matched);
+                }
+                result = result.and(matched);
+            }
+            // The caller may keep the result, so never hand out a bitmap the index still mutates.
+            return result == all ? all.copy() : result;
+        }
+    }
+}
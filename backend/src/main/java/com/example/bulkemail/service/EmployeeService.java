@@ -11,6 +11,7 @@ import com.example.bulkemail.repo.DepartmentRepository;
 import com.example.bulkemail.repo.EmployeeRepository;
 import com.example.bulkemail.repo.LocationRepository;
 import jakarta.persistence.criteria.Predicate;
+import jakarta.transaction.Transactional;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
@@ -19,44 +20,64 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 @Service
 public class EmployeeService {
     private final EmployeeRepository employeeRepository;
     private final DepartmentRepository departmentRepository;
     private final LocationRepository locationRepository;
+    private final AudienceMembershipService membershipService;
+    private final EmployeeBitmapIndex bitmapIndex;
 
     public EmployeeService(EmployeeRepository employeeRepository, DepartmentRepository departmentRepository,
-                           LocationRepository locationRepository) {
+                           LocationRepository locationRepository, AudienceMembershipService membershipService,
+                           EmployeeBitmapIndex bitmapIndex) {
         this.employeeRepository = employeeRepository;
         this.departmentRepository = departmentRepository;
         this.locationRepository = locationRepository;
+        this.membershipService = membershipService;
+        this.bitmapIndex = bitmapIndex;
     }
 
+    // Audience memberships are recomputed in the same transaction as the employee write; the bitmap index
+    // follows once it commits.
+    @Transactional
     public EmployeeDto create(EmployeeDto dto) {
         Employee employee = new Employee();
         applyDto(employee, dto);
-        return toDto(employeeRepository.save(employee));
+        Employee saved = employeeRepository.saveAndFlush(employee);
+        membershipService.refreshEmployees(List.of(saved.getId()));
+        bitmapIndex.refreshEmployees(List.of(saved.getId()));
+        return toDto(saved);
     }
 
+    @Transactional
     public EmployeeDto update(Long id, EmployeeDto dto) {
         Employee employee = employeeRepository.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("Employee not found"));
         applyDto(employee, dto);
-        return toDto(employeeRepository.save(employee));
+        Employee saved = employeeRepository.saveAndFlush(employee);
+        membershipService.refreshEmployees(List.of(saved.getId()));
+        bitmapIndex.refreshEmployees(List.of(saved.getId()));
+        return toDto(saved);
     }
 
     public void delete(Long id) {
         employeeRepository.deleteById(id);
+        bitmapIndex.refreshEmployees(List.of(id));
     }
 
+    @Transactional
     public void bulkAction(EmployeeBulkRequest request) {
         if (request.getIds() == null || request.getIds().isEmpty()) {
             return;
         }
         if (request.getAction() == EmployeeBulkAction.DELETE) {
             employeeRepository.deleteAllById(request.getIds());
+            bitmapIndex.refreshEmployees(request.getIds());
             return;
         }
         if (request.getAction() == EmployeeBulkAction.DEACTIVATE) {
@@ -64,7 +85,10 @@ public class EmployeeService {
             for (Employee employee : employees) {
                 employee.setStatus(EmployeeStatus.INACTIVE);
             }
-            employeeRepository.saveAll(employees);
+            employeeRepository.saveAllAndFlush(employees);
+            List<Long> ids = employees.stream().map(Employee::getId).toList();
+            membershipService.refreshEmployees(ids);
+            bitmapIndex.refreshEmployees(ids);
         }
     }
 
@@ -88,8 +112,11 @@ public class EmployeeService {
         return employeeRepository.findAll(spec).stream().map(this::toDto).toList();
     }
 
+    // Rows are saved one by one as before; the memberships of every row saved so far are recomputed at the end,
+    // even when a later row fails.
     public int syncCsv(MultipartFile file) {
         int count = 0;
+        Set<Long> imported = new LinkedHashSet<>();
         try (BufferedReader reader = new BufferedReader(new InputStreamReader(file.getInputStream()))) {
             String line;
             String[] headers = null;
@@ -131,11 +158,14 @@ public class EmployeeService {
                 employee.setLocation(location);
                 employee.setExternalId(externalId);
                 employee.setWhatsappNumber(whatsapp);
-                employeeRepository.save(employee);
+                imported.add(employeeRepository.save(employee).getId());
                 count++;
             }
         } catch (IOException e) {
             throw new IllegalArgumentException("CSV import failed", e);
+        } finally {
+            membershipService.refreshEmployees(imported);
+            bitmapIndex.refreshEmployees(imported);
         }
         return count;
     }
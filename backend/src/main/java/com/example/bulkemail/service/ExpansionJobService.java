@@ -0,0 +1,304 @@
+package com.example.bulkemail.service;
+
+import com.example.bulkemail.audit.AuditService;
+import com.example.bulkemail.config.AppProperties;
+import com.example.bulkemail.dto.ExpansionJobDto;
+import com.example.bulkemail.entity.Campaign;
+import com.example.bulkemail.entity.CampaignStatus;
+import com.example.bulkemail.entity.ExpansionJob;
+import com.example.bulkemail.entity.ExpansionJobStatus;
+import com.example.bulkemail.repo.CampaignRepository;
+import com.example.bulkemail.repo.ExpansionJobRepository;
+import com.example.bulkemail.security.SecurityUtil;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.lang.management.ManagementFactory;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// Background recipient expansion. A request only records a job row; workers on any instance claim queued jobs
+// and expand them chunk by chunk, each chunk committed in its own transaction together with the job's checkpoint
+// (the last employee id covered). A worker that dies leaves a stale heartbeat, and the job is picked up again
+// from its checkpoint. With pipelining on, the first committed chunk moves an approved campaign to SENDING, so
+// the send worker starts on the early chunks while later ones are still being expanded. The job then holds back
+// while the campaign has too many recipients waiting to be sent.
+@Service
+public class ExpansionJobService {
+    private static final Logger logger = LoggerFactory.getLogger(ExpansionJobService.class);
+
+    private final ExpansionJobRepository jobRepository;
+    private final AudienceMembershipService membershipService;
+    private final CampaignRepository campaignRepository;
+    private final RecipientExpansionService expansionService;
+    private final CampaignProgressService progressService;
+    private final AuditService auditService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final AppProperties.Expansion properties;
+    private final String owner = ManagementFactory.getRuntimeMXBean().getName() + "/" + UUID.randomUUID();
+    private final ExecutorService executor;
+    private final Set<Long> running = ConcurrentHashMap.newKeySet();
+
+    public ExpansionJobService(ExpansionJobRepository jobRepository, AudienceMembershipService membershipService,
+                               CampaignRepository campaignRepository, RecipientExpansionService expansionService,
+                               CampaignProgressService progressService, AuditService auditService,
+                               JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                               AppProperties appProperties) {
+        this.jobRepository = jobRepository;
+        this.membershipService = membershipService;
+        this.campaignRepository = campaignRepository;
+        this.expansionService = expansionService;
+        this.progressService = progressService;
+        this.auditService = auditService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.properties = appProperties.getExpansion();
+        this.executor = Executors.newFixedThreadPool(properties.getJobThreads());
+    }
+
+    // Records a job in the caller's transaction; an unfinished job for the same campaign is superseded.
+    public ExpansionJob enqueue(Long campaignId, List<Long> audienceIds) {
+        jdbcTemplate.update("update expansion_jobs set status = 'CANCELLED', finished_at = now() "
+                + "where campaign_id = ? and status in ('QUEUED', 'RUNNING')", campaignId);
+        ExpansionJob job = new ExpansionJob();
+        job.setCampaignId(campaignId);
+        job.setAudienceIds(audienceIds.stream().map(String::valueOf).collect(Collectors.joining(",")));
+        job.setStatus(ExpansionJobStatus.QUEUED);
+        job.setRequestedBy(SecurityUtil.currentEmail());
+        job.setCreatedAt(Instant.now());
+        return jobRepository.save(job);
+    }
+
+    public ExpansionJobDto latest(Long campaignId) {
+        return jobRepository.findFirstByCampaignIdOrderByIdDesc(campaignId).map(this::toDto)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "No expansion job for campaign"));
+    }
+
+    public ExpansionJobDto get(Long campaignId, Long jobId) {
+        return jobRepository.findByIdAndCampaignId(jobId, campaignId).map(this::toDto)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Expansion job not found"));
+    }
+
+    @Scheduled(fixedDelayString = "${app.expansion.poll-interval-ms:1000}")
+    public void poll() {
+        int free = properties.getJobThreads() - running.size();
+        if (free <= 0) {
+            return;
+        }
+        Timestamp staleBefore = Timestamp.from(Instant.now().minusMillis(properties.getStaleAfterMs()));
+        List<Long> candidates = jdbcTemplate.queryForList("select id from expansion_jobs where status = 'QUEUED' "
+                + "or (status = 'RUNNING' and heartbeat_at < ?) order by id limit ?", Long.class, staleBefore, free);
+        for (Long id : candidates) {
+            if (running.contains(id) || jdbcTemplate.update("update expansion_jobs set status = 'RUNNING', owner = ?, "
+                    + "heartbeat_at = now(), started_at = coalesce(started_at, now()) where id = ? "
+                    + "and (status = 'QUEUED' or (status = 'RUNNING' and heartbeat_at < ?))", owner, id, staleBefore) == 0) {
+                continue;
+            }
+            running.add(id);
+            executor.submit(() -> {
+                try {
+                    run(id);
+                } finally {
+                    running.remove(id);
+                }
+            });
+        }
+    }
+
+    // Hands this instance's jobs back to the queue so the next worker resumes them without waiting out the heartbeat.
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdownNow();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+        jdbcTemplate.update("update expansion_jobs set status = 'QUEUED', owner = null "
+                + "where owner = ? and status = 'RUNNING'", owner);
+    }
+
+    private void run(Long jobId) {
+        ExpansionJob job = jobRepository.findById(jobId).orElse(null);
+        if (job == null) {
+            return;
+        }
+        Long campaignId = job.getCampaignId();
+        try {
+            List<Long> audienceIds = new ArrayList<>();
+            for (String audienceId : job.getAudienceIds().split(",")) {
+                audienceIds.add(Long.valueOf(audienceId.trim()));
+            }
+            membershipService.ensureFresh(audienceIds);
+            Long after = job.getLastEmployeeId();
+            if (after == null) {
+                // The old recipients are cleared in the same transaction that records the starting checkpoint.
+                after = transactionTemplate.execute(status -> {
+                    expansionService.clear(campaignId);
+                    if (checkpoint(jobId, "last_employee_id = 0, max_employee_id = ?",
+                            expansionService.maxEmployeeId()) == 0) {
+                        status.setRollbackOnly();
+                        return null;
+                    }
+                    return 0L;
+                });
+            }
+            int chunkSize = properties.getChunkSize();
+            EmailFingerprintSet seen = after == null ? null : transactionTemplate.execute(status ->
+                    expansionService.recipientSet(campaignId, Math.max(chunkSize, (int) job.getInserted())));
+            while (after != null && !Thread.currentThread().isInterrupted()) {
+                if (properties.isPipelined() && !awaitBacklog(jobId, campaignId)) {
+                    break;
+                }
+                long from = after;
+                RecipientExpansionService.Chunk chunk = transactionTemplate.execute(status -> {
+                    RecipientExpansionService.Chunk result =
+                            expansionService.expandChunk(campaignId, audienceIds, from, chunkSize, seen);
+                    if (checkpoint(jobId, "last_employee_id = ?, matched = matched + ?, inserted = inserted + ?",
+                            result.lastEmployeeId(), result.matched(), result.inserted()) == 0) {
+                        status.setRollbackOnly();
+                        return null;
+                    }
+                    if (properties.isPipelined() && result.inserted() > 0) {
+                        jdbcTemplate.update("update campaigns set status = 'SENDING', updated_at = now() "
+                                + "where id = ? and status = 'APPROVED'", campaignId);
+                    }
+                    return result;
+                });
+                if (chunk != null && properties.isPipelined() && chunk.inserted() > 0) {
+                    progressService.invalidate(campaignId);
+                }
+                if (chunk == null) {
+                    after = null;
+                } else if (chunk.matched() < chunkSize) {
+                    complete(jobId, campaignId);
+                    return;
+                } else {
+                    after = chunk.lastEmployeeId();
+                }
+            }
+            if (!Thread.currentThread().isInterrupted()) {
+                // The job was superseded, or its campaign was cancelled, while this worker held it.
+                jdbcTemplate.update("update expansion_jobs set status = 'CANCELLED', finished_at = now() "
+                        + "where id = ? and owner = ? and status = 'RUNNING'", jobId, owner);
+            }
+        } catch (RuntimeException e) {
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            logger.warn("Expansion job {} for campaign {} failed: {}", jobId, campaignId, e.getMessage());
+            jdbcTemplate.update("update expansion_jobs set status = 'FAILED', error = ?, finished_at = now() "
+                    + "where id = ? and owner = ? and status = 'RUNNING'", e.getMessage(), jobId, owner);
+        }
+    }
+
+    // Waits while the sending campaign has maxQueuedAhead or more recipients queued, keeping the heartbeat fresh.
+    // The count stops at the limit, so it stays cheap however large the backlog is. Returns false once the job is
+    // no longer this worker's to run.
+    private boolean awaitBacklog(Long jobId, Long campaignId) {
+        int limit = properties.getMaxQueuedAhead();
+        while (true) {
+            Integer queued = jdbcTemplate.queryForObject("select count(*) from (select 1 from campaign_recipients cr "
+                    + "join campaigns c on c.id = cr.campaign_id where cr.campaign_id = ? and cr.status = 'QUEUED' "
+                    + "and c.status = 'SENDING' limit ?) backlog", Integer.class, campaignId, limit);
+            if (queued == null || queued < limit) {
+                return true;
+            }
+            if (checkpoint(jobId, "last_employee_id = last_employee_id") == 0) {
+                return false;
+            }
+            try {
+                Thread.sleep(properties.getBackpressureWaitMs());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+    }
+
+    // Advances the job only while this worker still owns it and its campaign has not been cancelled.
+    private int checkpoint(Long jobId, String assignments, Object... values) {
+        Object[] args = Arrays.copyOf(values, values.length + 2);
+        args[values.length] = jobId;
+        args[values.length + 1] = owner;
+        return jdbcTemplate.update("update expansion_jobs set " + assignments + ", heartbeat_at = now() "
+                + "where id = ? and owner = ? and status = 'RUNNING' and exists (select 1 from campaigns c "
+                + "where c.id = expansion_jobs.campaign_id and c.status <> 'CANCELLED')", args);
+    }
+
+    private void complete(Long jobId, Long campaignId) {
+        ExpansionJob job = transactionTemplate.execute(status -> {
+            // Serializes with the send worker's completion check; whichever commits second sees the other's work.
+            if (campaignRepository.lockStatus(campaignId).isEmpty()) {
+                return null;
+            }
+            if (jdbcTemplate.update("update expansion_jobs set status = 'COMPLETED', finished_at = now() "
+                    + "where id = ? and owner = ? and status = 'RUNNING'", jobId, owner) == 0) {
+                return null;
+            }
+            Campaign campaign = campaignRepository.findById(campaignId).orElse(null);
+            if (campaign != null && campaign.getStatus() == CampaignStatus.APPROVED) {
+                campaign.setStatus(CampaignStatus.SENDING);
+                campaign.setUpdatedAt(Instant.now());
+                campaignRepository.save(campaign);
+            }
+            // The send worker does not complete a campaign while its expansion runs, so the last word is here
+            // when every pipelined recipient was already sent.
+            if (campaign != null && campaign.getStatus() == CampaignStatus.SENDING && !Boolean.TRUE.equals(
+                    jdbcTemplate.queryForObject("select exists (select 1 from campaign_recipients where campaign_id = ? "
+                            + "and status in ('QUEUED', 'RETRY'))", Boolean.class, campaignId))) {
+                campaign.setStatus(CampaignStatus.COMPLETED);
+                campaign.setUpdatedAt(Instant.now());
+                campaignRepository.save(campaign);
+            }
+            return jobRepository.findById(jobId).orElse(null);
+        });
+        if (job == null) {
+            return;
+        }
+        progressService.invalidate(campaignId);
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("jobId", jobId);
+        summary.put("requestedBy", job.getRequestedBy());
+        summary.put("matched", job.getMatched());
+        summary.put("inserted", job.getInserted());
+        auditService.logAction("CAMPAIGN_EXPAND_COMPLETED", "campaign", campaignId.toString(), null, summary,
+                null, null);
+    }
+
+    public ExpansionJobDto toDto(ExpansionJob job) {
+        ExpansionJobDto dto = new ExpansionJobDto();
+        dto.setJobId(job.getId());
+        dto.setCampaignId(job.getCampaignId());
+        dto.setStatus(job.getStatus().name());
+        dto.setMatched(job.getMatched());
+        dto.setInserted(job.getInserted());
+        if (job.getStatus() == ExpansionJobStatus.COMPLETED) {
+            dto.setPercent(100.0);
+        } else if (job.getLastEmployeeId() != null && job.getMaxEmployeeId() > 0) {
+            dto.setPercent(Math.min(100.0, job.getLastEmployeeId() * 100.0 / job.getMaxEmployeeId()));
+        }
+        dto.setCreatedAt(job.getCreatedAt());
+        dto.setStartedAt(job.getStartedAt());
+        dto.setFinishedAt(job.getFinishedAt());
+        dto.setError(job.getError());
+        return dto;
+    }
+}
@@ -1,8 +1,10 @@
 package com.example.bulkemail.service;
 
 import com.example.bulkemail.dto.LocationDto;
+import com.example.bulkemail.entity.AudienceRuleType;
 import com.example.bulkemail.entity.Location;
 import com.example.bulkemail.repo.LocationRepository;
+import jakarta.transaction.Transactional;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -10,9 +12,14 @@ import java.util.List;
 @Service
 public class LocationService {
     private final LocationRepository locationRepository;
+    private final AudienceMembershipService membershipService;
+    private final EmployeeBitmapIndex bitmapIndex;
 
-    public LocationService(LocationRepository locationRepository) {
+    public LocationService(LocationRepository locationRepository, AudienceMembershipService membershipService,
+                        EmployeeBitmapIndex bitmapIndex) {
         this.locationRepository = locationRepository;
+        this.membershipService = membershipService;
+        this.bitmapIndex = bitmapIndex;
     }
 
     public LocationDto create(LocationDto dto) {
@@ -22,11 +29,16 @@ public class LocationService {
         return toDto(saved);
     }
 
+    @Transactional
     public LocationDto update(Long id, LocationDto dto) {
         Location location = locationRepository.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("Location not found"));
         location.setName(dto.getName());
-        return toDto(locationRepository.save(location));
+        Location saved = locationRepository.saveAndFlush(location);
+        // Audience rules match locations by name.
+        membershipService.refreshRuleType(AudienceRuleType.LOCATION);
+        bitmapIndex.refreshNames();
+        return toDto(saved);
     }
 
     public void delete(Long id) {
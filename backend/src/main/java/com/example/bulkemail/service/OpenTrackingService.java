@@ -0,0 +1,158 @@
+package com.example.bulkemail.service;
+
+import com.example.bulkemail.config.AppProperties;
+import com.example.bulkemail.sending.TrackingTokens;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Absorbs pixel hits in memory and writes them out in bulk. Each hit bumps a striped per-campaign counter;
+// only the first hit per recipient is queued for a first_opened_at write, and recipients that have already
+// been written are remembered so repeat opens never reach the database as rows.
+@Service
+public class OpenTrackingService {
+    private static final Logger logger = LoggerFactory.getLogger(OpenTrackingService.class);
+    private static final int FLUSH_BATCH_SIZE = 500;
+
+    private final TrackingTokens trackingTokens;
+    private final JdbcTemplate jdbcTemplate;
+    private final int maxPending;
+    private final int dedupeCapacity;
+    private final Map<Long, CampaignOpens> campaigns = new ConcurrentHashMap<>();
+    private final Map<Long, PendingOpen> pending = new ConcurrentHashMap<>();
+    private final Set<Long> flushed = ConcurrentHashMap.newKeySet();
+    private final AtomicLong dropped = new AtomicLong();
+
+    public OpenTrackingService(TrackingTokens trackingTokens, JdbcTemplate jdbcTemplate, AppProperties appProperties) {
+        this.trackingTokens = trackingTokens;
+        this.jdbcTemplate = jdbcTemplate;
+        this.maxPending = appProperties.getTracking().getMaxPending();
+        this.dedupeCapacity = appProperties.getTracking().getDedupeCapacity();
+    }
+
+    // Returns false for tokens that do not verify; the caller still serves the pixel.
+    public boolean record(String token) {
+        return trackingTokens.verify(TrackingTokens.Purpose.OPEN, token)
+                .map(decoded -> {
+                    record(decoded.campaignId(), decoded.recipientId(), System.currentTimeMillis());
+                    return true;
+                })
+                .orElse(false);
+    }
+
+    public void record(long campaignId, long recipientId, long openedAt) {
+        campaigns.computeIfAbsent(campaignId, id -> new CampaignOpens()).hits.increment();
+        if (flushed.contains(recipientId) || pending.containsKey(recipientId)) {
+            return;
+        }
+        if (pending.size() >= maxPending) {
+            dropped.incrementAndGet();
+            return;
+        }
+        pending.putIfAbsent(recipientId, new PendingOpen(campaignId, openedAt));
+    }
+
+    // Opens counted in memory that have not been added to campaigns.open_count yet.
+    public long unflushedOpens(Long campaignId) {
+        CampaignOpens opens = campaigns.get(campaignId);
+        return opens != null ? Math.max(0, opens.hits.sum() - opens.written) : 0;
+    }
+
+    @Scheduled(fixedDelayString = "${app.tracking.flush-interval-ms:5000}")
+    public synchronized void flush() {
+        flushFirstOpens();
+        flushCounts();
+        long lost = dropped.getAndSet(0);
+        if (lost > 0) {
+            logger.warn("Open tracking buffer full; {} first opens were not recorded", lost);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private void flushFirstOpens() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<Object[]> rows = new ArrayList<>(pending.size());
+        List<Long> ids = new ArrayList<>(pending.size());
+        Iterator<Map.Entry<Long, PendingOpen>> iterator = pending.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Long, PendingOpen> entry = iterator.next();
+            PendingOpen open = entry.getValue();
+            rows.add(new Object[]{new Timestamp(open.openedAt()), entry.getKey(), open.campaignId()});
+            ids.add(entry.getKey());
+        }
+        try {
+            // Guarded by "is null" so a replay or a second node can never move the first open later.
+            for (int from = 0; from < rows.size(); from += FLUSH_BATCH_SIZE) {
+                jdbcTemplate.batchUpdate("update campaign_recipients set first_opened_at = ? "
+                                + "where id = ? and campaign_id = ? and first_opened_at is null",
+                        rows.subList(from, Math.min(rows.size(), from + FLUSH_BATCH_SIZE)));
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Failed to flush {} first opens, will retry: {}", rows.size(), e.getMessage());
+            return;
+        }
+        if (flushed.size() + ids.size() > dedupeCapacity) {
+            // The update is idempotent, so forgetting old recipients only costs a few redundant writes.
+            flushed.clear();
+        }
+        for (Long id : ids) {
+            flushed.add(id);
+            pending.remove(id);
+        }
+    }
+
+    private void flushCounts() {
+        List<Object[]> rows = new ArrayList<>();
+        List<long[]> written = new ArrayList<>();
+        for (Map.Entry<Long, CampaignOpens> entry : campaigns.entrySet()) {
+            CampaignOpens opens = entry.getValue();
+            long total = opens.hits.sum();
+            long delta = total - opens.written;
+            if (delta > 0) {
+                rows.add(new Object[]{delta, entry.getKey()});
+                written.add(new long[]{entry.getKey(), total});
+            }
+        }
+        if (rows.isEmpty()) {
+            return;
+        }
+        try {
+            jdbcTemplate.batchUpdate("update campaigns set open_count = open_count + ? where id = ?", rows);
+        } catch (RuntimeException e) {
+            logger.warn("Failed to flush open counts for {} campaigns, will retry: {}", rows.size(), e.getMessage());
+            return;
+        }
+        for (long[] campaign : written) {
+            campaigns.get(campaign[0]).written = campaign[1];
+        }
+    }
+
+    // The adder is cumulative; "written" is how much of it is already in the database. Only the flushing
+    // thread moves it, so no increment is lost the way sumThenReset could lose one.
+    private static final class CampaignOpens {
+        private final LongAdder hits = new LongAdder();
+        private volatile long written;
+    }
+
+    private record PendingOpen(long campaignId, long openedAt) {
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.bulkemail.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+// Buffers streamed recipient rows and hands them to a sink in fixed-size batches. The buffer is reused,
+// so the heap in use depends on the batch size only, never on how many rows pass through. With a fingerprint set,
+// addresses already written (by this writer or earlier ones sharing the set) are dropped before they are batched.
+public class RecipientBatchWriter {
+    private final long campaignId;
+    private final int batchSize;
+    private final Predicate<String> excluded;
+    private final Consumer<List<Object[]>> sink;
+    private final EmailFingerprintSet seen;
+    private final Predicate<String> persisted;
+    private final List<Object[]> buffer;
+    private long written;
+    private long skipped;
+    private long duplicates;
+
+    public RecipientBatchWriter(long campaignId, int batchSize, Predicate<String> excluded,
+                                Consumer<List<Object[]>> sink) {
+        this(campaignId, batchSize, excluded, null, null, sink);
+    }
+
+    // persisted is the exact lookup behind a fingerprint hit for rows already handed to the sink.
+    public RecipientBatchWriter(long campaignId, int batchSize, Predicate<String> excluded, EmailFingerprintSet seen,
+                                Predicate<String> persisted, Consumer<List<Object[]>> sink) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be positive");
+        }
+        this.campaignId = campaignId;
+        this.batchSize = batchSize;
+        this.excluded = excluded;
+        this.sink = sink;
+        this.seen = seen;
+        this.persisted = persisted;
+        this.buffer = new ArrayList<>(batchSize);
+    }
+
+    public void add(String email, String fullName, String department) {
+        if (email == null || excluded.test(email)) {
+            skipped++;
+            return;
+        }
+        if (seen != null && !seen.add(email, this::alreadyWritten)) {
+            duplicates++;
+            return;
+        }
+        buffer.add(new Object[]{campaignId, email, fullName, department});
+        if (buffer.size() >= batchSize) {
+            flush();
+        }
+    }
+
+    public void flush() {
+        if (buffer.isEmpty()) {
+            return;
+        }
+        sink.accept(buffer);
+        written += buffer.size();
+        buffer.clear();
+    }
+
+    public long written() {
+        return written;
+    }
+
+    public long skipped() {
+        return skipped;
+    }
+
+    public long duplicates() {
+        return duplicates;
+    }
+
+    private boolean alreadyWritten(String email) {
+        for (Object[] row : buffer) {
+            if (EmailFingerprintSet.sameAddress((String) row[1], email)) {
+                return true;
+            }
+        }
+        return persisted != null && persisted.test(email);
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.bulkemail.service;
+
+import com.example.bulkemail.config.AppProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Expands audiences into campaign recipients, one chunk of employees (in id order) at a time, so the caller
+// can commit and checkpoint between chunks. Employees are selected through the materialized audience_members
+// table, so the audience rules are not re-evaluated; exact suppressions are removed by an anti-join and no
+// employee row is loaded as an entity.
+// In "sql" mode a chunk is a single INSERT ... SELECT that also applies the domain and wildcard rules.
+// In "streaming" mode a forward-only cursor over (email, full name, department) feeds the in-memory rule
+// matcher and JDBC batch inserts; heap use is bounded by the fetch and batch sizes, plus a fingerprint set of the
+// addresses written so far, which drops addresses that differ only in the case of their domain.
+@Service
+public class RecipientExpansionService {
+    // Rules are stored normalized (lower case, "*" wildcards); a pattern without "@" names a domain.
+    private static final String RULE_LIKE = "(case when strpos(r.pattern, '@') > 0 then '' else '%@' end) "
+            + "|| replace(replace(replace(replace(r.pattern, '\\', '\\\\'), '%', '\\%'), '_', '\\_'), '*', '%')";
+    private static final String INSERT = "insert into campaign_recipients "
+            + "(campaign_id, email, full_name, department, status, retry_count, updated_at) ";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate streamingJdbcTemplate;
+    private final SuppressionService suppressionService;
+    private final AppProperties.Expansion properties;
+
+    public RecipientExpansionService(JdbcTemplate jdbcTemplate, SuppressionService suppressionService,
+                                     AppProperties appProperties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.suppressionService = suppressionService;
+        this.properties = appProperties.getExpansion();
+        // Inside a transaction a fetch size makes the PostgreSQL driver read through a server-side cursor.
+        this.streamingJdbcTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.streamingJdbcTemplate.setFetchSize(properties.getFetchSize());
+    }
+
+    public void clear(Long campaignId) {
+        jdbcTemplate.update("delete from campaign_recipients where campaign_id = ?", campaignId);
+    }
+
+    public long maxEmployeeId() {
+        Long max = jdbcTemplate.queryForObject("select coalesce(max(id), 0) from employees", Long.class);
+        return max != null ? max : 0;
+    }
+
+    // Fingerprints of the campaign's recipients, for the streaming mode to deduplicate against across chunks;
+    // null in sql mode. A resumed job is seeded with the rows written before it stopped. Needs a transaction.
+    public EmailFingerprintSet recipientSet(Long campaignId, int expectedSize) {
+        if (!"streaming".equalsIgnoreCase(properties.getMode())) {
+            return null;
+        }
+        EmailFingerprintSet seen = new EmailFingerprintSet(expectedSize);
+        streamingJdbcTemplate.query("select email from campaign_recipients where campaign_id = ?",
+                rs -> {
+                    // Only the fingerprints matter while seeding; every stored row is already a recipient.
+                    seen.add(rs.getString(1), email -> false);
+                }, campaignId);
+        return seen;
+    }
+
+    // Expands the next matching employees after afterEmployeeId, up to limit, within the caller's transaction.
+    // A chunk with fewer than limit matches is the last one. seen is only used in streaming mode.
+    public Chunk expandChunk(Long campaignId, List<Long> audienceIds, long afterEmployeeId, int limit,
+                             EmailFingerprintSet seen) {
+        if (audienceIds.isEmpty()) {
+            return new Chunk(afterEmployeeId, 0, 0);
+        }
+        List<Object> args = new ArrayList<>();
+        args.add(afterEmployeeId);
+        args.addAll(audienceIds);
+        args.add(limit);
+        String from = "from employees e "
+                + "left join departments d on d.id = e.department_id "
+                + "where e.id > ? and exists (select 1 from audience_members m where m.employee_id = e.id "
+                + "and m.audience_id in (" + String.join(",", Collections.nCopies(audienceIds.size(), "?")) + ")) "
+                + "and not exists (select 1 from suppression_list s where s.email = lower(e.email)) ";
+        if ("streaming".equalsIgnoreCase(properties.getMode())) {
+            return stream(campaignId, from, args, afterEmployeeId, seen);
+        }
+        // Employee emails are unique, so the chunk needs no DISTINCT; ON CONFLICT covers a replayed chunk.
+        args.add(campaignId);
+        args.add(afterEmployeeId);
+        return jdbcTemplate.queryForObject("with chunk as (select e.id, e.email, e.full_name, d.name as department "
+                        + from
+                        + "and not exists (select 1 from suppression_rules r where lower(e.email) like " + RULE_LIKE + ") "
+                        + "order by e.id limit ?), "
+                        + "ins as (" + INSERT + "select ?, email, full_name, department, 'QUEUED', 0, now() from chunk "
+                        + "on conflict (campaign_id, email) do nothing returning 1) "
+                        + "select coalesce(max(id), ?), count(*), (select count(*) from ins) from chunk",
+                (rs, rowNum) -> new Chunk(rs.getLong(1), rs.getInt(2), rs.getInt(3)), args.toArray());
+    }
+
+    private Chunk stream(Long campaignId, String from, List<Object> args, long afterEmployeeId,
+                         EmailFingerprintSet seen) {
+        String insert = INSERT + "values (?, ?, ?, ?, 'QUEUED', 0, now()) on conflict (campaign_id, email) do nothing";
+        RecipientBatchWriter writer = new RecipientBatchWriter(campaignId, properties.getBatchSize(),
+                suppressionService::matchesRule, seen, email -> isRecipient(campaignId, email),
+                batch -> jdbcTemplate.batchUpdate(insert, batch));
+        long[] last = {afterEmployeeId};
+        int[] matched = {0};
+        // Rows are not entities, so there is no persistence context to flush or clear between batches.
+        streamingJdbcTemplate.query("select e.id, e.email, e.full_name, d.name " + from + "order by e.id limit ?",
+                rs -> {
+                    last[0] = rs.getLong(1);
+                    matched[0]++;
+                    writer.add(rs.getString(2), rs.getString(3), rs.getString(4));
+                }, args.toArray());
+        writer.flush();
+        return new Chunk(last[0], matched[0], Math.toIntExact(writer.written()));
+    }
+
+    // Exact check behind a fingerprint hit; only duplicates and fingerprint collisions get here.
+    private boolean isRecipient(Long campaignId, String email) {
+        return jdbcTemplate.queryForList("select email from campaign_recipients where campaign_id = ? "
+                        + "and lower(email) = lower(?)", String.class, campaignId, email).stream()
+                .anyMatch(existing -> EmailFingerprintSet.sameAddress(existing, email));
+    }
+
+    public record Chunk(long lastEmployeeId, int matched, int inserted) {
+    }
+}
@@ -1,16 +1,26 @@
 package com.example.bulkemail.service;
 
 import com.example.bulkemail.dto.ReportSummaryDto;
+import com.example.bulkemail.entity.Campaign;
 import com.example.bulkemail.entity.RecipientStatus;
+import com.example.bulkemail.repo.CampaignClickRepository;
 import com.example.bulkemail.repo.CampaignRecipientRepository;
+import com.example.bulkemail.repo.CampaignRepository;
 import org.springframework.stereotype.Service;
 
 @Service
 public class ReportService {
     private final CampaignRecipientRepository recipientRepository;
+    private final CampaignRepository campaignRepository;
+    private final OpenTrackingService openTrackingService;
+    private final CampaignClickRepository clickRepository;
 
-    public ReportService(CampaignRecipientRepository recipientRepository) {
+    public ReportService(CampaignRecipientRepository recipientRepository, CampaignRepository campaignRepository,
+                         OpenTrackingService openTrackingService, CampaignClickRepository clickRepository) {
         this.recipientRepository = recipientRepository;
+        this.campaignRepository = campaignRepository;
+        this.openTrackingService = openTrackingService;
+        this.clickRepository = clickRepository;
     }
 
     public ReportSummaryDto summary(Long campaignId) {
@@ -18,6 +28,10 @@ public class ReportService {
         dto.setQueued(recipientRepository.countByCampaignIdAndStatus(campaignId, RecipientStatus.QUEUED));
         dto.setSent(recipientRepository.countByCampaignIdAndStatus(campaignId, RecipientStatus.SENT));
         dto.setFailed(recipientRepository.countByCampaignIdAndStatus(campaignId, RecipientStatus.FAILED));
+        dto.setOpened(recipientRepository.countByCampaignIdAndFirstOpenedAtIsNotNull(campaignId));
+        long persistedOpens = campaignRepository.findById(campaignId).map(Campaign::getOpenCount).orElse(0L);
+        dto.setOpens(persistedOpens + openTrackingService.unflushedOpens(campaignId));
+        dto.setClicked(clickRepository.countDistinctRecipients(campaignId));
         return dto;
     }
 }
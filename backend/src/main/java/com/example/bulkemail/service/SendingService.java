@@ -1,19 +1,31 @@
 package com.example.bulkemail.service;
 
+import com.example.bulkemail.config.AppProperties;
 import com.example.bulkemail.entity.*;
 import com.example.bulkemail.repo.CampaignRecipientRepository;
 import com.example.bulkemail.repo.CampaignRepository;
+import com.example.bulkemail.repo.ExpansionJobRepository;
 import com.example.bulkemail.sending.MailGateway;
+import com.example.bulkemail.sending.SendMetrics;
+import com.example.bulkemail.sending.SendResult;
 import com.example.bulkemail.sending.ThrottleService;
 import com.example.bulkemail.audit.AuditService;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 public class SendingService {
     private static final int MAX_RETRIES = 3;
+    private static final List<ExpansionJobStatus> ACTIVE_EXPANSIONS =
+            List.of(ExpansionJobStatus.QUEUED, ExpansionJobStatus.RUNNING);
 
     private final CampaignRecipientRepository recipientRepository;
     private final CampaignRepository campaignRepository;
@@ -21,79 +33,136 @@ public class SendingService {
     private final MailGateway mailGateway;
     private final ThrottleService throttleService;
     private final AuditService auditService;
+    private final SendMetrics sendMetrics;
+    private final AppProperties appProperties;
+    private final CampaignProgressService progressService;
+    private final CampaignEstimateService estimateService;
+    private final ExpansionJobRepository expansionJobRepository;
 
     public SendingService(CampaignRecipientRepository recipientRepository, CampaignRepository campaignRepository,
                           SuppressionService suppressionService, MailGateway mailGateway,
-                          ThrottleService throttleService, AuditService auditService) {
+                          ThrottleService throttleService, AuditService auditService, SendMetrics sendMetrics,
+                          AppProperties appProperties, CampaignProgressService progressService,
+                          CampaignEstimateService estimateService, ExpansionJobRepository expansionJobRepository) {
         this.recipientRepository = recipientRepository;
         this.campaignRepository = campaignRepository;
         this.suppressionService = suppressionService;
         this.mailGateway = mailGateway;
         this.throttleService = throttleService;
         this.auditService = auditService;
+        this.sendMetrics = sendMetrics;
+        this.appProperties = appProperties;
+        this.progressService = progressService;
+        this.estimateService = estimateService;
+        this.expansionJobRepository = expansionJobRepository;
     }
 
+    // Recipients are grouped per campaign so each group goes out over one gateway batch, and all status
+    // and audit writes for the poll are flushed together at the end.
     public void sendBatch(List<CampaignRecipient> recipients, int defaultThrottlePerMinute) {
+        long batchStart = System.nanoTime();
+        long smtpNanos = 0;
+        Map<Long, List<CampaignRecipient>> byCampaign = new LinkedHashMap<>();
+        Map<CampaignRecipient, RecipientStatus> previousStatus = new IdentityHashMap<>();
         for (CampaignRecipient recipient : recipients) {
-            Campaign campaign = recipient.getCampaign();
+            byCampaign.computeIfAbsent(recipient.getCampaign().getId(), id -> new ArrayList<>()).add(recipient);
+            previousStatus.put(recipient, recipient.getStatus());
+        }
+        List<CampaignRecipient> updated = new ArrayList<>(recipients.size());
+        List<AuditService.Entry> audits = new ArrayList<>(recipients.size());
+        for (List<CampaignRecipient> group : byCampaign.values()) {
+            Campaign campaign = group.getFirst().getCampaign();
             int throttle = campaign.getSmtpAccount().getThrottlePerMinute() != null
                     ? campaign.getSmtpAccount().getThrottlePerMinute()
                     : defaultThrottlePerMinute;
-            if (!throttleService.tryConsume(campaign.getSmtpAccount().getId(), throttle)) {
-                recipient.setStatus(RecipientStatus.RETRY);
-                recipient.setLastError("throttled");
-                recipient.setUpdatedAt(Instant.now());
-                saveIfPersistent(recipient);
-                continue;
-            }
-            if (suppressionService.isSuppressed(recipient.getEmail())) {
-                recipient.setStatus(RecipientStatus.FAILED);
-                recipient.setLastError("suppressed");
-                recipient.setUpdatedAt(Instant.now());
-                saveIfPersistent(recipient);
-                if (recipient.getId() != null) {
-                    auditService.logAction("RECIPIENT_SUPPRESSED", "campaign_recipient",
-                            recipient.getId().toString(), null, recipient, null, null);
+            List<CampaignRecipient> sendable = new ArrayList<>(group.size());
+            for (CampaignRecipient recipient : group) {
+                if (!throttleService.tryConsume(campaign.getSmtpAccount().getId(), throttle)) {
+                    sendMetrics.recordThrottleRejection(campaign);
+                    recipient.setStatus(RecipientStatus.RETRY);
+                    recipient.setLastError("throttled");
+                    recipient.setUpdatedAt(Instant.now());
+                    updated.add(recipient);
+                    continue;
                 }
+                if (suppressionService.isSuppressed(recipient.getEmail())) {
+                    sendMetrics.recordSuppressionHit(campaign);
+                    recipient.setStatus(RecipientStatus.FAILED);
+                    recipient.setLastError("suppressed");
+                    recipient.setUpdatedAt(Instant.now());
+                    updated.add(recipient);
+                    audits.add(audit("RECIPIENT_SUPPRESSED", recipient));
+                    continue;
+                }
+                sendable.add(recipient);
+            }
+            if (sendable.isEmpty()) {
                 continue;
             }
-            try {
-                mailGateway.send(campaign, recipient);
-                recipient.setStatus(RecipientStatus.SENT);
-                recipient.setUpdatedAt(Instant.now());
-                saveIfPersistent(recipient);
-                if (recipient.getId() != null) {
-                    auditService.logAction("RECIPIENT_SENT", "campaign_recipient",
-                            recipient.getId().toString(), null, recipient, null, null);
+            long sendStart = System.nanoTime();
+            List<SendResult> results = appProperties.getSending().getAsync().isEnabled()
+                    ? sendConcurrently(campaign, sendable)
+                    : mailGateway.sendBatch(campaign, sendable);
+            smtpNanos += System.nanoTime() - sendStart;
+            for (SendResult result : results) {
+                CampaignRecipient recipient = result.recipient();
+                sendMetrics.recordSend(campaign, result.latencyNanos(), result.sent());
+                estimateService.recordSend(campaign, result.latencyNanos());
+                if (result.sent()) {
+                    recipient.setStatus(RecipientStatus.SENT);
+                    recipient.setUpdatedAt(Instant.now());
+                    audits.add(audit("RECIPIENT_SENT", recipient));
+                } else {
+                    applyFailure(recipient, result.detail(), result.permanentFailure());
+                    audits.add(audit("RECIPIENT_SEND_FAILED", recipient));
                 }
-            } catch (RuntimeException e) {
-                handleFailure(recipient, e.getMessage());
+                updated.add(recipient);
+            }
+        }
+        recipientRepository.saveAll(updated.stream().filter(r -> r.getId() != null).toList());
+        auditService.logActions(audits.stream().filter(Objects::nonNull).toList());
+        for (CampaignRecipient recipient : updated) {
+            if (recipient.getId() != null) {
+                progressService.recordTransition(recipient.getCampaign().getId(), previousStatus.get(recipient),
+                        recipient.getStatus());
             }
         }
-        updateCampaignCompletion(recipients);
+        for (List<CampaignRecipient> group : byCampaign.values()) {
+            updateCampaignCompletion(group);
+        }
+        long total = System.nanoTime() - batchStart;
+        sendMetrics.recordBatchTimes(total - smtpNanos, smtpNanos);
+    }
+
+    // In-flight sends are bounded by the poll: at most one campaign group of the batch (WORKER_BATCH_SIZE) at a
+    // time, further capped by SENDING_ASYNC_MAX_CONNECTIONS per relay, or by SENDING_ASYNC_TLS_THREADS for TLS
+    // accounts and mail with attachments. The batch waits for its slowest send before statuses are written.
+    private List<SendResult> sendConcurrently(Campaign campaign, List<CampaignRecipient> recipients) {
+        List<CompletableFuture<SendResult>> futures = new ArrayList<>(recipients.size());
+        for (CampaignRecipient recipient : recipients) {
+            futures.add(mailGateway.sendAsync(campaign, recipient));
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+        return futures.stream().map(CompletableFuture::join).toList();
     }
 
-    private void handleFailure(CampaignRecipient recipient, String error) {
+    private void applyFailure(CampaignRecipient recipient, String error, boolean permanent) {
         int retryCount = recipient.getRetryCount() + 1;
         recipient.setRetryCount(retryCount);
         recipient.setLastError(error);
         recipient.setUpdatedAt(Instant.now());
-        if (retryCount >= MAX_RETRIES || isPermanent(error)) {
+        if (retryCount >= MAX_RETRIES || permanent || isPermanent(error)) {
             recipient.setStatus(RecipientStatus.FAILED);
         } else {
             recipient.setStatus(RecipientStatus.RETRY);
         }
-        saveIfPersistent(recipient);
-        if (recipient.getId() != null) {
-            auditService.logAction("RECIPIENT_SEND_FAILED", "campaign_recipient",
-                    recipient.getId().toString(), null, recipient, null, null);
-        }
     }
 
-    private void saveIfPersistent(CampaignRecipient recipient) {
-        if (recipient.getId() != null) {
-            recipientRepository.save(recipient);
+    private AuditService.Entry audit(String action, CampaignRecipient recipient) {
+        if (recipient.getId() == null) {
+            return null;
         }
+        return new AuditService.Entry(action, "campaign_recipient", recipient.getId().toString(), recipient);
     }
 
     private boolean isPermanent(String error) {
@@ -109,9 +178,17 @@ public class SendingService {
             return;
         }
         Campaign campaign = recipients.getFirst().getCampaign();
+        if (!campaignRepository.lockStatus(campaign.getId()).map(CampaignStatus.SENDING.name()::equals)
+                .orElse(false)) {
+            return;
+        }
+        // While expansion is still adding recipients an empty queue is not the end; the job completes the campaign.
+        if (expansionJobRepository.existsByCampaignIdAndStatusIn(campaign.getId(), ACTIVE_EXPANSIONS)) {
+            return;
+        }
         long queued = recipientRepository.countByCampaignIdAndStatus(campaign.getId(), RecipientStatus.QUEUED);
         long retry = recipientRepository.countByCampaignIdAndStatus(campaign.getId(), RecipientStatus.RETRY);
-        if (queued == 0 && retry == 0 && campaign.getStatus() == CampaignStatus.SENDING) {
+        if (queued == 0 && retry == 0) {
             campaign.setStatus(CampaignStatus.COMPLETED);
             campaign.setUpdatedAt(Instant.now());
             campaignRepository.save(campaign);
@@ -0,0 +1,224 @@
+package com.example.bulkemail.service;
+
+import com.example.bulkemail.audit.AuditService;
+import com.example.bulkemail.config.AppProperties;
+import com.example.bulkemail.sending.RecipientMessageId;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+// SES bounce and complaint notifications in SNS envelopes. The webhook verifies the SNS signature and topic and
+// only enqueues the raw payload; a background drain parses a batch, drops redeliveries by message id, and applies
+// the result with one batched suppression upsert and one batched recipient update.
+@Service
+public class SesNotificationService {
+    private static final Logger logger = LoggerFactory.getLogger(SesNotificationService.class);
+    private static final int BATCH_SIZE = 500;
+    private static final String SOURCE = "ses";
+
+    private final ObjectMapper objectMapper;
+    private final JdbcTemplate jdbcTemplate;
+    private final AuditService auditService;
+    private final CampaignProgressService progressService;
+    private final BlockingQueue<String> queue;
+    // Only touched by the draining thread.
+    private final Map<String, Boolean> seen;
+    // Payloads of batches that failed to apply, retried before anything new. Only touched by the draining thread.
+    private final Deque<String> retry = new ArrayDeque<>();
+
+    public SesNotificationService(ObjectMapper objectMapper, JdbcTemplate jdbcTemplate, AuditService auditService,
+                                  CampaignProgressService progressService, AppProperties appProperties) {
+        this.objectMapper = objectMapper;
+        this.jdbcTemplate = jdbcTemplate;
+        this.auditService = auditService;
+        this.progressService = progressService;
+        this.queue = new ArrayBlockingQueue<>(appProperties.getWebhooks().getQueueCapacity());
+        int dedupeCapacity = appProperties.getWebhooks().getDedupeCapacity();
+        this.seen = new LinkedHashMap<>(1024, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > dedupeCapacity;
+            }
+        };
+    }
+
+    // False when the buffer is full; the caller should answer with an error so SNS redelivers later.
+    public boolean enqueue(String payload) {
+        return queue.offer(payload);
+    }
+
+    @Scheduled(fixedDelayString = "${app.webhooks.flush-interval-ms:1000}")
+    public synchronized void drain() {
+        List<String> payloads = new ArrayList<>(BATCH_SIZE);
+        while (true) {
+            while (payloads.size() < BATCH_SIZE && !retry.isEmpty()) {
+                payloads.add(retry.poll());
+            }
+            queue.drainTo(payloads, BATCH_SIZE - payloads.size());
+            if (payloads.isEmpty()) {
+                return;
+            }
+            if (!apply(payloads)) {
+                // Parked outside the bounded queue, so nothing already acknowledged to SNS is dropped. Until they
+                // apply, new payloads stay in the queue; once it is full the webhook answers 503 and SNS retries.
+                for (int i = payloads.size() - 1; i >= 0; i--) {
+                    retry.addFirst(payloads.get(i));
+                }
+                return;
+            }
+            payloads.clear();
+        }
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        drain();
+        int lost = retry.size() + queue.size();
+        if (lost > 0) {
+            logger.error("{} SES notifications were not applied before shutdown", lost);
+        }
+    }
+
+    // Returns false when the batch could not be written; its payloads are put back for the next run.
+    private boolean apply(List<String> payloads) {
+        Map<String, Object[]> suppressions = new LinkedHashMap<>();
+        List<Object[]> failures = new ArrayList<>();
+        Set<Long> campaigns = new HashSet<>();
+        List<String> keys = new ArrayList<>();
+        List<AuditService.Entry> audits = new ArrayList<>();
+        int bounces = 0;
+        int complaints = 0;
+        int duplicates = 0;
+        Timestamp now = Timestamp.from(Instant.now());
+        for (String payload : payloads) {
+            JsonNode envelope = read(payload);
+            if (envelope == null) {
+                audits.add(new AuditService.Entry("SES_WEBHOOK_RECEIVED", "webhook", null, payload));
+                continue;
+            }
+            String type = envelope.path("Type").asText("");
+            if (type.equals("SubscriptionConfirmation") || type.equals("UnsubscribeConfirmation")) {
+                // Confirmation is left to an operator, who can open the SubscribeURL from the audit log.
+                audits.add(new AuditService.Entry("SES_WEBHOOK_RECEIVED", "webhook", null, payload));
+                continue;
+            }
+            JsonNode notification = envelope.has("Message") ? read(envelope.path("Message").asText()) : envelope;
+            if (notification == null) {
+                audits.add(new AuditService.Entry("SES_WEBHOOK_RECEIVED", "webhook", null, payload));
+                continue;
+            }
+            String kind = notification.path("notificationType").asText(notification.path("eventType").asText(""));
+            String key = dedupeKey(envelope, notification, kind);
+            if (seen.containsKey(key)) {
+                duplicates++;
+                continue;
+            }
+            seen.put(key, Boolean.TRUE);
+            keys.add(key);
+            RecipientMessageId original = RecipientMessageId.parse(
+                    notification.path("mail").path("commonHeaders").path("messageId").asText(null)).orElse(null);
+            if (kind.equals("Bounce")) {
+                bounces++;
+                JsonNode bounce = notification.path("bounce");
+                if (!bounce.path("bounceType").asText("").equals("Permanent")) {
+                    continue;
+                }
+                String reason = "SES bounce: " + bounce.path("bounceSubType").asText("General");
+                for (JsonNode recipient : bounce.path("bouncedRecipients")) {
+                    String email = recipient.path("emailAddress").asText(null);
+                    if (email == null || email.isBlank()) {
+                        continue;
+                    }
+                    String address = SuppressionService.normalizeEmail(email);
+                    suppressions.put(address, new Object[]{address, reason, now, SOURCE});
+                    if (original != null) {
+                        String detail = recipient.path("diagnosticCode").asText(reason);
+                        failures.add(new Object[]{"bounced: " + detail, now, original.recipientId(),
+                                original.campaignId(), email});
+                        campaigns.add(original.campaignId());
+                    }
+                }
+            } else if (kind.equals("Complaint")) {
+                complaints++;
+                JsonNode complaint = notification.path("complaint");
+                String reason = "SES complaint: " + complaint.path("complaintFeedbackType").asText("unspecified");
+                for (JsonNode recipient : complaint.path("complainedRecipients")) {
+                    String email = recipient.path("emailAddress").asText(null);
+                    if (email != null && !email.isBlank()) {
+                        String address = SuppressionService.normalizeEmail(email);
+                        suppressions.put(address, new Object[]{address, reason, now, SOURCE});
+                    }
+                }
+            }
+        }
+        try {
+            if (!suppressions.isEmpty()) {
+                jdbcTemplate.batchUpdate("insert into suppression_list (email, reason, created_at, source) "
+                        + "values (?, ?, ?, ?) on conflict (email) do update "
+                        + "set reason = excluded.reason, source = excluded.source", new ArrayList<>(suppressions.values()));
+            }
+            if (!failures.isEmpty()) {
+                // Delivered mail bounces after the fact, so SENT rows are moved to FAILED as well.
+                jdbcTemplate.batchUpdate("update campaign_recipients set status = 'FAILED', last_error = ?, "
+                        + "updated_at = ? where id = ? and campaign_id = ? and lower(email) = lower(?)", failures);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Failed to apply {} SES notifications, will retry: {}", payloads.size(), e.getMessage());
+            keys.forEach(seen::remove);
+            return false;
+        }
+        campaigns.forEach(progressService::invalidate);
+        if (bounces + complaints > 0) {
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("bounces", bounces);
+            summary.put("complaints", complaints);
+            summary.put("duplicates", duplicates);
+            summary.put("suppressed", suppressions.size());
+            summary.put("recipientsFailed", failures.size());
+            audits.add(new AuditService.Entry("SES_NOTIFICATIONS_APPLIED", "webhook", null, summary));
+        }
+        auditService.logActions(audits);
+        return true;
+    }
+
+    // SNS redelivers with the same MessageId; direct SES posts fall back to the feedback id.
+    private String dedupeKey(JsonNode envelope, JsonNode notification, String kind) {
+        String snsId = envelope.path("MessageId").asText("");
+        if (!snsId.isEmpty()) {
+            return "sns:" + snsId;
+        }
+        String feedbackId = notification.path(kind.toLowerCase(Locale.ROOT)).path("feedbackId").asText("");
+        if (!feedbackId.isEmpty()) {
+            return "feedback:" + feedbackId;
+        }
+        return "mail:" + kind + ":" + notification.path("mail").path("messageId").asText("");
+    }
+
+    private JsonNode read(String json) {
+        try {
+            JsonNode node = objectMapper.readTree(json);
+            return node != null && node.isObject() ? node : null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
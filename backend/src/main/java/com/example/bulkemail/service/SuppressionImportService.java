@@ -0,0 +1,409 @@
+package com.example.bulkemail.service;
+
+import com.example.bulkemail.audit.AuditService;
+import com.example.bulkemail.dto.SuppressionDtos;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.security.concurrent.DelegatingSecurityContextExecutorService;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.sql.DataSource;
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Bulk suppression import. The upload is parked in a temp file and streamed on a background thread:
+// each line is parsed, normalized and validated, and accepted rows are fed through COPY into a
+// transaction-scoped temp table. One INSERT ... SELECT ... ON CONFLICT then merges the staged rows into
+// suppression_list. Memory use does not depend on the file size.
+@Service
+public class SuppressionImportService {
+    private static final int MAX_JOBS = 20;
+    private static final int MAX_REJECTED_SAMPLES = 50;
+    private static final int COPY_CHUNK_CHARS = 256 * 1024;
+    private static final int MAX_REASON_LENGTH = 255;
+    private static final String SOURCE = "import";
+
+    private final DataSource dataSource;
+    private final ObjectMapper objectMapper;
+    private final AuditService auditService;
+    // Imports run one at a time, as the submitting user, so the audit entry names the right actor.
+    private final ExecutorService executor =
+            new DelegatingSecurityContextExecutorService(Executors.newSingleThreadExecutor());
+    private final Map<String, Job> jobs = Collections.synchronizedMap(new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Job> eldest) {
+            return size() > MAX_JOBS;
+        }
+    });
+
+    public SuppressionImportService(DataSource dataSource, ObjectMapper objectMapper, AuditService auditService) {
+        this.dataSource = dataSource;
+        this.objectMapper = objectMapper;
+        this.auditService = auditService;
+    }
+
+    public SuppressionDtos.ImportStatus start(MultipartFile file, String reason, String ip, String userAgent) {
+        if (file == null || file.isEmpty()) {
+            throw new IllegalArgumentException("Import file is empty");
+        }
+        Format format = Format.detect(file.getOriginalFilename(), file.getContentType());
+        Path upload;
+        try {
+            upload = Files.createTempFile("suppression-import-", ".upload");
+            file.transferTo(upload);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not store import file", e);
+        }
+        String defaultReason = reason != null && !reason.isBlank() ? truncate(reason.trim()) : "Imported";
+        Job job = new Job(UUID.randomUUID().toString(), file.getOriginalFilename(), format, file.getSize());
+        jobs.put(job.id, job);
+        executor.submit(() -> run(job, upload, defaultReason, ip, userAgent));
+        return job.toStatus();
+    }
+
+    public Optional<SuppressionDtos.ImportStatus> status(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId)).map(Job::toStatus);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void run(Job job, Path upload, String defaultReason, String ip, String userAgent) {
+        try (CountingInputStream counting = new CountingInputStream(Files.newInputStream(upload), job);
+             BufferedReader reader = new BufferedReader(new InputStreamReader(counting, StandardCharsets.UTF_8), 1 << 16);
+             Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("create temp table suppression_import (email varchar(320) not null, "
+                            + "reason varchar(255) not null) on commit drop");
+                }
+                CopyIn copy = connection.unwrap(PGConnection.class).getCopyAPI()
+                        .copyIn("copy suppression_import (email, reason) from stdin with (format csv)");
+                try {
+                    stage(job, reader, defaultReason, copy);
+                    copy.endCopy();
+                } finally {
+                    if (copy.isActive()) {
+                        copy.cancelCopy();
+                    }
+                }
+                try (Statement statement = connection.createStatement();
+                     ResultSet distinct = statement.executeQuery("select count(distinct email) from suppression_import")) {
+                    distinct.next();
+                    job.duplicates = job.accepted - distinct.getLong(1);
+                }
+                try (PreparedStatement merge = connection.prepareStatement(
+                        "insert into suppression_list (email, reason, created_at, source) "
+                                + "select distinct on (email) email, reason, now(), ? from suppression_import "
+                                + "order by email on conflict (email) do nothing")) {
+                    merge.setString(1, SOURCE);
+                    job.inserted = merge.executeUpdate();
+                }
+                connection.commit();
+            } catch (SQLException | IOException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            }
+            job.alreadySuppressed = job.accepted - job.duplicates - job.inserted;
+            job.status = "COMPLETED";
+        } catch (Exception e) {
+            job.status = "FAILED";
+            job.error = e.getMessage();
+        } finally {
+            job.finishedAt = Instant.now();
+            try {
+                Files.deleteIfExists(upload);
+            } catch (IOException ignored) {
+                // temp directory cleanup will remove it
+            }
+        }
+        auditService.logAction("SUPPRESSION_IMPORT", "suppression", job.id, null, job.toStatus(), ip, userAgent);
+    }
+
+    private void stage(Job job, BufferedReader reader, String defaultReason, CopyIn copy)
+            throws IOException, SQLException {
+        StringBuilder chunk = new StringBuilder(COPY_CHUNK_CHARS + 1024);
+        int emailColumn = 0;
+        int reasonColumn = 1;
+        boolean first = true;
+        long lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            String email;
+            String reason;
+            if (job.format == Format.NDJSON) {
+                JsonNode node;
+                try {
+                    node = objectMapper.readTree(line);
+                } catch (IOException e) {
+                    job.rowsRead++;
+                    reject(job, lineNumber, line, "invalid JSON");
+                    continue;
+                }
+                email = node.path("email").asText(null);
+                reason = node.path("reason").asText(null);
+            } else {
+                List<String> fields = splitCsv(line);
+                if (first) {
+                    first = false;
+                    int headerEmail = indexOf(fields, "email", "email address", "emailaddress");
+                    if (headerEmail >= 0) {
+                        emailColumn = headerEmail;
+                        reasonColumn = indexOf(fields, "reason");
+                        continue;
+                    }
+                }
+                email = emailColumn < fields.size() ? fields.get(emailColumn) : null;
+                reason = reasonColumn >= 0 && reasonColumn < fields.size() ? fields.get(reasonColumn) : null;
+            }
+            job.rowsRead++;
+            String address = strip(email);
+            String problem = rejection(address);
+            if (problem != null) {
+                reject(job, lineNumber, email != null ? email : line, problem);
+                continue;
+            }
+            String normalized = SuppressionService.normalizeEmail(address);
+            String rowReason = reason != null && !reason.isBlank() ? truncate(reason.trim()) : defaultReason;
+            chunk.append(normalized).append(",\"").append(rowReason.replace("\"", "\"\"")).append("\"\n");
+            job.accepted++;
+            if (chunk.length() >= COPY_CHUNK_CHARS) {
+                write(copy, chunk);
+            }
+        }
+        write(copy, chunk);
+    }
+
+    private void write(CopyIn copy, StringBuilder chunk) throws SQLException {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        byte[] bytes = chunk.toString().getBytes(StandardCharsets.UTF_8);
+        copy.writeToCopy(bytes, 0, bytes.length);
+        chunk.setLength(0);
+    }
+
+    private void reject(Job job, long line, String value, String reason) {
+        job.rejected++;
+        if (job.rejectedSamples.size() < MAX_REJECTED_SAMPLES) {
+            SuppressionDtos.RejectedRow row = new SuppressionDtos.RejectedRow();
+            row.setLine(line);
+            row.setValue(value.length() > 320 ? value.substring(0, 320) : value);
+            row.setReason(reason);
+            job.rejectedSamples.add(row);
+        }
+    }
+
+    // Trims and drops a mailto: prefix or angle brackets.
+    private static String strip(String raw) {
+        if (raw == null) {
+            return null;
+        }
+        String value = raw.trim();
+        if (value.regionMatches(true, 0, "mailto:", 0, 7)) {
+            value = value.substring(7);
+        }
+        if (value.length() > 1 && value.charAt(0) == '<' && value.charAt(value.length() - 1) == '>') {
+            value = value.substring(1, value.length() - 1).trim();
+        }
+        return value;
+    }
+
+    private static String rejection(String value) {
+        if (value == null || value.isEmpty()) {
+            return "empty";
+        }
+        if (value.length() > 320) {
+            return "too long";
+        }
+        int at = value.indexOf('@');
+        if (at < 0) {
+            return "missing @";
+        }
+        if (at != value.lastIndexOf('@')) {
+            return "more than one @";
+        }
+        if (at == 0 || at > 64) {
+            return "invalid local part";
+        }
+        String domain = value.substring(at + 1);
+        if (domain.isEmpty() || domain.length() > 255 || domain.indexOf('.') < 0 || domain.startsWith(".")
+                || domain.endsWith(".") || domain.contains("..")) {
+            return "invalid domain";
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c <= ' ' || c == 0x7f || "\"(),:;<>[\\]".indexOf(c) >= 0) {
+                return "invalid character";
+            }
+        }
+        return null;
+    }
+
+    private static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>(4);
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        fields.add(current.toString());
+        return fields;
+    }
+
+    private static int indexOf(List<String> header, String... names) {
+        for (int i = 0; i < header.size(); i++) {
+            for (String name : names) {
+                if (header.get(i).trim().equalsIgnoreCase(name)) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static String truncate(String reason) {
+        return reason.length() > MAX_REASON_LENGTH ? reason.substring(0, MAX_REASON_LENGTH) : reason;
+    }
+
+    private enum Format {
+        CSV,
+        NDJSON;
+
+        static Format detect(String fileName, String contentType) {
+            String name = fileName != null ? fileName.toLowerCase(Locale.ROOT) : "";
+            String type = contentType != null ? contentType.toLowerCase(Locale.ROOT) : "";
+            if (name.endsWith(".ndjson") || name.endsWith(".jsonl") || type.contains("ndjson")) {
+                return NDJSON;
+            }
+            return CSV;
+        }
+    }
+
+    // Counters are written only by the import thread and read by status requests.
+    private static final class Job {
+        private final String id;
+        private final String fileName;
+        private final Format format;
+        private final long totalBytes;
+        private final Instant startedAt = Instant.now();
+        private final List<SuppressionDtos.RejectedRow> rejectedSamples = new CopyOnWriteArrayList<>();
+        private volatile String status = "RUNNING";
+        private volatile long bytesRead;
+        private volatile long rowsRead;
+        private volatile long accepted;
+        private volatile long rejected;
+        private volatile long duplicates;
+        private volatile long inserted;
+        private volatile long alreadySuppressed;
+        private volatile Instant finishedAt;
+        private volatile String error;
+
+        private Job(String id, String fileName, Format format, long totalBytes) {
+            this.id = id;
+            this.fileName = fileName;
+            this.format = format;
+            this.totalBytes = totalBytes;
+        }
+
+        SuppressionDtos.ImportStatus toStatus() {
+            SuppressionDtos.ImportStatus dto = new SuppressionDtos.ImportStatus();
+            dto.setJobId(id);
+            dto.setStatus(status);
+            dto.setFileName(fileName);
+            dto.setFormat(format.name());
+            dto.setTotalBytes(totalBytes);
+            dto.setBytesRead(bytesRead);
+            dto.setPercent(totalBytes > 0 ? Math.min(100.0, Math.round(bytesRead * 1000.0 / totalBytes) / 10.0) : 0);
+            dto.setRowsRead(rowsRead);
+            dto.setAccepted(accepted);
+            dto.setRejected(rejected);
+            dto.setDuplicates(duplicates);
+            dto.setInserted(inserted);
+            dto.setAlreadySuppressed(alreadySuppressed);
+            dto.setRejectedSamples(new ArrayList<>(rejectedSamples));
+            dto.setStartedAt(startedAt);
+            dto.setFinishedAt(finishedAt);
+            dto.setError(error);
+            return dto;
+        }
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+        private final Job job;
+
+        private CountingInputStream(InputStream in, Job job) {
+            super(in);
+            this.job = job;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                job.bytesRead++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) {
+                job.bytesRead += n;
+            }
+            return n;
+        }
+    }
+}
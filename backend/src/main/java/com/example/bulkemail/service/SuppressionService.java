@@ -2,38 +2,165 @@ package com.example.bulkemail.service;
 
 import com.example.bulkemail.dto.SuppressionRequest;
 import com.example.bulkemail.entity.SuppressionList;
+import com.example.bulkemail.entity.SuppressionRule;
 import com.example.bulkemail.repo.SuppressionListRepository;
+import com.example.bulkemail.repo.SuppressionRuleRepository;
+import com.example.bulkemail.security.SecurityUtil;
+import com.example.bulkemail.sending.SuppressionMatcher;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.transaction.Transactional;
+import org.springframework.data.domain.Limit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.Timestamp;
 import java.time.Instant;
 import java.util.List;
+import java.util.Locale;
 
 @Service
 public class SuppressionService {
+    private static final Logger logger = LoggerFactory.getLogger(SuppressionService.class);
+    public static final int MAX_PAGE_SIZE = 5000;
+    private static final int EXPORT_FETCH_SIZE = 1000;
+
     private final SuppressionListRepository suppressionListRepository;
+    private final SuppressionRuleRepository suppressionRuleRepository;
+    private final ObjectMapper objectMapper;
+    private final JdbcTemplate streamingJdbcTemplate;
+    // Rebuilt as a whole whenever the rule table changes; readers never lock.
+    private volatile SuppressionMatcher rules = SuppressionMatcher.empty();
 
-    public SuppressionService(SuppressionListRepository suppressionListRepository) {
+    public SuppressionService(SuppressionListRepository suppressionListRepository,
+                              SuppressionRuleRepository suppressionRuleRepository, ObjectMapper objectMapper,
+                              JdbcTemplate jdbcTemplate) {
         this.suppressionListRepository = suppressionListRepository;
+        this.suppressionRuleRepository = suppressionRuleRepository;
+        this.objectMapper = objectMapper;
+        // With a fetch size inside a transaction the PostgreSQL driver reads through a server-side cursor.
+        this.streamingJdbcTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.streamingJdbcTemplate.setFetchSize(EXPORT_FETCH_SIZE);
+    }
+
+    // The one form suppression_list stores and is searched by: trimmed and lower-cased. SQL that joins against the
+    // table compares it with lower(email).
+    public static String normalizeEmail(String email) {
+        return email != null ? email.trim().toLowerCase(Locale.ROOT) : null;
     }
 
     public SuppressionList add(SuppressionRequest request) {
-        SuppressionList suppression = suppressionListRepository.findByEmail(request.getEmail())
+        String email = normalizeEmail(request.getEmail());
+        SuppressionList suppression = suppressionListRepository.findByEmail(email)
                 .orElseGet(SuppressionList::new);
-        suppression.setEmail(request.getEmail());
+        suppression.setEmail(email);
         suppression.setReason(request.getReason());
         suppression.setCreatedAt(Instant.now());
         return suppressionListRepository.save(suppression);
     }
 
     public void remove(String email) {
-        suppressionListRepository.deleteByEmail(email);
+        suppressionListRepository.deleteByEmail(normalizeEmail(email));
     }
 
     public boolean isSuppressed(String email) {
-        return suppressionListRepository.findByEmail(email).isPresent();
+        return rules.matches(email) || suppressionListRepository.findByEmail(normalizeEmail(email)).isPresent();
+    }
+
+    // In-memory domain and wildcard rules only; exact addresses are checked against the table at send time.
+    public boolean matchesRule(String email) {
+        return rules.matches(email);
+    }
+
+    public List<SuppressionRule> listRules() {
+        return suppressionRuleRepository.findAllByOrderByPatternAsc();
+    }
+
+    public SuppressionRule addRule(String pattern, String reason) {
+        String normalized = SuppressionMatcher.normalize(pattern);
+        SuppressionRule rule = suppressionRuleRepository.findByPattern(normalized).orElseGet(SuppressionRule::new);
+        rule.setPattern(normalized);
+        rule.setReason(reason);
+        rule.setCreatedAt(Instant.now());
+        rule.setCreatedBy(SecurityUtil.currentEmail());
+        SuppressionRule saved = suppressionRuleRepository.save(rule);
+        refreshRules();
+        return saved;
+    }
+
+    public SuppressionRule removeRule(Long id) {
+        SuppressionRule rule = suppressionRuleRepository.findById(id)
+                .orElseThrow(() -> new IllegalArgumentException("Suppression rule not found"));
+        suppressionRuleRepository.delete(rule);
+        refreshRules();
+        return rule;
+    }
+
+    // Also picks up rules changed through other instances.
+    @Scheduled(fixedDelayString = "${app.suppression.rules-refresh-ms:60000}")
+    public void refreshRules() {
+        try {
+            rules = SuppressionMatcher.compile(suppressionRuleRepository.findAllPatterns());
+        } catch (RuntimeException e) {
+            logger.warn("Failed to reload suppression rules, keeping {} loaded rules: {}", rules.size(), e.getMessage());
+        }
+    }
+
+    // Keyset page ordered by email; pass the last email of the previous page as the cursor.
+    public List<SuppressionList> page(String after, String prefix, int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        String cursor = after != null ? after : "";
+        if (prefix != null && !prefix.isBlank()) {
+            return suppressionListRepository.findByEmailStartingWithAndEmailGreaterThanOrderByEmailAsc(
+                    normalizeEmail(prefix), cursor, Limit.of(limit));
+        }
+        return suppressionListRepository.findByEmailGreaterThanOrderByEmailAsc(cursor, Limit.of(limit));
+    }
+
+    // Writes one JSON object per line straight from the result set, so memory stays flat for any table size.
+    @Transactional
+    public long export(String prefix, OutputStream out) throws IOException {
+        String sql = "select id, email, reason, created_at, source from suppression_list";
+        Object[] args = new Object[0];
+        if (prefix != null && !prefix.isBlank()) {
+            sql += " where email like ? escape '\\'";
+            args = new Object[]{escapeLike(normalizeEmail(prefix)) + "%"};
+        }
+        sql += " order by email";
+        long[] rows = {0};
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.setRootValueSeparator(null);
+            streamingJdbcTemplate.query(sql, rs -> {
+                try {
+                    Timestamp createdAt = rs.getTimestamp("created_at");
+                    generator.writeStartObject();
+                    generator.writeNumberField("id", rs.getLong("id"));
+                    generator.writeStringField("email", rs.getString("email"));
+                    generator.writeStringField("reason", rs.getString("reason"));
+                    generator.writeStringField("createdAt", createdAt != null ? createdAt.toInstant().toString() : null);
+                    generator.writeStringField("source", rs.getString("source"));
+                    generator.writeEndObject();
+                    generator.writeRaw('\n');
+                    if (++rows[0] % EXPORT_FETCH_SIZE == 0) {
+                        generator.flush();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, args);
+        }
+        return rows[0];
     }
 
-    public List<SuppressionList> list() {
-        return suppressionListRepository.findAll();
+    private String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
     }
 }
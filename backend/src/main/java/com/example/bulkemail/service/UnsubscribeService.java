@@ -0,0 +1,101 @@
+package com.example.bulkemail.service;
+
+import com.example.bulkemail.audit.AuditService;
+import com.example.bulkemail.config.AppProperties;
+import com.example.bulkemail.sending.TrackingTokens;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.sql.Array;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// One-click unsubscribes. Tokens are verified in memory; verified recipient ids are collected in a set,
+// so repeated clicks collapse. A background flush turns each chunk of ids into suppression rows with one
+// set-based insert, which resolves the email addresses in the same statement.
+@Service
+public class UnsubscribeService {
+    private static final Logger logger = LoggerFactory.getLogger(UnsubscribeService.class);
+    private static final int FLUSH_BATCH_SIZE = 1000;
+    private static final String REASON = "Unsubscribed";
+    private static final String SOURCE = "list-unsubscribe";
+
+    private final TrackingTokens trackingTokens;
+    private final JdbcTemplate jdbcTemplate;
+    private final AuditService auditService;
+    private final int maxPending;
+    private final Set<Long> pending = ConcurrentHashMap.newKeySet();
+
+    public UnsubscribeService(TrackingTokens trackingTokens, JdbcTemplate jdbcTemplate, AuditService auditService,
+                              AppProperties appProperties) {
+        this.trackingTokens = trackingTokens;
+        this.jdbcTemplate = jdbcTemplate;
+        this.auditService = auditService;
+        this.maxPending = appProperties.getTracking().getMaxPending();
+    }
+
+    public boolean isValid(String token) {
+        return trackingTokens.verify(TrackingTokens.Purpose.UNSUBSCRIBE, token).isPresent();
+    }
+
+    // Returns false for tokens that do not verify. When the buffer is full the caller is told to retry
+    // rather than having the request silently dropped.
+    public boolean unsubscribe(String token) {
+        TrackingTokens.Token decoded = trackingTokens.verify(TrackingTokens.Purpose.UNSUBSCRIBE, token).orElse(null);
+        if (decoded == null) {
+            return false;
+        }
+        if (pending.size() >= maxPending && !pending.contains(decoded.recipientId())) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Unsubscribe queue is full");
+        }
+        pending.add(decoded.recipientId());
+        return true;
+    }
+
+    @Scheduled(fixedDelayString = "${app.tracking.flush-interval-ms:5000}")
+    public synchronized void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(pending);
+        int inserted = 0;
+        for (int from = 0; from < ids.size(); from += FLUSH_BATCH_SIZE) {
+            List<Long> chunk = ids.subList(from, Math.min(ids.size(), from + FLUSH_BATCH_SIZE));
+            try {
+                inserted += jdbcTemplate.update(
+                        "insert into suppression_list (email, reason, created_at, source) "
+                                + "select distinct lower(email), ?, now(), ? from campaign_recipients where id = any(?) "
+                                + "on conflict (email) do nothing",
+                        ps -> {
+                            Array array = ps.getConnection().createArrayOf("bigint", chunk.toArray());
+                            ps.setString(1, REASON);
+                            ps.setString(2, SOURCE);
+                            ps.setArray(3, array);
+                        });
+            } catch (RuntimeException e) {
+                // The ids stay pending and are retried on the next flush.
+                logger.warn("Failed to write {} unsubscribes: {}", chunk.size(), e.getMessage());
+                continue;
+            }
+            chunk.forEach(pending::remove);
+        }
+        if (inserted > 0) {
+            auditService.logAction("SUPPRESSION_UNSUBSCRIBE_BATCH", "suppression", null, null,
+                    Map.of("requests", ids.size(), "added", inserted), null, null);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+}
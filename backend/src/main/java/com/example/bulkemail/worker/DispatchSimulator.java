@@ -0,0 +1,221 @@
+package com.example.bulkemail.worker;
+
+import com.example.bulkemail.entity.Campaign;
+import com.example.bulkemail.entity.CampaignRecipient;
+import com.example.bulkemail.entity.RecipientStatus;
+import com.example.bulkemail.sending.MailGateway;
+import com.example.bulkemail.sending.SendResult;
+import com.example.bulkemail.sending.ThrottleService;
+import com.example.bulkemail.sending.VirtualClock;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Replays the send loop in memory against a virtual clock and reports what would happen. It follows
+// SendWorker's poll (one page of QUEUED rows, filtered for due campaigns after the fetch) and
+// SendingService's per-campaign throttle checks and gateway batches. It keeps its own counts and never
+// reads or writes recipient rows. Suppression checks are not modelled.
+public class DispatchSimulator {
+    private final VirtualClock clock;
+    private final ThrottleService throttleService;
+    private final MailGateway mailGateway;
+    private final int batchSize;
+    private final Duration pollInterval;
+
+    public DispatchSimulator(VirtualClock clock, ThrottleService throttleService, MailGateway mailGateway,
+                             int batchSize, Duration pollInterval) {
+        this.clock = clock;
+        this.throttleService = throttleService;
+        this.mailGateway = mailGateway;
+        this.batchSize = batchSize;
+        this.pollInterval = pollInterval;
+    }
+
+    public Result run(List<Queue> queues, Duration horizon) {
+        Instant start = clock.instant();
+        Instant end = start.plus(horizon);
+        List<Queue> ordered = new ArrayList<>(queues);
+        ordered.sort(Comparator.comparing(queue -> queue.campaign().getId()));
+        Map<Long, QueueState> states = new LinkedHashMap<>();
+        Map<Long, AccountState> accounts = new LinkedHashMap<>();
+        for (Queue queue : ordered) {
+            states.put(queue.campaign().getId(), new QueueState(queue));
+            accounts.computeIfAbsent(queue.accountId(), id -> new AccountState(queue));
+        }
+        TreeMap<Long, long[]> timeline = new TreeMap<>();
+        long polls = 0;
+        long idleSlots = 0;
+
+        while (clock.instant().isBefore(end)) {
+            Instant now = clock.instant();
+            Map<QueueState, Integer> claimed = new LinkedHashMap<>();
+            int slots = batchSize;
+            for (QueueState state : states.values()) {
+                if (state.queued == 0) {
+                    continue;
+                }
+                int take = (int) Math.min(slots, state.queued);
+                claimed.put(state, take);
+                slots -= take;
+                if (slots == 0) {
+                    break;
+                }
+            }
+            if (claimed.isEmpty()) {
+                break;
+            }
+            polls++;
+            boolean anyDue = false;
+            for (Map.Entry<QueueState, Integer> claim : claimed.entrySet()) {
+                QueueState state = claim.getKey();
+                if (!state.isDue(now)) {
+                    idleSlots += claim.getValue();
+                    continue;
+                }
+                anyDue = true;
+                dispatch(state, claim.getValue(), accounts.get(state.queue.accountId()), timeline, start);
+            }
+            if (!anyDue) {
+                // The worker would re-read the same not-yet-due rows every poll; skip ahead to when the first
+                // of them becomes due, counting the polls that would have been spent.
+                Instant nextDue = claimed.keySet().stream()
+                        .map(state -> state.queue.scheduledAt())
+                        .min(Comparator.naturalOrder())
+                        .orElse(end);
+                if (!nextDue.isBefore(end)) {
+                    break;
+                }
+                long skipped = Math.max(0, Duration.between(now, nextDue).toMillis() / Math.max(1, pollInterval.toMillis()));
+                polls += skipped;
+                idleSlots += skipped * claimed.values().stream().mapToLong(Integer::longValue).sum();
+                clock.advanceTo(nextDue);
+                continue;
+            }
+            clock.advance(pollInterval);
+        }
+
+        List<QueueOutcome> outcomes = states.values().stream().map(QueueState::outcome).toList();
+        List<AccountOutcome> accountOutcomes = accounts.values().stream().map(AccountState::outcome).toList();
+        List<TimelinePoint> points = new ArrayList<>(timeline.size());
+        timeline.forEach((minute, counts) -> points.add(
+                new TimelinePoint(start.plus(Duration.ofMinutes(minute)), counts[0], counts[1])));
+        return new Result(start, clock.instant(), polls, idleSlots, outcomes, accountOutcomes, points);
+    }
+
+    private void dispatch(QueueState state, int take, AccountState account, TreeMap<Long, long[]> timeline,
+                          Instant start) {
+        Campaign campaign = state.queue.campaign();
+        long minute = Duration.between(start, clock.instant()).toMinutes();
+        long[] bucket = timeline.computeIfAbsent(minute, key -> new long[2]);
+        List<CampaignRecipient> sendable = new ArrayList<>(take);
+        for (int i = 0; i < take; i++) {
+            if (throttleService.tryConsume(state.queue.accountId(), state.queue.throttlePerMinute())) {
+                CampaignRecipient recipient = new CampaignRecipient();
+                recipient.setCampaign(campaign);
+                recipient.setStatus(RecipientStatus.QUEUED);
+                sendable.add(recipient);
+            } else {
+                state.throttled++;
+                account.throttled++;
+                account.minute(minute)[1]++;
+                bucket[1]++;
+            }
+        }
+        state.queued -= take;
+        if (!sendable.isEmpty()) {
+            List<SendResult> results = mailGateway.sendBatch(campaign, sendable);
+            Instant sentAt = clock.instant();
+            long sent = results.stream().filter(SendResult::sent).count();
+            state.sent += sent;
+            account.sent += sent;
+            account.minute(minute)[0] += sent;
+            bucket[0] += sent;
+            if (state.queue.outsideWindow(sentAt)) {
+                state.outsideWindow += sent;
+            }
+        }
+        if (state.queued == 0) {
+            state.finishedAt = clock.instant();
+        }
+    }
+
+    public record Queue(Campaign campaign, Long accountId, String accountName, int throttlePerMinute, long queued,
+                        boolean sending, Instant scheduledAt, Instant windowStart, Instant windowEnd) {
+        boolean outsideWindow(Instant at) {
+            return (windowStart != null && at.isBefore(windowStart)) || (windowEnd != null && at.isAfter(windowEnd));
+        }
+    }
+
+    public record QueueOutcome(Long campaignId, long recipients, long sent, long throttled, long unsent,
+                               long outsideWindow, Instant finishedAt) {
+    }
+
+    public record AccountOutcome(Long accountId, String accountName, int throttlePerMinute, long sent, long throttled,
+                                 long peakPerMinute, long saturatedMinutes, long activeMinutes) {
+    }
+
+    public record TimelinePoint(Instant minute, long sent, long throttled) {
+    }
+
+    public record Result(Instant start, Instant end, long polls, long idleSlots, List<QueueOutcome> queues,
+                         List<AccountOutcome> accounts, List<TimelinePoint> timeline) {
+    }
+
+    private static final class QueueState {
+        private final Queue queue;
+        private long queued;
+        private long sent;
+        private long throttled;
+        private long outsideWindow;
+        private Instant finishedAt;
+
+        private QueueState(Queue queue) {
+            this.queue = queue;
+            this.queued = queue.queued();
+        }
+
+        // Mirrors SendWorker's eligibility filter; it does not look at the send window.
+        boolean isDue(Instant now) {
+            return queue.sending() || queue.scheduledAt() == null || !queue.scheduledAt().isAfter(now);
+        }
+
+        QueueOutcome outcome() {
+            return new QueueOutcome(queue.campaign().getId(), queue.queued(), sent, throttled, queued, outsideWindow,
+                    finishedAt);
+        }
+    }
+
+    private static final class AccountState {
+        private final Queue first;
+        private final TreeMap<Long, long[]> minutes = new TreeMap<>();
+        private long sent;
+        private long throttled;
+
+        private AccountState(Queue first) {
+            this.first = first;
+        }
+
+        long[] minute(long minute) {
+            return minutes.computeIfAbsent(minute, key -> new long[2]);
+        }
+
+        AccountOutcome outcome() {
+            long peak = 0;
+            long saturated = 0;
+            for (long[] counts : minutes.values()) {
+                peak = Math.max(peak, counts[0]);
+                if (counts[1] > 0 || counts[0] >= first.throttlePerMinute()) {
+                    saturated++;
+                }
+            }
+            return new AccountOutcome(first.accountId(), first.accountName(), first.throttlePerMinute(), sent, throttled,
+                    peak, saturated, minutes.size());
+        }
+    }
+}
@@ -0,0 +1,10 @@
+CREATE TABLE IF NOT EXISTS campaign_clicks (
+    id BIGSERIAL PRIMARY KEY,
+    campaign_id BIGINT NOT NULL REFERENCES campaigns(id) ON DELETE CASCADE,
+    recipient_id BIGINT NOT NULL,
+    link_index INTEGER NOT NULL,
+    url TEXT NOT NULL,
+    clicked_at TIMESTAMP WITH TIME ZONE NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_campaign_clicks_campaign ON campaign_clicks(campaign_id, link_index);
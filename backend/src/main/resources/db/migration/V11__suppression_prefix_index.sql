@@ -0,0 +1,2 @@
+-- Serves "email LIKE 'prefix%'" regardless of the database collation; the unique index covers keyset order.
+CREATE INDEX IF NOT EXISTS idx_suppression_list_email_pattern ON suppression_list (email varchar_pattern_ops);
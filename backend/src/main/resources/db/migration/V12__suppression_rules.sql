@@ -0,0 +1,7 @@
+CREATE TABLE IF NOT EXISTS suppression_rules (
+    id BIGSERIAL PRIMARY KEY,
+    pattern VARCHAR(320) NOT NULL UNIQUE,
+    reason VARCHAR(255) NOT NULL,
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL,
+    created_by VARCHAR(255)
+);
@@ -0,0 +1,20 @@
+CREATE TABLE IF NOT EXISTS expansion_jobs (
+    id BIGSERIAL PRIMARY KEY,
+    campaign_id BIGINT NOT NULL REFERENCES campaigns(id) ON DELETE CASCADE,
+    audience_ids VARCHAR(2000) NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    last_employee_id BIGINT,
+    max_employee_id BIGINT NOT NULL DEFAULT 0,
+    matched BIGINT NOT NULL DEFAULT 0,
+    inserted BIGINT NOT NULL DEFAULT 0,
+    owner VARCHAR(255),
+    heartbeat_at TIMESTAMP WITH TIME ZONE,
+    requested_by VARCHAR(320),
+    error TEXT,
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL,
+    started_at TIMESTAMP WITH TIME ZONE,
+    finished_at TIMESTAMP WITH TIME ZONE
+);
+
+CREATE INDEX IF NOT EXISTS idx_expansion_jobs_campaign ON expansion_jobs(campaign_id);
+CREATE INDEX IF NOT EXISTS idx_expansion_jobs_active ON expansion_jobs(status) WHERE status IN ('QUEUED', 'RUNNING');
@@ -0,0 +1,2 @@
+-- Serves per-campaign status counts, including the bounded backlog check of pipelined expansion.
+CREATE INDEX IF NOT EXISTS idx_campaign_recipients_campaign_status ON campaign_recipients(campaign_id, status);
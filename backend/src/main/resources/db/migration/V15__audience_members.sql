@@ -0,0 +1,11 @@
+-- Materialized audience membership, maintained by the application on rule and directory changes.
+CREATE TABLE audience_members (
+    audience_id BIGINT NOT NULL REFERENCES audiences(id) ON DELETE CASCADE,
+    employee_id BIGINT NOT NULL REFERENCES employees(id) ON DELETE CASCADE,
+    PRIMARY KEY (audience_id, employee_id)
+);
+
+CREATE INDEX idx_audience_members_employee ON audience_members(employee_id);
+
+-- Null until the audience is first materialized; existing audiences are computed on first read.
+ALTER TABLE audiences ADD COLUMN IF NOT EXISTS members_refreshed_at TIMESTAMP WITH TIME ZONE;
@@ -0,0 +1,8 @@
+-- Suppressed addresses are stored lower-cased, the form every lookup now uses. Where several rows differ only in
+-- case, the earliest is kept.
+DELETE FROM suppression_list s
+USING suppression_list k
+WHERE lower(s.email) = lower(k.email)
+  AND s.id > k.id;
+
+UPDATE suppression_list SET email = lower(email) WHERE email <> lower(email);
@@ -0,0 +1,7 @@
+-- Link table of each approved campaign: click tokens carry the slot, this maps it to the target.
+CREATE TABLE IF NOT EXISTS campaign_links (
+    campaign_id BIGINT NOT NULL REFERENCES campaigns(id) ON DELETE CASCADE,
+    link_index INTEGER NOT NULL,
+    url TEXT NOT NULL,
+    PRIMARY KEY (campaign_id, link_index)
+);
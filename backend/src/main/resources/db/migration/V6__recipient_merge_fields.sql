@@ -0,0 +1 @@
+ALTER TABLE campaign_recipients ADD COLUMN IF NOT EXISTS department VARCHAR(255);
@@ -0,0 +1,8 @@
+CREATE TABLE IF NOT EXISTS dkim_keys (
+    id BIGSERIAL PRIMARY KEY,
+    domain VARCHAR(255) NOT NULL UNIQUE,
+    selector VARCHAR(63) NOT NULL,
+    algorithm VARCHAR(50) NOT NULL,
+    private_key_pem TEXT NOT NULL,
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL
+);
@@ -0,0 +1,2 @@
+ALTER TABLE campaign_recipients ADD COLUMN IF NOT EXISTS first_opened_at TIMESTAMP WITH TIME ZONE;
+ALTER TABLE campaigns ADD COLUMN IF NOT EXISTS open_count BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,145 @@
+package com.example.bulkemail.security;
+
+import com.example.bulkemail.config.AppProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SnsMessageVerifierTest {
+    private static final String TOPIC = "arn:aws:sns:eu-west-1:123456789012:ses-bounces";
+    private static final String CERTIFICATE = "https://sns.eu-west-1.amazonaws.com/SimpleNotificationService-abc.pem";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final KeyPair keys = generate();
+    private final List<URI> downloads = new ArrayList<>();
+    private final SnsMessageVerifier verifier = verifier();
+
+    @Test
+    void signedNotificationIsAcceptedForBothSignatureVersions() throws Exception {
+        assertTrue(verifier.verify(json(sign(notification(), "1"))));
+        Map<String, String> withoutSubject = notification();
+        withoutSubject.remove("Subject");
+        assertTrue(verifier.verify(json(sign(withoutSubject, "2"))));
+        // The key is downloaded once per certificate URL.
+        assertEquals(List.of(URI.create(CERTIFICATE)), downloads);
+    }
+
+    @Test
+    void signedSubscriptionConfirmationIsAccepted() throws Exception {
+        Map<String, String> message = new LinkedHashMap<>();
+        message.put("Type", "SubscriptionConfirmation");
+        message.put("MessageId", "c3a1");
+        message.put("Token", "token");
+        message.put("TopicArn", TOPIC);
+        message.put("Message", "You have chosen to subscribe to the topic.");
+        message.put("SubscribeURL", "https://sns.eu-west-1.amazonaws.com/?Action=ConfirmSubscription");
+        message.put("Timestamp", "2024-01-01T00:00:00.000Z");
+        assertTrue(verifier.verify(json(sign(message, "2"))));
+    }
+
+    @Test
+    void tamperedMessageIsRejected() throws Exception {
+        Map<String, String> message = sign(notification(), "2");
+        message.put("Message", "{\"notificationType\":\"Complaint\"}");
+        assertFalse(verifier.verify(json(message)));
+    }
+
+    @Test
+    void otherTopicIsRejected() throws Exception {
+        Map<String, String> message = notification();
+        message.put("TopicArn", "arn:aws:sns:eu-west-1:999999999999:other");
+        assertFalse(verifier.verify(json(sign(message, "2"))));
+    }
+
+    @Test
+    void certificateOutsideSnsIsNeverFetched() throws Exception {
+        for (String url : List.of("http://sns.eu-west-1.amazonaws.com/cert.pem",
+                "https://sns.eu-west-1.amazonaws.com.evil.example/cert.pem",
+                "https://sns.eu-west-1.amazonaws.com@evil.example/cert.pem",
+                "https://s3.amazonaws.com/cert.pem")) {
+            Map<String, String> message = notification();
+            message.put("SigningCertURL", url);
+            assertFalse(verifier.verify(json(sign(message, "2"))), url);
+        }
+        assertEquals(List.of(), downloads);
+    }
+
+    @Test
+    void unsignedOrMalformedPayloadsAreRejected() throws Exception {
+        assertFalse(verifier.verify("not json"));
+        assertFalse(verifier.verify("[]"));
+        assertFalse(verifier.verify("{\"notificationType\":\"Bounce\"}"));
+        Map<String, String> unknownVersion = sign(notification(), "2");
+        unknownVersion.put("SignatureVersion", "3");
+        assertFalse(verifier.verify(json(unknownVersion)));
+    }
+
+    private Map<String, String> notification() {
+        Map<String, String> message = new LinkedHashMap<>();
+        message.put("Type", "Notification");
+        message.put("MessageId", "22b80b92");
+        message.put("TopicArn", TOPIC);
+        message.put("Subject", "Amazon SES Email Event Notification");
+        message.put("Message", "{\"notificationType\":\"Bounce\",\"bounce\":{\"bounceType\":\"Permanent\"}}");
+        message.put("Timestamp", "2024-01-01T00:00:00.000Z");
+        message.put("SigningCertURL", CERTIFICATE);
+        return message;
+    }
+
+    // Signs the fields the way SNS does: "key\nvalue\n" for each signed key present, in alphabetical order.
+    private Map<String, String> sign(Map<String, String> message, String version) throws Exception {
+        StringBuilder signed = new StringBuilder();
+        for (String key : List.of("Message", "MessageId", "Subject", "SubscribeURL", "Timestamp", "Token",
+                "TopicArn", "Type")) {
+            if (message.containsKey(key)) {
+                signed.append(key).append('\n').append(message.get(key)).append('\n');
+            }
+        }
+        Signature signature = Signature.getInstance(version.equals("1") ? "SHA1withRSA" : "SHA256withRSA");
+        signature.initSign(keys.getPrivate());
+        signature.update(signed.toString().getBytes(StandardCharsets.UTF_8));
+        message.put("SignatureVersion", version);
+        message.put("Signature", Base64.getEncoder().encodeToString(signature.sign()));
+        message.putIfAbsent("SigningCertURL", CERTIFICATE);
+        return message;
+    }
+
+    private String json(Map<String, String> message) throws Exception {
+        return objectMapper.writeValueAsString(message);
+    }
+
+    private SnsMessageVerifier verifier() {
+        AppProperties properties = new AppProperties();
+        properties.getWebhooks().setSnsTopicArns(List.of(" " + TOPIC + " "));
+        return new SnsMessageVerifier(objectMapper, properties) {
+            @Override
+            PublicKey download(URI uri) {
+                downloads.add(uri);
+                return keys.getPublic();
+            }
+        };
+    }
+
+    private static KeyPair generate() {
+        try {
+            return KeyPairGenerator.getInstance("RSA").generateKeyPair();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.example.bulkemail.sending;
+
+import com.example.bulkemail.config.AppProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AsyncSmtpClientTest {
+    private FakeSmtpServer server;
+    private AsyncSmtpClient client;
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (client != null) {
+            client.shutdown();
+        }
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    void sendsDotStuffedDataAndReusesTheConnection() throws IOException {
+        start(false);
+        assertEquals(250, send("someone@example.com", "Subject: hi\r\n\r\n.hidden\r\nend\r\n"));
+        assertEquals(250, send("other@example.com", "Subject: again\r\n\r\nbody\r\n"));
+
+        assertEquals(1, server.connections.get());
+        assertEquals("Subject: hi\n\n..hidden\nend\n", server.messages.get(0));
+        assertEquals(List.of("EHLO test", "MAIL FROM:<sender@example.com>", "RCPT TO:<someone@example.com>", "DATA",
+                "MAIL FROM:<sender@example.com>", "RCPT TO:<other@example.com>", "DATA"), server.commands);
+    }
+
+    @Test
+    void pipelinesTheEnvelopeWhenAdvertised() throws IOException {
+        // The server holds back MAIL and RCPT replies until DATA arrives, so waiting for each reply would time out.
+        start(true);
+        assertEquals(250, send("someone@example.com", "Subject: hi\r\n\r\nbody\r\n"));
+        assertEquals(1, server.messages.size());
+    }
+
+    @Test
+    void rejectedRecipientFailsWithReplyCodeAndKeepsTheConnection() throws IOException {
+        start(true);
+        CompletionException error = assertThrows(CompletionException.class,
+                () -> send("reject@example.com", "Subject: hi\r\n\r\nbody\r\n"));
+        AsyncSmtpClient.SmtpReplyException reply =
+                assertInstanceOf(AsyncSmtpClient.SmtpReplyException.class, error.getCause());
+        assertEquals(550, reply.getCode());
+
+        assertEquals(250, send("someone@example.com", "Subject: hi\r\n\r\nbody\r\n"));
+        assertEquals(1, server.connections.get());
+        assertTrue(server.commands.contains("RSET"));
+        assertEquals(1, server.messages.size());
+    }
+
+    @Test
+    void rejectedMessageReportsTheFinalReply() throws IOException {
+        start(false);
+        CompletionException error = assertThrows(CompletionException.class,
+                () -> send("someone@example.com", "X-Spam: yes\r\n\r\nbody\r\n"));
+        assertEquals(554, assertInstanceOf(AsyncSmtpClient.SmtpReplyException.class, error.getCause()).getCode());
+    }
+
+    private void start(boolean pipelining) throws IOException {
+        server = new FakeSmtpServer(pipelining);
+        AppProperties properties = new AppProperties();
+        properties.getSending().getAsync().setMaxConnectionsPerAccount(1);
+        properties.getSending().getAsync().setTimeoutMs(2000);
+        properties.getSending().getAsync().setHeloName("test");
+        client = new AsyncSmtpClient(properties);
+    }
+
+    private int send(String to, String message) {
+        SmtpDataOutputStream data = new SmtpDataOutputStream(256);
+        byte[] bytes = message.getBytes(StandardCharsets.US_ASCII);
+        data.write(bytes, 0, bytes.length);
+        AsyncSmtpClient.Endpoint endpoint = new AsyncSmtpClient.Endpoint(
+                InetAddress.getLoopbackAddress().getHostAddress(), server.socket.getLocalPort());
+        return client.send(endpoint, "sender@example.com", to, data.finish()).join();
+    }
+
+    // Minimal SMTP server. Recipients starting with "reject" get 550, and a message with an X-Spam header gets
+    // 554 after DATA.
+    private static final class FakeSmtpServer implements AutoCloseable {
+        private final ServerSocket socket;
+        private final boolean pipelining;
+        private final List<String> commands = new CopyOnWriteArrayList<>();
+        private final List<String> messages = new CopyOnWriteArrayList<>();
+        private final AtomicInteger connections = new AtomicInteger();
+        private final ExecutorService executor = Executors.newCachedThreadPool();
+
+        private FakeSmtpServer(boolean pipelining) throws IOException {
+            this.socket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+            this.pipelining = pipelining;
+            executor.submit(this::accept);
+        }
+
+        private void accept() {
+            while (!socket.isClosed()) {
+                try {
+                    Socket connection = socket.accept();
+                    connections.incrementAndGet();
+                    executor.submit(() -> serve(connection));
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        }
+
+        private void serve(Socket connection) {
+            try (connection) {
+                BufferedReader in = new BufferedReader(
+                        new InputStreamReader(connection.getInputStream(), StandardCharsets.US_ASCII));
+                Writer out = new OutputStreamWriter(connection.getOutputStream(), StandardCharsets.US_ASCII);
+                StringBuilder pending = new StringBuilder();
+                boolean recipient = false;
+                reply(out, pending, "220 fake", true);
+                String line;
+                while ((line = in.readLine()) != null) {
+                    commands.add(line);
+                    String verb = line.length() >= 4 ? line.substring(0, 4) : line;
+                    switch (verb) {
+                        case "EHLO" -> reply(out, pending, pipelining ? "250-fake\r\n250 PIPELINING" : "250 fake", true);
+                        case "MAIL" -> {
+                            recipient = false;
+                            reply(out, pending, "250 ok", !pipelining);
+                        }
+                        case "RCPT" -> {
+                            boolean rejected = line.contains("<reject");
+                            recipient |= !rejected;
+                            reply(out, pending, rejected ? "550 no such user" : "250 ok", !pipelining);
+                        }
+                        case "DATA" -> {
+                            if (!recipient) {
+                                reply(out, pending, "554 no valid recipients", true);
+                                continue;
+                            }
+                            reply(out, pending, "354 go ahead", true);
+                            StringBuilder data = new StringBuilder();
+                            String dataLine;
+                            while ((dataLine = in.readLine()) != null && !dataLine.equals(".")) {
+                                data.append(dataLine).append('\n');
+                            }
+                            messages.add(data.toString());
+                            reply(out, pending, data.indexOf("X-Spam") >= 0 ? "554 rejected" : "250 queued", true);
+                        }
+                        case "RSET" -> reply(out, pending, "250 ok", true);
+                        case "QUIT" -> {
+                            reply(out, pending, "221 bye", true);
+                            return;
+                        }
+                        default -> reply(out, pending, "500 unknown command", true);
+                    }
+                }
+            } catch (IOException ignored) {
+                // the client went away
+            }
+        }
+
+        // Replies are held in pending until flush, which is how a pipelining server may batch them.
+        private static void reply(Writer out, StringBuilder pending, String reply, boolean flush) throws IOException {
+            pending.append(reply).append("\r\n");
+            if (flush) {
+                out.write(pending.toString());
+                out.flush();
+                pending.setLength(0);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.bulkemail.sending;
+
+import com.example.bulkemail.entity.CampaignRecipient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MergeTemplateBenchmark {
+    private String html;
+    private MergeTemplate template;
+    private CampaignRecipient recipient;
+    private StringBuilder buffer;
+
+    @Setup
+    public void setUp() {
+        StringBuilder builder = new StringBuilder(110 * 1024);
+        int paragraph = 0;
+        while (builder.length() < 100 * 1024) {
+            builder.append("<p>Dear {{firstName}}, paragraph ").append(paragraph++)
+                    .append(" of the quarterly update for {{department}}. Lorem ipsum dolor sit amet, ")
+                    .append("consectetur adipiscing elit, sed do eiusmod tempor incididunt ut labore.</p>\n");
+        }
+        html = builder.toString();
+        template = MergeTemplate.compileHtml(html);
+        recipient = new CampaignRecipient();
+        recipient.setEmail("ada.lovelace@example.com");
+        recipient.setFullName("Ada Lovelace");
+        recipient.setDepartment("Research & Development");
+        buffer = new StringBuilder(html.length() * 2);
+    }
+
+    @Benchmark
+    public MergeTemplate compile() {
+        return MergeTemplate.compileHtml(html);
+    }
+
+    @Benchmark
+    public int renderIntoReusedBuffer() {
+        buffer.setLength(0);
+        template.renderTo(recipient, buffer);
+        return buffer.length();
+    }
+
+    @Benchmark
+    public String render() {
+        return template.render(recipient);
+    }
+
+    @Benchmark
+    public String regexBaseline() {
+        return html.replaceAll("\\{\\{firstName}}", "Ada")
+                .replaceAll("\\{\\{department}}", "Research &amp; Development");
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(MergeTemplateBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.bulkemail.sending;
+
+import com.example.bulkemail.entity.CampaignRecipient;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MergeTemplateTest {
+    @Test
+    void rendersKnownFieldsAndKeepsUnknownPlaceholders() {
+        CampaignRecipient recipient = recipient("Ada Lovelace", "Engineering");
+
+        String rendered = MergeTemplate.compile("Hi {{ firstName }} from {{department}}, {{unknown}} {{fullName}}")
+                .render(recipient);
+
+        assertEquals("Hi Ada from Engineering, {{unknown}} Ada Lovelace", rendered);
+    }
+
+    @Test
+    void htmlTemplateEscapesValues() {
+        CampaignRecipient recipient = recipient("<b>Bob</b> & Co", null);
+
+        String rendered = MergeTemplate.compileHtml("<p>{{fullName}}</p><p>{{department}}</p>").render(recipient);
+
+        assertEquals("<p>&lt;b&gt;Bob&lt;/b&gt; &amp; Co</p><p></p>", rendered);
+    }
+
+    @Test
+    void staticTemplateReturnsSourceUnchanged() {
+        String body = "<p>No fields {{ here</p>";
+        MergeTemplate template = MergeTemplate.compileHtml(body);
+
+        assertTrue(template.isStatic());
+        assertSame(body, template.render(recipient("Ada", null)));
+    }
+
+    @Test
+    void htmlTemplateExposesLinkSlots() {
+        MergeTemplate template = MergeTemplate.compileHtml("<p>Hi {{firstName}}</p>"
+                + "<a href=\"https://example.com/a?x=1&amp;y=2\">A</a> <a href='mailto:hr@example.com'>HR</a> "
+                + "<A class=\"btn\" HREF=\"http://example.com/b\">B</A> <a href=\"https://example.com/{{email}}\">C</a>");
+
+        assertEquals(List.of("https://example.com/a?x=1&y=2", "http://example.com/b"), template.links());
+        assertEquals("<p>Hi Ada</p><a href=\"[0]\">A</a> <a href='mailto:hr@example.com'>HR</a> "
+                        + "<A class=\"btn\" HREF=\"[1]\">B</A> <a href=\"https://example.com/ada@example.com\">C</a>",
+                template.render(recipient("Ada", null), (slot, out) -> out.append('[').append(slot).append(']')));
+        assertEquals(template.source().replace("{{firstName}}", "Ada").replace("{{email}}", "ada@example.com"),
+                template.render(recipient("Ada", null)));
+    }
+
+    private CampaignRecipient recipient(String fullName, String department) {
+        CampaignRecipient recipient = new CampaignRecipient();
+        recipient.setEmail("ada@example.com");
+        recipient.setFullName(fullName);
+        recipient.setDepartment(department);
+        return recipient;
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.bulkemail.sending;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SmtpDataOutputStreamTest {
+    @Test
+    void dotStuffsLinesStartingWithDot() {
+        assertEquals("..hidden\r\nkeep.this\r\n...\r\n.\r\n", encode(".hidden\r\nkeep.this\r\n..\r\n"));
+    }
+
+    @Test
+    void normalizesBareLineBreaksToCrlf() {
+        assertEquals("a\r\nb\r\nc\r\n\r\nd\r\n.\r\n", encode("a\nb\rc\r\n\nd"));
+    }
+
+    @Test
+    void keepsStateAcrossWrites() {
+        SmtpDataOutputStream out = new SmtpDataOutputStream(16);
+        write(out, "line\r");
+        write(out, "\n");
+        write(out, ".");
+        write(out, "dot\n");
+        out.write('.');
+        assertEquals("line\r\n..dot\r\n..\r\n.\r\n", new String(out.finish(), StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    void emptyMessageIsJustTheTerminator() {
+        assertEquals(".\r\n", encode(""));
+    }
+
+    private static String encode(String message) {
+        SmtpDataOutputStream out = new SmtpDataOutputStream(16);
+        write(out, message);
+        return new String(out.finish(), StandardCharsets.US_ASCII);
+    }
+
+    private static void write(SmtpDataOutputStream out, String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.US_ASCII);
+        out.write(bytes, 0, bytes.length);
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.bulkemail.sending;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SuppressionMatcherTest {
+    private final SuppressionMatcher matcher = SuppressionMatcher.compile(
+            List.of("Acquired.com", "*.old.corp.com", "noreply@*", "ceo@corp.com"));
+
+    @Test
+    void domainRuleMatchesOnlyThatDomain() {
+        assertTrue(matcher.matches("someone@ACQUIRED.com"));
+        assertFalse(matcher.matches("someone@eu.acquired.com"));
+        assertFalse(matcher.matches("someone@notacquired.com"));
+    }
+
+    @Test
+    void subdomainRuleMatchesDescendantsOnly() {
+        assertTrue(matcher.matches("a@mail.old.corp.com"));
+        assertTrue(matcher.matches("a@x.y.old.corp.com"));
+        assertFalse(matcher.matches("a@old.corp.com"));
+    }
+
+    @Test
+    void localPartRules() {
+        assertTrue(matcher.matches("NoReply@anywhere.org"));
+        assertTrue(matcher.matches("ceo@corp.com"));
+        assertFalse(matcher.matches("cfo@corp.com"));
+        assertFalse(matcher.matches("ceo@hq.corp.com"));
+    }
+
+    @Test
+    void rejectsUnsupportedPatterns() {
+        assertEquals("*.old.corp.com", SuppressionMatcher.normalize(" *.Old.Corp.com. "));
+        assertThrows(IllegalArgumentException.class, () -> SuppressionMatcher.normalize("*"));
+        assertThrows(IllegalArgumentException.class, () -> SuppressionMatcher.normalize("no*reply@corp.com"));
+        assertThrows(IllegalArgumentException.class, () -> SuppressionMatcher.normalize("corp..com"));
+    }
+}
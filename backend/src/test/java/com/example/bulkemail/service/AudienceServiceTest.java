@@ -28,6 +28,10 @@ class AudienceServiceTest {
     private EmployeeRepository employeeRepository;
     @Mock
     private CampaignAudienceRepository campaignAudienceRepository;
+    @Mock
+    private AudienceMembershipService membershipService;
+    @Mock
+    private EmployeeBitmapIndex bitmapIndex;
 
     @Test
     void updateBlocksWhenLinkedToActiveCampaigns() {
@@ -35,7 +39,9 @@ class AudienceServiceTest {
                 audienceRepository,
                 audienceRuleRepository,
                 employeeRepository,
-                campaignAudienceRepository
+                campaignAudienceRepository,
+                membershipService,
+                bitmapIndex
         );
         Audience audience = new Audience();
         audience.setId(10L);
@@ -54,7 +60,9 @@ class AudienceServiceTest {
                 audienceRepository,
                 audienceRuleRepository,
                 employeeRepository,
-                campaignAudienceRepository
+                campaignAudienceRepository,
+                membershipService,
+                bitmapIndex
         );
         when(campaignAudienceRepository.countByAudienceIdAndCampaignStatusIn(11L, anyList())).thenReturn(1L);
 
@@ -5,6 +5,7 @@ import com.example.bulkemail.config.AppProperties;
 import com.example.bulkemail.dto.CampaignUpdateRequest;
 import com.example.bulkemail.entity.*;
 import com.example.bulkemail.repo.*;
+import com.example.bulkemail.sending.AttachmentSpool;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -35,12 +36,6 @@ class CampaignServiceTest {
     @Mock
     private AudienceRepository audienceRepository;
     @Mock
-    private AudienceRuleRepository audienceRuleRepository;
-    @Mock
-    private EmployeeRepository employeeRepository;
-    @Mock
-    private AudienceService audienceService;
-    @Mock
     private ApprovalService approvalService;
     @Mock
     private ApprovalRepository approvalRepository;
@@ -52,6 +47,16 @@ class CampaignServiceTest {
     private ObjectMapper objectMapper;
     @Mock
     private PolicySettingsService policySettingsService;
+    @Mock
+    private AttachmentSpool attachmentSpool;
+    @Mock
+    private AttachmentStore attachmentStore;
+    @Mock
+    private CampaignProgressService progressService;
+    @Mock
+    private ClickTrackingService clickTrackingService;
+    @Mock
+    private ExpansionJobService expansionJobService;
 
     private CampaignService service() {
         return new CampaignService(
@@ -61,16 +66,17 @@ class CampaignServiceTest {
                 campaignAudienceRepository,
                 campaignRecipientRepository,
                 audienceRepository,
-                audienceRuleRepository,
-                employeeRepository,
-                audienceService,
                 approvalService,
                 appProperties,
                 auditService,
                 approvalRepository,
                 objectMapper,
-                "/tmp",
-                policySettingsService
+                policySettingsService,
+                attachmentSpool,
+                attachmentStore,
+                progressService,
+                clickTrackingService,
+                expansionJobService
         );
     }
 
@@ -129,4 +135,18 @@ class CampaignServiceTest {
         verify(campaignRepository).save(captor.capture());
         assertEquals(CampaignStatus.SENDING, captor.getValue().getStatus());
     }
+
+    @Test
+    void finalApprovalRegistersClickTargets() {
+        Campaign campaign = new Campaign();
+        campaign.setId(9L);
+        campaign.setStatus(CampaignStatus.PENDING_APPROVAL);
+        when(approvalService.allApproved(9L)).thenReturn(true);
+        when(campaignRepository.findById(9L)).thenReturn(Optional.of(campaign));
+
+        service().updateStatusIfApproved(9L, "127.0.0.1", "test");
+
+        assertEquals(CampaignStatus.APPROVED, campaign.getStatus());
+        verify(clickTrackingService).register(campaign);
+    }
 }
@@ -0,0 +1,130 @@
+package com.example.bulkemail.service;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// Deduplicating the addresses of a streamed expansion: a HashSet of canonical address strings against
+// EmailFingerprintSet. Addresses are copied before each add, as rows read from a cursor are fresh strings that
+// only the HashSet keeps alive. The *Time benchmarks measure speed ("-prof gc" adds allocation per operation);
+// the *Footprint ones build the set once and report the heap it retains after a GC as retainedBytesPerEmail.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class EmailDedupeBenchmark {
+    @Param({"100000", "1000000"})
+    private int emails;
+
+    private char[][] addresses;
+
+    @Setup
+    public void setUp() {
+        addresses = new char[emails][];
+        for (int i = 0; i < emails; i++) {
+            // One address in fifty repeats the one before it with the domain in another case.
+            String address = i % 50 == 49
+                    ? "first.last" + (i - 1) + "@EXAMPLE.com"
+                    : "first.last" + i + "@example.com";
+            addresses[i] = address.toCharArray();
+        }
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+        public long retainedBytesPerEmail;
+        private long baseline;
+        private Object retained;
+
+        @Setup(Level.Iteration)
+        public void setUp() {
+            retained = null;
+            baseline = usedAfterGc();
+        }
+
+        void record(Object set, int count) {
+            retained = set;
+            retainedBytesPerEmail = Math.max(0, usedAfterGc() - baseline) / count;
+            retained = null;
+        }
+    }
+
+    @Benchmark
+    public Set<String> hashSetTime() {
+        return hashSet();
+    }
+
+    @Benchmark
+    public EmailFingerprintSet fingerprintSetTime() {
+        return fingerprintSet();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 0)
+    @Measurement(iterations = 1)
+    public void hashSetFootprint(Footprint footprint) {
+        footprint.record(hashSet(), emails);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 0)
+    @Measurement(iterations = 1)
+    public void fingerprintSetFootprint(Footprint footprint) {
+        footprint.record(fingerprintSet(), emails);
+    }
+
+    private Set<String> hashSet() {
+        Set<String> unique = new HashSet<>();
+        for (char[] chars : addresses) {
+            String email = new String(chars);
+            int at = email.lastIndexOf('@');
+            unique.add(email.substring(0, at + 1) + email.substring(at + 1).toLowerCase(Locale.ROOT));
+        }
+        return unique;
+    }
+
+    private EmailFingerprintSet fingerprintSet() {
+        EmailFingerprintSet unique = new EmailFingerprintSet(0);
+        for (char[] chars : addresses) {
+            // Every hit in this data set is a real duplicate, so the exact lookup confirms without a search.
+            unique.add(new String(chars), email -> true);
+        }
+        return unique;
+    }
+
+    private static long usedAfterGc() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        System.gc();
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(EmailDedupeBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.bulkemail.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EmailFingerprintSetTest {
+    @Test
+    void domainCaseIsIgnoredButLocalPartIsNot() {
+        EmailFingerprintSet set = new EmailFingerprintSet(0);
+        assertTrue(set.add("Jane.Doe@Example.com", email -> true));
+        assertFalse(set.add("Jane.Doe@example.COM", email -> true));
+        assertTrue(set.add("jane.doe@example.com", email -> true));
+        assertEquals(2, set.size());
+        assertTrue(EmailFingerprintSet.sameAddress("a@EXAMPLE.com", "a@example.com"));
+        assertFalse(EmailFingerprintSet.sameAddress("A@example.com", "a@example.com"));
+    }
+
+    @Test
+    void hitNotConfirmedByExactLookupCountsAsCollision() {
+        EmailFingerprintSet set = new EmailFingerprintSet(0);
+        set.add("a@example.com", email -> true);
+        assertTrue(set.add("a@example.com", email -> false));
+        assertEquals(1, set.collisions());
+        assertEquals(1, set.size());
+    }
+
+    @Test
+    void growsPastInitialCapacity() {
+        EmailFingerprintSet set = new EmailFingerprintSet(4);
+        List<String> emails = new ArrayList<>();
+        for (int i = 0; i < 50_000; i++) {
+            emails.add("user" + i + "@example.com");
+        }
+        for (String email : emails) {
+            assertTrue(set.add(email, seen -> true));
+        }
+        for (String email : emails) {
+            assertTrue(set.contains(email.toUpperCase().replace("USER", "user")));
+            assertFalse(set.add(email, seen -> true));
+        }
+        assertFalse(set.contains("user50000@example.com"));
+        assertEquals(50_000, set.size());
+        assertTrue(set.footprintBytes() <= 24L * 50_000);
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.bulkemail.service;
+
+import com.example.bulkemail.entity.AudienceRule;
+import com.example.bulkemail.entity.AudienceRuleType;
+import com.example.bulkemail.entity.EmployeeStatus;
+import com.example.bulkemail.repo.AudienceRuleRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+
+class EmployeeBitmapIndexTest {
+    private static final String[] DEPARTMENTS = {"Sales", "SALES", "Engineering", "HR"};
+    private static final String[] LOCATIONS = {"Berlin", "berlin", "Austin"};
+    private static final String[] TITLES = {"Sales Manager", "Engineering Manager", "Senior Engineer", "100% Remote",
+            "Site_Lead", "Sitelead", "back\\slash", null};
+    private static final String[] TITLE_VALUES = {"manager", "MANAGER", "engineer", "%", "_", "site_lead", "e_l",
+            "\\", "remote", "nobody"};
+
+    private final AudienceMembershipService membershipService = new AudienceMembershipService(
+            mock(JdbcTemplate.class), mock(AudienceRuleRepository.class), mock(PlatformTransactionManager.class),
+            mock(EmployeeBitmapIndex.class));
+
+    @Test
+    void matchAgreesWithSqlPredicate() {
+        Random random = new Random(11);
+        EmployeeBitmapIndex.Names names = new EmployeeBitmapIndex.Names();
+        for (int i = 0; i < DEPARTMENTS.length; i++) {
+            names.department(i + 1, DEPARTMENTS[i]);
+        }
+        for (int i = 0; i < LOCATIONS.length; i++) {
+            names.location(i + 1, LOCATIONS[i]);
+        }
+        EmployeeBitmapIndex.Snapshot snapshot = new EmployeeBitmapIndex.Snapshot(names);
+        List<Row> rows = new ArrayList<>();
+        for (long id = 1; id <= 400; id++) {
+            // Department and location ids one past the table stand for a missing join row.
+            long department = random.nextInt(DEPARTMENTS.length + 2);
+            long location = random.nextInt(LOCATIONS.length + 2);
+            Row row = new Row(id,
+                    department == 0 ? null : department, department == 0 || department > DEPARTMENTS.length
+                            ? null : DEPARTMENTS[(int) department - 1],
+                    location == 0 ? null : location, location == 0 || location > LOCATIONS.length
+                            ? null : LOCATIONS[(int) location - 1],
+                    EmployeeStatus.values()[random.nextInt(EmployeeStatus.values().length)],
+                    TITLES[random.nextInt(TITLES.length)]);
+            rows.add(row);
+            snapshot.add(id, row.departmentId(), row.locationId(), row.status().name(),
+                    row.title() == null ? null : row.title().toLowerCase(Locale.ROOT));
+        }
+
+        for (int round = 0; round < 300; round++) {
+            List<AudienceRule> rules = new ArrayList<>();
+            int count = random.nextInt(4);
+            for (int i = 0; i < count; i++) {
+                rules.add(randomRule(random));
+            }
+            List<Object> args = new ArrayList<>();
+            String predicate = membershipService.toSqlPredicate(rules, args);
+            List<Long> expected = rows.stream().filter(row -> evaluate(predicate, args, row)).map(Row::id).toList();
+
+            List<Long> actual = new ArrayList<>();
+            snapshot.match(EmployeeBitmapIndex.compile(rules)).forEach(id -> actual.add((long) id));
+            assertEquals(expected, actual, predicate + " " + args);
+        }
+    }
+
+    private static AudienceRule randomRule(Random random) {
+        AudienceRule rule = new AudienceRule();
+        AudienceRuleType type = AudienceRuleType.values()[random.nextInt(AudienceRuleType.values().length)];
+        rule.setRuleType(type);
+        rule.setRuleValue(switch (type) {
+            case DEPARTMENT -> pick(random, "sales", "Engineering", "hr", "Legal");
+            case LOCATION -> pick(random, "BERLIN", "austin", "Paris");
+            case TITLE_CONTAINS -> TITLE_VALUES[random.nextInt(TITLE_VALUES.length)];
+            case STATUS -> pick(random, "active", "INACTIVE");
+        });
+        return rule;
+    }
+
+    private static String pick(Random random, String... values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    // Evaluates the predicates toSqlPredicate emits the way PostgreSQL would, with NULL comparing as false.
+    private static boolean evaluate(String predicate, List<Object> args, Row row) {
+        if (predicate.equals("true")) {
+            return true;
+        }
+        String[] clauses = predicate.substring(1, predicate.length() - 1).split(" and ");
+        for (int i = 0; i < clauses.length; i++) {
+            String value = (String) args.get(i);
+            boolean matched = switch (clauses[i]) {
+                case "lower(d.name) = ?" -> row.department() != null
+                        && row.department().toLowerCase(Locale.ROOT).equals(value);
+                case "lower(l.name) = ?" -> row.location() != null
+                        && row.location().toLowerCase(Locale.ROOT).equals(value);
+                case "lower(e.title) like ? escape '\\'" -> row.title() != null
+                        && like(row.title().toLowerCase(Locale.ROOT), value);
+                case "e.status = ?" -> row.status().name().equals(value);
+                default -> throw new AssertionError("Unexpected predicate " + clauses[i]);
+            };
+            if (!matched) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean like(String text, String pattern) {
+        StringBuilder regex = new StringBuilder();
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == '\\') {
+                regex.append(Pattern.quote(String.valueOf(pattern.charAt(++i))));
+            } else if (c == '%') {
+                regex.append(".*");
+            } else if (c == '_') {
+                regex.append('.');
+            } else {
+                regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return Pattern.compile(regex.toString(), Pattern.DOTALL).matcher(text).matches();
+    }
+
+    private record Row(long id, Long departmentId, String department, Long locationId, String location,
+                       EmployeeStatus status, String title) {
+    }
+}
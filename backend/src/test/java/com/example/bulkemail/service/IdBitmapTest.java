@@ -0,0 +1,66 @@
+package com.example.bulkemail.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IdBitmapTest {
+    @Test
+    void andOrMatchBitSetAcrossSparseAndDenseContainers() {
+        Random random = new Random(7);
+        for (int round = 0; round < 50; round++) {
+            int range = round % 2 == 0 ? 200_000 : 5_000_000;
+            IdBitmap left = new IdBitmap();
+            IdBitmap right = new IdBitmap();
+            BitSet leftBits = new BitSet();
+            BitSet rightBits = new BitSet();
+            for (int i = 0; i < 20_000; i++) {
+                int a = random.nextInt(range);
+                int b = random.nextInt(range / 4);
+                left.add(a);
+                leftBits.set(a);
+                right.add(b);
+                rightBits.set(b);
+            }
+            for (int i = 0; i < 5_000; i++) {
+                int a = random.nextInt(range);
+                left.remove(a);
+                leftBits.clear(a);
+            }
+            BitSet and = (BitSet) leftBits.clone();
+            and.and(rightBits);
+            BitSet or = (BitSet) leftBits.clone();
+            or.or(rightBits);
+            assertEquals(and, toBitSet(left.and(right)));
+            assertEquals(or, toBitSet(left.or(right)));
+            assertEquals(or.cardinality(), right.or(left).cardinality());
+        }
+    }
+
+    @Test
+    void denseRangeConvertsBackToArrayOnRemoval() {
+        IdBitmap bitmap = new IdBitmap();
+        for (int i = 0; i < 10_000; i++) {
+            bitmap.add(i);
+        }
+        assertTrue(bitmap.footprintBytes() < 10_000);
+        for (int i = 0; i < 10_000; i += 2) {
+            bitmap.remove(i);
+        }
+        assertEquals(5_000, bitmap.cardinality());
+        assertFalse(bitmap.contains(4));
+        assertEquals(List.of(1L, 3L, 5L), bitmap.first(3));
+    }
+
+    private static BitSet toBitSet(IdBitmap bitmap) {
+        BitSet bits = new BitSet();
+        bitmap.forEach(bits::set);
+        return bits;
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.bulkemail.service;
+
+import com.example.bulkemail.entity.CampaignRecipient;
+import com.example.bulkemail.sending.SuppressionMatcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// Application side of recipient expansion, without the database: rows from a simulated cursor pass through
+// RecipientBatchWriter, against the old approach of materializing every row and deduplicating in a HashSet.
+// Run with "-prof gc" to compare allocation per operation.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class RecipientExpansionBenchmark {
+    @Param({"10000", "100000", "1000000"})
+    private int employees;
+
+    private String[] emails;
+    private String[] names;
+    private String[] departments;
+    private SuppressionMatcher rules;
+
+    @Setup
+    public void setUp() {
+        emails = new String[employees];
+        names = new String[employees];
+        departments = new String[employees];
+        for (int i = 0; i < employees; i++) {
+            String domain = i % 50 == 0 ? "legacy.example.com" : "example.com";
+            emails[i] = "employee" + i + "@" + domain;
+            names[i] = "Employee " + i;
+            departments[i] = "Department " + (i % 40);
+        }
+        rules = SuppressionMatcher.compile(List.of("legacy.example.com", "noreply@*", "*.acquired.example.org"));
+    }
+
+    @Benchmark
+    public long streamInBatches(Blackhole blackhole) {
+        RecipientBatchWriter writer = new RecipientBatchWriter(1L, 1000, rules::matches, blackhole::consume);
+        for (int i = 0; i < employees; i++) {
+            writer.add(emails[i], names[i], departments[i]);
+        }
+        writer.flush();
+        return writer.written();
+    }
+
+    @Benchmark
+    public int materializeAndDedupe() {
+        List<CampaignRecipient> recipients = new ArrayList<>();
+        Set<String> unique = new HashSet<>();
+        for (int i = 0; i < employees; i++) {
+            if (!rules.matches(emails[i]) && unique.add(emails[i])) {
+                CampaignRecipient recipient = new CampaignRecipient();
+                recipient.setEmail(emails[i]);
+                recipient.setFullName(names[i]);
+                recipient.setDepartment(departments[i]);
+                recipients.add(recipient);
+            }
+        }
+        return recipients.size();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(RecipientExpansionBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.bulkemail.service;
+
+import com.example.bulkemail.audit.AuditService;
+import com.example.bulkemail.dto.SuppressionDtos;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+import org.springframework.mock.web.MockMultipartFile;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SuppressionImportServiceTest {
+    private final ByteArrayOutputStream copied = new ByteArrayOutputStream();
+    private final Connection connection = mock(Connection.class);
+    private SuppressionImportService service;
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void csvRowsAreParsedNormalizedAndCounted() throws Exception {
+        // The database reports 2 distinct staged addresses, of which 1 was new.
+        start(2, 1);
+        String csv = "Reason,Email\n"
+                + "\"quoted, reason\",<Someone@Example.COM>\n"
+                + ",mailto:other@example.com\n"
+                + "\n"
+                + "typo,not-an-email\n"
+                + ", SOMEONE@example.com \n"
+                + ",two@@example.com\n";
+
+        SuppressionDtos.ImportStatus status = run("list.csv", csv);
+
+        assertEquals("COMPLETED", status.getStatus());
+        assertEquals(5, status.getRowsRead());
+        assertEquals(3, status.getAccepted());
+        assertEquals(2, status.getRejected());
+        assertEquals(1, status.getDuplicates());
+        assertEquals(1, status.getInserted());
+        assertEquals(1, status.getAlreadySuppressed());
+        assertEquals(List.of("missing @", "more than one @"),
+                status.getRejectedSamples().stream().map(SuppressionDtos.RejectedRow::getReason).toList());
+        assertEquals(List.of(5L, 7L),
+                status.getRejectedSamples().stream().map(SuppressionDtos.RejectedRow::getLine).toList());
+        assertEquals("someone@example.com,\"quoted, reason\"\n"
+                + "other@example.com,\"Imported\"\n"
+                + "someone@example.com,\"Imported\"\n", copied.toString(StandardCharsets.UTF_8));
+        verify(connection).commit();
+    }
+
+    @Test
+    void headerlessCsvTakesTheEmailFromTheFirstColumn() throws Exception {
+        start(2, 2);
+        SuppressionDtos.ImportStatus status = run("list.csv", "a@example.com,left\nb@example.com\n");
+
+        assertEquals(2, status.getAccepted());
+        assertEquals(0, status.getDuplicates());
+        assertEquals(0, status.getAlreadySuppressed());
+        assertEquals("a@example.com,\"left\"\nb@example.com,\"Imported\"\n", copied.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void ndjsonRejectsInvalidJsonAndEmptyAddresses() throws Exception {
+        start(1, 0);
+        SuppressionDtos.ImportStatus status = run("list.ndjson",
+                "{\"email\":\"A@B.com\",\"reason\":\"left \\\"team\\\"\"}\nnot json\n{\"email\":\"\"}\n");
+
+        assertEquals(3, status.getRowsRead());
+        assertEquals(1, status.getAccepted());
+        assertEquals(2, status.getRejected());
+        assertEquals(1, status.getAlreadySuppressed());
+        assertEquals(List.of("invalid JSON", "empty"),
+                status.getRejectedSamples().stream().map(SuppressionDtos.RejectedRow::getReason).toList());
+        assertEquals("a@b.com,\"left \"\"team\"\"\"\n", copied.toString(StandardCharsets.UTF_8));
+    }
+
+    private void start(long distinct, int inserted) throws Exception {
+        DataSource dataSource = mock(DataSource.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        Statement statement = mock(Statement.class);
+        when(connection.createStatement()).thenReturn(statement);
+        ResultSet count = mock(ResultSet.class);
+        when(statement.executeQuery(anyString())).thenReturn(count);
+        when(count.next()).thenReturn(true);
+        when(count.getLong(1)).thenReturn(distinct);
+        PreparedStatement merge = mock(PreparedStatement.class);
+        when(connection.prepareStatement(anyString())).thenReturn(merge);
+        when(merge.executeUpdate()).thenReturn(inserted);
+
+        PGConnection pgConnection = mock(PGConnection.class);
+        CopyManager copyManager = mock(CopyManager.class);
+        CopyIn copyIn = mock(CopyIn.class);
+        when(connection.unwrap(PGConnection.class)).thenReturn(pgConnection);
+        when(pgConnection.getCopyAPI()).thenReturn(copyManager);
+        when(copyManager.copyIn(anyString())).thenReturn(copyIn);
+        doAnswer(invocation -> {
+            copied.write(invocation.getArgument(0), invocation.getArgument(1), invocation.getArgument(2));
+            return null;
+        }).when(copyIn).writeToCopy(any(byte[].class), anyInt(), anyInt());
+
+        service = new SuppressionImportService(dataSource, new ObjectMapper(), mock(AuditService.class));
+    }
+
+    private SuppressionDtos.ImportStatus run(String fileName, String content) throws InterruptedException {
+        MockMultipartFile file = new MockMultipartFile("file", fileName, "text/plain",
+                content.getBytes(StandardCharsets.UTF_8));
+        String jobId = service.start(file, null, "127.0.0.1", "test").getJobId();
+        for (int i = 0; i < 500; i++) {
+            SuppressionDtos.ImportStatus status = service.status(jobId).orElseThrow();
+            if (!"RUNNING".equals(status.getStatus())) {
+                return status;
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("Import did not finish");
+    }
+}
@@ -1,5 +1,5 @@
 import apiClient from "../lib/apiClient";
-import { Campaign } from "../types";
+import { Campaign, ExpansionJob } from "../types";
 
 export async function fetchCampaigns(params?: Record<string, any>) {
   const { data } = await apiClient.get<Campaign[]>("/api/campaigns", { params });
@@ -32,7 +32,12 @@ export async function scheduleCampaign(id: number, payload: any) {
 }
 
 export async function expandRecipients(id: number, payload: any) {
-  const { data } = await apiClient.post<string>(`/api/campaigns/${id}/expand`, payload);
+  const { data } = await apiClient.post<ExpansionJob>(`/api/campaigns/${id}/expand`, payload);
+  return data;
+}
+
+export async function fetchExpansionJob(id: number) {
+  const { data } = await apiClient.get<ExpansionJob>(`/api/campaigns/${id}/expansion`);
   return data;
 }
 
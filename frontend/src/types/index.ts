@@ -78,6 +78,19 @@ export type CampaignRecipientReport = {
   updatedAt?: string | null;
 };
 
+export type ExpansionJob = {
+  jobId: number;
+  campaignId: number;
+  status: "QUEUED" | "RUNNING" | "COMPLETED" | "FAILED" | "CANCELLED";
+  matched: number;
+  inserted: number;
+  percent: number;
+  createdAt?: string;
+  startedAt?: string | null;
+  finishedAt?: string | null;
+  error?: string | null;
+};
+
 export type SuppressionEntry = {
   id: number;
   email: string;